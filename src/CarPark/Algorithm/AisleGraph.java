@@ -0,0 +1,484 @@
+package CarPark.Algorithm;
+
+import java.awt.geom.Line2D;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * The space a car can drive through in a generated layout, on the same 0.2 m
+ * grid as SiteRaster. A cell can be driven through when a square as wide as a
+ * lane centred on it is inside the boarder and clear of holes and parked
+ * cars. Neighbouring drivable cells are joined, so searches over the graph
+ * are breadth first searches over the grid and take time linear in the
+ * number of cells.
+ *
+ * @author Aydin + Sam
+ */
+public class AisleGraph {
+
+    //pixels in every grid dot, the same as the raster's.
+    private int cellSize;
+    private int originX;
+    private int originY;
+    private int cols;
+    private int rows;
+    //cells inside the boarder and clear of holes.
+    private boolean[] free;
+    //the stall covering each cell, -1 for none.
+    private int[] owner;
+    //how many cells wide a lane is and how it sits around its centre cell.
+    private int laneCells;
+    private int before;
+    private int after;
+    //cells a car can be centred on.
+    private boolean[] drivable;
+
+    /**
+     * Constructor: Builds the drivable cells of a layout.
+     *
+     * @param raster the cells inside the boarder and clear of holes.
+     * @param stalls the area each parked car takes up (px).
+     * @param laneWidthPx how wide a gap a car needs to drive through (px).
+     */
+    public AisleGraph(SiteRaster raster, ArrayList<Rectangle2D> stalls, double laneWidthPx) {
+        cellSize = raster.getCellSize();
+        originX = raster.getOriginX();
+        originY = raster.getOriginY();
+        cols = raster.getCols();
+        rows = raster.getRows();
+
+        free = new boolean[cols * rows];
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                free[r * cols + c] = raster.isFree(c, r);
+            }
+        }
+        owner = new int[cols * rows];
+        Arrays.fill(owner, -1);
+        for (int i = 0; i < stalls.size(); i++) {
+            Rectangle2D stall = stalls.get(i);
+            //cells are given to the stall their centre falls in so
+            //neighbouring stalls don't share cells.
+            int firstCol = Math.max(0, (int) Math.round((stall.getMinX() - originX) / cellSize));
+            int endCol = Math.min(cols, (int) Math.round((stall.getMaxX() - originX) / cellSize));
+            int firstRow = Math.max(0, (int) Math.round((stall.getMinY() - originY) / cellSize));
+            int endRow = Math.min(rows, (int) Math.round((stall.getMaxY() - originY) / cellSize));
+            for (int r = firstRow; r < endRow && firstCol < endCol; r++) {
+                Arrays.fill(owner, r * cols + firstCol, r * cols + endCol, i);
+            }
+        }
+
+        laneCells = Math.max(1, (int) (laneWidthPx / cellSize));
+        before = (laneCells - 1) / 2;
+        after = laneCells - 1 - before;
+        drivable = drivableCells(null);
+    }
+
+    /**
+     * Whether a car can be centred on a cell.
+     *
+     * @param c the column of the cell.
+     * @param r the row of the cell.
+     * @return true if the cell is drivable.
+     */
+    public boolean isDrivable(int c, int r) {
+        if (c < 0 || r < 0 || c >= cols || r >= rows) {
+            return false;
+        }
+        return drivable[r * cols + c];
+    }
+
+    /**
+     * Breadth first search from every source cell at once.
+     *
+     * @param sources true for each cell to start from, only drivable cells
+     * are used.
+     * @return the number of cell steps from the nearest source to each cell,
+     * -1 for cells that can't be reached.
+     */
+    public int[] distancesFrom(boolean[] sources) {
+        int[] steps = new int[cols * rows];
+        Arrays.fill(steps, -1);
+        int[] queue = new int[cols * rows];
+        int head = 0;
+        int tail = 0;
+        for (int i = 0; i < steps.length; i++) {
+            if (sources[i] && drivable[i]) {
+                steps[i] = 0;
+                queue[tail++] = i;
+            }
+        }
+        while (head < tail) {
+            int cell = queue[head++];
+            int c = cell % cols;
+            int next = steps[cell] + 1;
+            if (c > 0 && drivable[cell - 1] && steps[cell - 1] == -1) {
+                steps[cell - 1] = next;
+                queue[tail++] = cell - 1;
+            }
+            if (c < cols - 1 && drivable[cell + 1] && steps[cell + 1] == -1) {
+                steps[cell + 1] = next;
+                queue[tail++] = cell + 1;
+            }
+            if (cell >= cols && drivable[cell - cols] && steps[cell - cols] == -1) {
+                steps[cell - cols] = next;
+                queue[tail++] = cell - cols;
+            }
+            if (cell + cols < steps.length && drivable[cell + cols] && steps[cell + cols] == -1) {
+                steps[cell + cols] = next;
+                queue[tail++] = cell + cols;
+            }
+        }
+        return steps;
+    }
+
+    /**
+     * Marks the cells within a distance of an entrance or exit as sources,
+     * using the layout's clearance field.
+     *
+     * @param clearanceField the entrance/exit distances for the boarder.
+     * @param withinPx how close to an entrance or exit a cell must be (px).
+     * @return true for each source cell.
+     */
+    public boolean[] cellsNear(ClearanceField clearanceField, double withinPx) {
+        boolean[] near = new boolean[cols * rows];
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                near[r * cols + c] = clearanceField.getDistance(c, r) <= withinPx;
+            }
+        }
+        return near;
+    }
+
+    /**
+     * Marks the cells within a distance of any of a set of lines as sources.
+     * Only the cells around each line are looked at.
+     *
+     * @param lines the lines to start from, e.g. the entrances (px).
+     * @param withinPx how close to a line a cell's centre must be (px).
+     * @return true for each source cell.
+     */
+    public boolean[] cellsNear(ArrayList<Line2D> lines, double withinPx) {
+        boolean[] near = new boolean[cols * rows];
+        for (int i = 0; i < lines.size(); i++) {
+            Line2D line = lines.get(i);
+            Rectangle2D bounds = line.getBounds2D();
+            int firstCol = Math.max(0, (int) Math.floor((bounds.getMinX() - withinPx - originX) / cellSize));
+            int endCol = Math.min(cols, (int) Math.ceil((bounds.getMaxX() + withinPx - originX) / cellSize));
+            int firstRow = Math.max(0, (int) Math.floor((bounds.getMinY() - withinPx - originY) / cellSize));
+            int endRow = Math.min(rows, (int) Math.ceil((bounds.getMaxY() + withinPx - originY) / cellSize));
+            for (int r = firstRow; r < endRow; r++) {
+                for (int c = firstCol; c < endCol; c++) {
+                    double x = originX + (c + 0.5) * cellSize;
+                    double y = originY + (r + 0.5) * cellSize;
+                    if (line.ptSegDist(x, y) <= withinPx) {
+                        near[r * cols + c] = true;
+                    }
+                }
+            }
+        }
+        return near;
+    }
+
+    /**
+     * The smallest search distance of any cell in an area.
+     *
+     * @param steps the result of distancesFrom.
+     * @param area the area to look in (px).
+     * @return the fewest steps to any cell in the area, -1 if none of them
+     * were reached.
+     */
+    public int minStepsWithin(int[] steps, Rectangle2D area) {
+        int firstCol = Math.max(0, (int) Math.floor((area.getMinX() - originX) / cellSize));
+        int endCol = Math.min(cols, (int) Math.ceil((area.getMaxX() - originX) / cellSize));
+        int firstRow = Math.max(0, (int) Math.floor((area.getMinY() - originY) / cellSize));
+        int endRow = Math.min(rows, (int) Math.ceil((area.getMaxY() - originY) / cellSize));
+        int best = -1;
+        for (int r = firstRow; r < endRow; r++) {
+            for (int c = firstCol; c < endCol; c++) {
+                int s = steps[r * cols + c];
+                if (s != -1 && (best == -1 || s < best)) {
+                    best = s;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Works out which stalls cars can get to when some stalls may be left
+     * empty to open a way through. The search starts from the sources and
+     * costs one for every step onto a cell that is only drivable because a
+     * stall was left empty, so the cheapest way to each aisle opens as few
+     * stalls as possible. The cheapest way to every reachable aisle is then
+     * followed back to a source and the stalls it drives through are left
+     * empty. Every cell is settled once and every way is followed back only
+     * until it meets one already followed, so this is linear in the number of
+     * cells.
+     *
+     * @param sources true for each cell to start from.
+     * @param aisles the manoeuvring space in front of each stall (px).
+     * @param openable true for each stall that may be left empty.
+     * @return true for each stall that can be reached and is still used.
+     */
+    public boolean[] resolveAccess(boolean[] sources, ArrayList<Rectangle2D> aisles,
+            boolean[] openable) {
+        boolean[] widened = drivableCells(openable);
+        int n = cols * rows;
+        int[] cost = new int[n];
+        Arrays.fill(cost, Integer.MAX_VALUE);
+        int[] parent = new int[n];
+        Arrays.fill(parent, -1);
+
+        //cells of the cost being settled and of the next cost up.
+        int[] queue = new int[n];
+        int[] nextQueue = new int[n];
+        int head = 0;
+        int tail = 0;
+        int nextTail = 0;
+        for (int i = 0; i < n; i++) {
+            if (sources[i] && widened[i]) {
+                cost[i] = drivable[i] ? 0 : 1;
+                if (cost[i] == 0) {
+                    queue[tail++] = i;
+                } else {
+                    nextQueue[nextTail++] = i;
+                }
+            }
+        }
+        int level = 0;
+        int[] neighbours = new int[4];
+        while (head < tail || nextTail > 0) {
+            if (head == tail) {
+                //nothing left at this cost, move on to the next.
+                int[] swap = queue;
+                queue = nextQueue;
+                nextQueue = swap;
+                head = 0;
+                tail = nextTail;
+                nextTail = 0;
+                level++;
+            }
+            int cell = queue[head++];
+            if (cost[cell] != level) {
+                //settled more cheaply after being queued.
+                continue;
+            }
+            int c = cell % cols;
+            int count = 0;
+            if (c > 0) {
+                neighbours[count++] = cell - 1;
+            }
+            if (c < cols - 1) {
+                neighbours[count++] = cell + 1;
+            }
+            if (cell >= cols) {
+                neighbours[count++] = cell - cols;
+            }
+            if (cell + cols < n) {
+                neighbours[count++] = cell + cols;
+            }
+            for (int k = 0; k < count; k++) {
+                int next = neighbours[k];
+                if (!widened[next]) {
+                    continue;
+                }
+                int step = drivable[next] ? 0 : 1;
+                if (level + step < cost[next]) {
+                    cost[next] = level + step;
+                    parent[next] = cell;
+                    if (step == 0) {
+                        queue[tail++] = next;
+                    } else {
+                        nextQueue[nextTail++] = next;
+                    }
+                }
+            }
+        }
+
+        //every way into one stretch of drivable cells goes through the
+        //stretch's cheapest cell, picking one the search entered the stretch
+        //by so following it back leaves the stretch.
+        int[] stretch = labelStretches();
+        int[] cheapest = new int[n];
+        Arrays.fill(cheapest, -1);
+        for (int i = 0; i < n; i++) {
+            int label = stretch[i];
+            if (label == -1 || cost[i] == Integer.MAX_VALUE) {
+                continue;
+            }
+            int best = cheapest[label];
+            boolean entry = parent[i] == -1 || stretch[parent[i]] != label;
+            if (best == -1 || cost[i] < cost[best] || (cost[i] == cost[best] && entry
+                    && parent[best] != -1 && stretch[parent[best]] == label)) {
+                cheapest[label] = i;
+            }
+        }
+
+        boolean[] keep = new boolean[aisles.size()];
+        boolean[] opened = new boolean[aisles.size()];
+        boolean[] followed = new boolean[n];
+        for (int i = 0; i < aisles.size(); i++) {
+            int cell = cheapestWithin(cost, stretch, cheapest, aisles.get(i));
+            if (cell == -1) {
+                continue;
+            }
+            keep[i] = true;
+            while (cell != -1 && !followed[cell]) {
+                followed[cell] = true;
+                if (!drivable[cell]) {
+                    markOpened(cell, openable, opened);
+                    cell = parent[cell];
+                } else if (cell != cheapest[stretch[cell]]) {
+                    cell = cheapest[stretch[cell]];
+                } else {
+                    cell = parent[cell];
+                }
+            }
+        }
+        for (int i = 0; i < keep.length; i++) {
+            keep[i] = keep[i] && !opened[i];
+        }
+        return keep;
+    }
+
+    /**
+     * Works out which cells a car can be centred on.
+     *
+     * @param openable true for each stall to treat as empty, null for none.
+     * @return true for each drivable cell.
+     */
+    private boolean[] drivableCells(boolean[] openable) {
+        //a car is centred on a cell when the whole lane-wide square around
+        //it is open. A summed area table makes each square one lookup.
+        int stride = cols + 1;
+        int[] openSums = new int[stride * (rows + 1)];
+        for (int r = 0; r < rows; r++) {
+            int rowSum = 0;
+            for (int c = 0; c < cols; c++) {
+                int stall = owner[r * cols + c];
+                if (free[r * cols + c] && (stall == -1
+                        || (openable != null && openable[stall]))) {
+                    rowSum++;
+                }
+                openSums[(r + 1) * stride + c + 1] = openSums[r * stride + c + 1] + rowSum;
+            }
+        }
+        boolean[] cells = new boolean[cols * rows];
+        for (int r = before; r + after < rows; r++) {
+            for (int c = before; c + after < cols; c++) {
+                int top = r - before;
+                int left = c - before;
+                int bottom = r + after + 1;
+                int right = c + after + 1;
+                int openCount = openSums[bottom * stride + right]
+                        - openSums[top * stride + right]
+                        - openSums[bottom * stride + left]
+                        + openSums[top * stride + left];
+                cells[r * cols + c] = openCount == laneCells * laneCells;
+            }
+        }
+        return cells;
+    }
+
+    /**
+     * Marks the stalls a car centred on a cell would drive over.
+     *
+     * @param cell the cell the car is centred on.
+     * @param openable true for each stall that may be left empty.
+     * @param opened receives true for each stall driven over.
+     */
+    private void markOpened(int cell, boolean[] openable, boolean[] opened) {
+        int row = cell / cols;
+        int col = cell % cols;
+        for (int r = row - before; r <= row + after; r++) {
+            for (int c = col - before; c <= col + after; c++) {
+                int stall = owner[r * cols + c];
+                if (stall != -1 && openable[stall]) {
+                    opened[stall] = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Numbers each stretch of drivable cells joined without leaving any
+     * stalls empty, by the first cell of the stretch.
+     *
+     * @return the stretch of each cell, -1 for cells that aren't drivable.
+     */
+    private int[] labelStretches() {
+        int n = cols * rows;
+        int[] stretch = new int[n];
+        Arrays.fill(stretch, -1);
+        int[] queue = new int[n];
+        for (int first = 0; first < n; first++) {
+            if (!drivable[first] || stretch[first] != -1) {
+                continue;
+            }
+            int head = 0;
+            int tail = 0;
+            stretch[first] = first;
+            queue[tail++] = first;
+            while (head < tail) {
+                int cell = queue[head++];
+                int c = cell % cols;
+                if (c > 0 && drivable[cell - 1] && stretch[cell - 1] == -1) {
+                    stretch[cell - 1] = first;
+                    queue[tail++] = cell - 1;
+                }
+                if (c < cols - 1 && drivable[cell + 1] && stretch[cell + 1] == -1) {
+                    stretch[cell + 1] = first;
+                    queue[tail++] = cell + 1;
+                }
+                if (cell >= cols && drivable[cell - cols] && stretch[cell - cols] == -1) {
+                    stretch[cell - cols] = first;
+                    queue[tail++] = cell - cols;
+                }
+                if (cell + cols < n && drivable[cell + cols] && stretch[cell + cols] == -1) {
+                    stretch[cell + cols] = first;
+                    queue[tail++] = cell + cols;
+                }
+            }
+        }
+        return stretch;
+    }
+
+    /**
+     * The cell to get to an area through. An area touching a reached stretch
+     * of drivable cells is got to through the cheapest such stretch's entry,
+     * so it shares the way in with the rest of the stretch. Otherwise it is
+     * got to through the cheapest cell reached in the area itself.
+     *
+     * @param cost the search cost of each cell, Integer.MAX_VALUE if not
+     * reached.
+     * @param stretch the stretch of each cell, -1 if not drivable.
+     * @param cheapest the cheapest reached cell of each stretch, -1 if none.
+     * @param area the area to look in (px).
+     * @return the cell, -1 if none in the area were reached.
+     */
+    private int cheapestWithin(int[] cost, int[] stretch, int[] cheapest, Rectangle2D area) {
+        int firstCol = Math.max(0, (int) Math.floor((area.getMinX() - originX) / cellSize));
+        int endCol = Math.min(cols, (int) Math.ceil((area.getMaxX() - originX) / cellSize));
+        int firstRow = Math.max(0, (int) Math.floor((area.getMinY() - originY) / cellSize));
+        int endRow = Math.min(rows, (int) Math.ceil((area.getMaxY() - originY) / cellSize));
+        int bestEntry = -1;
+        int best = -1;
+        for (int r = firstRow; r < endRow; r++) {
+            for (int c = firstCol; c < endCol; c++) {
+                int cell = r * cols + c;
+                if (stretch[cell] != -1 && cheapest[stretch[cell]] != -1) {
+                    int entry = cheapest[stretch[cell]];
+                    if (bestEntry == -1 || cost[entry] < cost[bestEntry]) {
+                        bestEntry = entry;
+                    }
+                } else if (cost[cell] != Integer.MAX_VALUE
+                        && (best == -1 || cost[cell] < cost[best])) {
+                    best = cell;
+                }
+            }
+        }
+        return bestEntry != -1 ? bestEntry : best;
+    }
+}
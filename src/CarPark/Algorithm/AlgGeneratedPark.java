@@ -18,6 +18,10 @@ public class AlgGeneratedPark {
      * Angle rotation is counter clockwise and in radians
      */
     private double parkAngle;
+    /*
+     * Which park shape (Park.DEG0, DEG60 or DEG90) this park is drawn with
+     */
+    private int parkDirection;
 
     /**
      * Constructor to initialise the instance variables. The setting of the
@@ -27,10 +31,14 @@ public class AlgGeneratedPark {
      * @param parkPosition Location the algorithm wants to place a park (Px).
      * @param parkAngle The amount of counter clockwise rotation the algorithm
      * wants on a park (rads).
+     * @param parkDirection The park shape the algorithm chose for this park
+     * (Park.DEG0, Park.DEG60 or Park.DEG90).
      */
-    public AlgGeneratedPark(Point2D.Double parkPosition, double parkAngle) {
+    public AlgGeneratedPark(Point2D.Double parkPosition, double parkAngle,
+            int parkDirection) {
         this.parkPosition = parkPosition;
         this.parkAngle = parkAngle;
+        this.parkDirection = parkDirection;
     }
 
     /**
@@ -51,4 +59,14 @@ public class AlgGeneratedPark {
     public double getParkAngle() {
         return parkAngle;
     }
+
+    /**
+     * Getter method to get the park shape chosen by the algorithm. Layouts
+     * may mix directions from row to row so this is stored per park.
+     *
+     * @return Park.DEG0, Park.DEG60 or Park.DEG90.
+     */
+    public int getParkDirection() {
+        return parkDirection;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,145 @@
+package CarPark.Algorithm;
+
+import CarPark.IO.CarPark;
+import CarPark.UI.BoarderLine;
+import CarPark.UI.Park;
+import java.awt.Polygon;
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+
+/**
+ * Places parks the same way as ParkingAlg, rows from the top and parks from
+ * the left, but tests placements against a SiteRaster instead of the boarder
+ * geometry. The cell rows a row of parks covers are ANDed together once and
+ * the row is then filled by jumping between runs of free cells wide enough
+ * for a park, rather than trying every pixel.
+ *
+ * Rows start on grid dots so the result can differ from ParkingAlg by up to
+ * one grid dot (0.2 m) per row.
+ *
+ * @author Aydin + Sam
+ */
+public class BitsetParkingAlg extends ParkingAlg {
+
+    /**
+     * Constructor: Sets up the BitsetParkingAlg object with required data.
+     *
+     * @param carParkData the data used to setup carpark spacing and minimum
+     * distances.
+     * @param carParkBoarder the BoarderLines defining the edge of the carpark.
+     * @param parkLayout the object defining the shape of each car park.
+     */
+    public BitsetParkingAlg(CarPark carParkData,
+            ArrayList<BoarderLine> carParkBoarder,
+            Park parkLayout) {
+        super(carParkData, carParkBoarder, parkLayout);
+    }
+
+    /**
+     * Constructor: Sets up the BitsetParkingAlg object with a snapshot of the
+     * boarder.
+     *
+     * @param carParkData the data used to setup carpark spacing and minimum
+     * distances.
+     * @param boundary a snapshot of the edge of the carpark.
+     * @param parkLayout the object defining the shape of each car park.
+     */
+    public BitsetParkingAlg(CarPark carParkData,
+            BoundarySnapshot boundary,
+            Park parkLayout) {
+        super(carParkData, boundary, parkLayout);
+    }
+
+    /**
+     * runs the algorithm and returns an ArrayList of AlgGeneratedParks which
+     * hold the location (in px) and rotation of each park.
+     *
+     * @return the ArrayList holding the location and rotation of each park.
+     */
+    @Override
+    public ArrayList<AlgGeneratedPark> runAlg() {
+        ArrayList<AlgGeneratedPark> parkGenLocs = new ArrayList<AlgGeneratedPark>();
+
+        Polygon carParkPolygon = generateParkBoarderPolygon();
+        SiteRaster raster = new SiteRaster(carParkPolygon,
+                getClearanceField(carParkPolygon), getHoleIndex(), gridDot);
+
+        int direction = parkLayout.getDirection();
+        double parkWidth = determineParkDimensions(0, 0, direction).getWidth();
+        int parkHeight = rowHeight(direction);
+        int parkPitch = rowPitch(direction);
+        int cellSize = gridDot;
+
+        long[] band = new long[raster.getWordsPerRow()];
+        int originX = raster.getOriginX();
+        int originY = raster.getOriginY();
+        int bottom = originY + raster.getRows() * cellSize;
+
+        int y = originY;
+        while (y + parkHeight <= bottom) {
+            checkCancelled();
+            //which rows of cells does a row of parks starting here cover?
+            int firstRow = (y - originY) / cellSize;
+            int lastRow = (y + parkHeight - originY + cellSize - 1) / cellSize - 1;
+            raster.andRows(firstRow, lastRow, band);
+
+            ArrayList<AlgGeneratedPark> row = fillRow(band, raster, y,
+                    parkWidth, parkPitch, direction);
+            if (!row.isEmpty()) {
+                parkGenLocs.addAll(row);
+                //car parks were placed move up by a height
+                y += parkHeight;
+            } else {
+                //car parks were not placed move down to the next grid dot
+                y = originY + (firstRow + 1) * cellSize;
+            }
+        }
+        return removeUnreachable(parkGenLocs, carParkPolygon);
+    }
+
+    /**
+     * Places parks along a row from left to right. After a park is placed the
+     * next park is tried one pitch over; if it doesn't fit the search jumps to
+     * the next run of free cells wide enough for a park.
+     *
+     * @param band the cells free across the whole height of the row.
+     * @param raster the raster the band came from.
+     * @param y the top of the row (px).
+     * @param parkWidth the width of a park's bounding box (px).
+     * @param parkPitch the distance between neighbouring parks (px).
+     * @param direction Park.DEG0, Park.DEG60 or Park.DEG90
+     *
+     * @return the parks placed in the row, empty if none fit.
+     */
+    static ArrayList<AlgGeneratedPark> fillRow(long[] band, SiteRaster raster,
+            int y, double parkWidth, int parkPitch, int direction) {
+        ArrayList<AlgGeneratedPark> row = new ArrayList<AlgGeneratedPark>();
+        int cellSize = raster.getCellSize();
+        int originX = raster.getOriginX();
+        int widthCells = (int) Math.ceil(parkWidth / cellSize);
+
+        int start = SiteRaster.nextRun(band, 0, widthCells);
+        if (start == -1) {
+            return row;
+        }
+        int x = originX + start * cellSize;
+        while (true) {
+            int firstCol = (x - originX) / cellSize;
+            int lastCol = (int) Math.ceil((x + parkWidth - originX) / cellSize) - 1;
+            if (lastCol >= raster.getCols()) {
+                break;
+            }
+            if (SiteRaster.nextClearBit(band, firstCol) > lastCol) {
+                row.add(new AlgGeneratedPark(new Point2D.Double(x, y), 0.0, direction));
+                x += parkPitch;
+            } else {
+                start = SiteRaster.nextRun(band, firstCol + 1, widthCells);
+                if (start == -1) {
+                    break;
+                }
+                x = originX + start * cellSize;
+            }
+        }
+        return row;
+    }
+}
@@ -0,0 +1,162 @@
+package CarPark.Algorithm;
+
+import java.awt.geom.Line2D;
+import java.awt.geom.Point2D;
+
+/**
+ * One line of a car park boarder as a plain value: its two end points and
+ * whether it is a boarder, entrance, exit or both. Unlike a BoarderLine it
+ * can't be changed, so it can be read from any thread while the user carries
+ * on editing the BoarderLine it was copied from.
+ *
+ * @author Aydin + Sam
+ */
+public final class BoundarySegment {
+
+    private final double x1;
+    private final double y1;
+    private final double x2;
+    private final double y2;
+    private final int state;
+
+    /**
+     * Constructor: Sets up a segment.
+     *
+     * @param x1 the x location of the start (px).
+     * @param y1 the y location of the start (px).
+     * @param x2 the x location of the finish (px).
+     * @param y2 the y location of the finish (px).
+     * @param state one of the BoarderLine states.
+     */
+    public BoundarySegment(double x1, double y1, double x2, double y2, int state) {
+        this.x1 = x1;
+        this.y1 = y1;
+        this.x2 = x2;
+        this.y2 = y2;
+        this.state = state;
+    }
+
+    /**
+     * Gets the x location of the start.
+     *
+     * @return in pixels.
+     */
+    public double getX1() {
+        return x1;
+    }
+
+    /**
+     * Gets the y location of the start.
+     *
+     * @return in pixels.
+     */
+    public double getY1() {
+        return y1;
+    }
+
+    /**
+     * Gets the x location of the finish.
+     *
+     * @return in pixels.
+     */
+    public double getX2() {
+        return x2;
+    }
+
+    /**
+     * Gets the y location of the finish.
+     *
+     * @return in pixels.
+     */
+    public double getY2() {
+        return y2;
+    }
+
+    /**
+     * Gets whether the segment is a boarder, entrance, exit or both.
+     *
+     * @return one of the BoarderLine states.
+     */
+    public int getState() {
+        return state;
+    }
+
+    /**
+     * Gets the start of the segment.
+     *
+     * @return a new point.
+     */
+    public Point2D getP1() {
+        return new Point2D.Double(x1, y1);
+    }
+
+    /**
+     * Gets the finish of the segment.
+     *
+     * @return a new point.
+     */
+    public Point2D getP2() {
+        return new Point2D.Double(x2, y2);
+    }
+
+    /**
+     * Gets the segment as a line.
+     *
+     * @return a new line.
+     */
+    public Line2D getLine() {
+        return new Line2D.Double(x1, y1, x2, y2);
+    }
+
+    /**
+     * Gets the length of the segment.
+     *
+     * @return in pixels.
+     */
+    public double getLength() {
+        return Math.hypot(x2 - x1, y2 - y1);
+    }
+
+    /**
+     * Two segments are equal if they have the same end points and state.
+     *
+     * @param other the object to compare with.
+     * @return true if equal.
+     */
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof BoundarySegment)) {
+            return false;
+        }
+        BoundarySegment s = (BoundarySegment) other;
+        return Double.compare(x1, s.x1) == 0 && Double.compare(y1, s.y1) == 0
+                && Double.compare(x2, s.x2) == 0 && Double.compare(y2, s.y2) == 0
+                && state == s.state;
+    }
+
+    /**
+     * Works out a hash code matching equals.
+     *
+     * @return the hash code.
+     */
+    @Override
+    public int hashCode() {
+        long bits = Double.doubleToLongBits(x1);
+        bits = bits * 31 + Double.doubleToLongBits(y1);
+        bits = bits * 31 + Double.doubleToLongBits(x2);
+        bits = bits * 31 + Double.doubleToLongBits(y2);
+        return (int) (bits ^ (bits >>> 32)) * 31 + state;
+    }
+
+    /**
+     * returns a string representation of the segment in the same form as a
+     * BoarderLine.
+     *
+     * @return the string representing the segment.
+     */
+    @Override
+    public String toString() {
+        return "State: " + state + " Line: (" + x1 + ", " + y1 + ") to ("
+                + x2 + ", " + y2 + ")";
+    }
+}
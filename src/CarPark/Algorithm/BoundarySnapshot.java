@@ -0,0 +1,130 @@
+package CarPark.Algorithm;
+
+import CarPark.UI.BoarderLine;
+import java.awt.Polygon;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * A copy of a car park boarder taken at one moment, as BoundarySegments.
+ * The parking algorithms only ever read a snapshot, so a layout can run on a
+ * worker thread while the user keeps moving lines and changing their states
+ * on screen; the snapshot must just be taken on the thread doing the editing.
+ *
+ * @author Aydin + Sam
+ */
+public final class BoundarySnapshot {
+
+    private final BoundarySegment[] segments;
+
+    /**
+     * Constructor: Copies the boarder as it is now.
+     *
+     * @param carParkBoarder the BoarderLines defining the edge of the carpark.
+     */
+    public BoundarySnapshot(ArrayList<BoarderLine> carParkBoarder) {
+        segments = new BoundarySegment[carParkBoarder.size()];
+        for (int i = 0; i < segments.length; i++) {
+            BoarderLine line = carParkBoarder.get(i);
+            segments[i] = new BoundarySegment(line.getP1().getX(), line.getP1().getY(),
+                    line.getP2().getX(), line.getP2().getY(), line.getState());
+        }
+    }
+
+    /**
+     * Constructor: Sets up a snapshot from segments.
+     *
+     * @param segments the segments in boarder order.
+     */
+    public BoundarySnapshot(BoundarySegment[] segments) {
+        this.segments = segments.clone();
+    }
+
+    /**
+     * Gets how many segments make up the boarder.
+     *
+     * @return the number of segments.
+     */
+    public int size() {
+        return segments.length;
+    }
+
+    /**
+     * Gets one segment of the boarder.
+     *
+     * @param i the segment number.
+     * @return the segment.
+     */
+    public BoundarySegment get(int i) {
+        return segments[i];
+    }
+
+    /**
+     * Whether each segment starts where the last finished and the last
+     * finishes where the first started.
+     *
+     * @return true if the boarder is closed.
+     */
+    public boolean isClosed() {
+        if (segments.length < 3) {
+            return false;
+        }
+        for (int i = 0; i < segments.length; i++) {
+            BoundarySegment next = segments[(i + 1) % segments.length];
+            if (segments[i].getX2() != next.getX1() || segments[i].getY2() != next.getY1()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Whether any segment has a state, such as an entrance.
+     *
+     * @param state one of the BoarderLine states.
+     * @return true if a segment has the state.
+     */
+    public boolean hasState(int state) {
+        for (int i = 0; i < segments.length; i++) {
+            if (segments[i].getState() == state) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Makes a polygon through the start of each segment.
+     *
+     * @return a new polygon.
+     */
+    public Polygon toPolygon() {
+        Polygon polygon = new Polygon();
+        for (int i = 0; i < segments.length; i++) {
+            polygon.addPoint((int) segments[i].getX1(), (int) segments[i].getY1());
+        }
+        return polygon;
+    }
+
+    /**
+     * Two snapshots are equal if they have equal segments in the same order.
+     *
+     * @param other the object to compare with.
+     * @return true if equal.
+     */
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof BoundarySnapshot
+                && Arrays.equals(segments, ((BoundarySnapshot) other).segments);
+    }
+
+    /**
+     * Works out a hash code matching equals.
+     *
+     * @return the hash code.
+     */
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(segments);
+    }
+}
@@ -0,0 +1,223 @@
+package CarPark.Algorithm;
+
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+
+/**
+ * A grid of square buckets over a set of boxes, each bucket holding the
+ * numbers of the boxes that pass through it, so a search only has to look at
+ * the few boxes near an area rather than every box. A point is a box with no
+ * size.
+ *
+ * The grid starts at the top left of the boxes and is just big enough to
+ * cover them all. Nothing is changed once it is built, so one grid can be
+ * read from any number of threads at once.
+ *
+ * @author Aydin + Sam
+ */
+public final class BucketGrid {
+
+    //size of a bucket (px).
+    private final double bucketSize;
+    //min x, min y, max x, max y of each box in turn.
+    private final double[] boxes;
+    private final double originX;
+    private final double originY;
+    private final int cols;
+    private final int rows;
+    //box numbers in each bucket, row after row.
+    private final int[][] buckets;
+
+    /**
+     * Constructor: Sorts the boxes into buckets.
+     *
+     * @param boxes min x, min y, max x, max y of each box in turn (px), kept
+     * by the grid and not to be changed.
+     * @param count how many boxes there are.
+     * @param bucketSize the width and height of a bucket (px).
+     */
+    public BucketGrid(double[] boxes, int count, double bucketSize) {
+        this.boxes = boxes;
+        this.bucketSize = bucketSize;
+        double minX = 0;
+        double minY = 0;
+        double maxX = 0;
+        double maxY = 0;
+        for (int i = 0; i < count; i++) {
+            if (i == 0 || boxes[4 * i] < minX) {
+                minX = boxes[4 * i];
+            }
+            if (i == 0 || boxes[4 * i + 1] < minY) {
+                minY = boxes[4 * i + 1];
+            }
+            if (i == 0 || boxes[4 * i + 2] > maxX) {
+                maxX = boxes[4 * i + 2];
+            }
+            if (i == 0 || boxes[4 * i + 3] > maxY) {
+                maxY = boxes[4 * i + 3];
+            }
+        }
+        originX = minX;
+        originY = minY;
+        cols = (int) ((maxX - minX) / bucketSize) + 1;
+        rows = (int) ((maxY - minY) / bucketSize) + 1;
+
+        //count then fill so each bucket is a tight int array.
+        int[] counts = new int[cols * rows];
+        int[][] filled = null;
+        for (int pass = 0; pass < 2; pass++) {
+            if (pass == 1) {
+                filled = new int[counts.length][];
+                for (int b = 0; b < counts.length; b++) {
+                    filled[b] = new int[counts[b]];
+                    counts[b] = 0;
+                }
+            }
+            for (int i = 0; i < count; i++) {
+                int lastCol = col(boxes[4 * i + 2]);
+                int lastRow = row(boxes[4 * i + 3]);
+                for (int r = row(boxes[4 * i + 1]); r <= lastRow; r++) {
+                    for (int c = col(boxes[4 * i]); c <= lastCol; c++) {
+                        int b = r * cols + c;
+                        if (pass == 1) {
+                            filled[b][counts[b]] = i;
+                        }
+                        counts[b]++;
+                    }
+                }
+            }
+        }
+        buckets = filled;
+    }
+
+    /**
+     * Finds the boxes that touch an area, including its edges. A box in more
+     * than one bucket is only taken from the first of its buckets the area
+     * covers.
+     *
+     * @param area the area to look in (px).
+     * @return the box numbers, each once.
+     */
+    public int[] query(Rectangle2D area) {
+        int firstCol = Math.max(0, col(area.getMinX()));
+        int lastCol = Math.min(cols - 1, col(area.getMaxX()));
+        int firstRow = Math.max(0, row(area.getMinY()));
+        int lastRow = Math.min(rows - 1, row(area.getMaxY()));
+        int[] found = new int[64];
+        int count = 0;
+        for (int r = firstRow; r <= lastRow; r++) {
+            for (int c = firstCol; c <= lastCol; c++) {
+                int[] bucket = buckets[r * cols + c];
+                for (int k = 0; k < bucket.length; k++) {
+                    int i = bucket[k];
+                    int b = 4 * i;
+                    if (!isFirstBucket(i, c, r, firstCol, firstRow)) {
+                        //already taken from an earlier bucket.
+                        continue;
+                    }
+                    if (boxes[b] <= area.getMaxX() && boxes[b + 2] >= area.getMinX()
+                            && boxes[b + 1] <= area.getMaxY() && boxes[b + 3] >= area.getMinY()) {
+                        if (count == found.length) {
+                            found = Arrays.copyOf(found, 2 * count);
+                        }
+                        found[count++] = i;
+                    }
+                }
+            }
+        }
+        return Arrays.copyOf(found, count);
+    }
+
+    /**
+     * Whether a bucket is the first one a box shares with a search starting
+     * at a column and row, so a box spanning several buckets is only looked
+     * at once.
+     *
+     * @param box the box number.
+     * @param col the column of the bucket.
+     * @param row the row of the bucket.
+     * @param firstCol the first column searched.
+     * @param firstRow the first row searched.
+     * @return true if this is the first bucket the box is met in.
+     */
+    public boolean isFirstBucket(int box, int col, int row, int firstCol, int firstRow) {
+        return col == Math.max(firstCol, col(boxes[4 * box]))
+                && row == Math.max(firstRow, row(boxes[4 * box + 1]));
+    }
+
+    /**
+     * Gets the box numbers in a bucket.
+     *
+     * @param col the column of the bucket.
+     * @param row the row of the bucket.
+     * @return the box numbers, shared and not to be changed.
+     */
+    public int[] getBucket(int col, int row) {
+        return buckets[row * cols + col];
+    }
+
+    /**
+     * Which bucket column an x location falls in.
+     *
+     * @param x the x location (px).
+     * @return the column, which may be outside the grid.
+     */
+    public int col(double x) {
+        return (int) Math.floor((x - originX) / bucketSize);
+    }
+
+    /**
+     * Which bucket row a y location falls in.
+     *
+     * @param y the y location (px).
+     * @return the row, which may be outside the grid.
+     */
+    public int row(double y) {
+        return (int) Math.floor((y - originY) / bucketSize);
+    }
+
+    /**
+     * How many columns of buckets the grid has.
+     *
+     * @return the number of columns, at least 1.
+     */
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * How many rows of buckets the grid has.
+     *
+     * @return the number of rows, at least 1.
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * How big a bucket is.
+     *
+     * @return the width and height of a bucket (px).
+     */
+    public double getBucketSize() {
+        return bucketSize;
+    }
+
+    /**
+     * Where the grid starts across.
+     *
+     * @return the x location of the left of the first column (px).
+     */
+    public double getOriginX() {
+        return originX;
+    }
+
+    /**
+     * Where the grid starts down.
+     *
+     * @return the y location of the top of the first row (px).
+     */
+    public double getOriginY() {
+        return originY;
+    }
+}
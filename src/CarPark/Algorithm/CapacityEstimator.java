@@ -0,0 +1,172 @@
+package CarPark.Algorithm;
+
+import CarPark.IO.CarPark;
+import CarPark.UI.BoarderLine;
+import CarPark.UI.Park;
+
+/**
+ * Gives a quick estimate of how many parks a car park boarder will hold while
+ * it is still being drawn. The area and edge lengths of the boarder are kept
+ * as running totals so adding or removing a line is constant time, and the
+ * boarder is treated as if it were already closed back to its first point.
+ *
+ * The estimate is the usable area divided by the area each park takes up
+ * (its share of the row and manoeuvring space). The usable area is the
+ * boarder area less a strip along each edge: half a row height along
+ * horizontal runs and half a park pitch along vertical runs, which is
+ * roughly what the placement algorithm can't use next to a wall.
+ *
+ * @author Aydin + Sam
+ */
+public class CapacityEstimator {
+
+    private CarPark carParkData;
+    //how many pixels make up a metre.
+    private double pxPerMetre;
+    //corner points of the boarder drawn so far (px).
+    private double[] xPoints = new double[16];
+    private double[] yPoints = new double[16];
+    private int numPoints = 0;
+    //running totals over the lines drawn so far, not including the line
+    //that would close the boarder.
+    private double twiceArea = 0;
+    private double horizontalRun = 0;
+    private double verticalRun = 0;
+
+    /**
+     * Constructor: Sets up an estimator with no lines.
+     *
+     * @param carParkData the data used to setup carpark spacing.
+     * @param pxPerMetre how many pixels make up a metre.
+     */
+    public CapacityEstimator(CarPark carParkData, double pxPerMetre) {
+        this.carParkData = carParkData;
+        this.pxPerMetre = pxPerMetre;
+    }
+
+    /**
+     * Adds the next line of the boarder. Lines are expected in the order they
+     * are drawn, each starting where the last one finished.
+     *
+     * @param line the BoarderLine just added to the boarder.
+     */
+    public void addLine(BoarderLine line) {
+        if (numPoints == 0) {
+            addPoint(line.getP1().getX(), line.getP1().getY());
+        }
+        addPoint(line.getP2().getX(), line.getP2().getY());
+    }
+
+    /**
+     * Removes the last line added to the boarder.
+     */
+    public void removeLastLine() {
+        if (numPoints > 2) {
+            numPoints--;
+            addEdgeTotals(numPoints - 1, numPoints, -1);
+        } else {
+            clear();
+        }
+    }
+
+    /**
+     * Removes all lines from the estimator.
+     */
+    public void clear() {
+        numPoints = 0;
+        twiceArea = 0;
+        horizontalRun = 0;
+        verticalRun = 0;
+    }
+
+    /**
+     * Estimated number of parks that fit in the boarder drawn so far.
+     *
+     * @param direction Park.DEG0, Park.DEG60 or Park.DEG90
+     *
+     * @return the estimated number of parks, 0 until the boarder encloses an
+     * area.
+     */
+    public int estimate(int direction) {
+        if (numPoints < 3) {
+            return 0;
+        }
+        double pitch;
+        double rowHeight;
+        switch (direction) {
+            case Park.DEG60:
+                //neighbouring 60deg parks overlap by their sheer so only the
+                //width is needed along the row.
+                pitch = carParkData.getAngle60Width();
+                rowHeight = carParkData.getAngle60Depth()
+                        + carParkData.getAngle60SpaceMin();
+                break;
+            case Park.DEG90:
+                pitch = carParkData.getAngle90Width();
+                rowHeight = carParkData.getAngle90Depth()
+                        + carParkData.getAngle90SpaceMin();
+                break;
+            default: //case Park.DEG0:
+                pitch = carParkData.getAngle0Length();
+                rowHeight = carParkData.getAngle0Width()
+                        + carParkData.getAngle0SpaceMin();
+                break;
+        }
+
+        //include the line that would close the boarder.
+        int last = numPoints - 1;
+        double closingX = xPoints[0] - xPoints[last];
+        double closingY = yPoints[0] - yPoints[last];
+        double area = Math.abs(twiceArea
+                + (xPoints[last] * yPoints[0] - xPoints[0] * yPoints[last])) / 2;
+        double horizontal = horizontalRun + Math.abs(closingX);
+        double vertical = verticalRun + Math.abs(closingY);
+
+        //converting to metres from pixels
+        area = area / (pxPerMetre * pxPerMetre);
+        horizontal = horizontal / pxPerMetre;
+        vertical = vertical / pxPerMetre;
+
+        double usableArea = area - horizontal * rowHeight / 2 - vertical * pitch / 2;
+        if (usableArea <= 0) {
+            return 0;
+        }
+        return (int) (usableArea / (pitch * rowHeight));
+    }
+
+    /**
+     * Adds a corner point and the edge running to it from the previous point.
+     *
+     * @param x the x location of the point (px).
+     * @param y the y location of the point (px).
+     */
+    private void addPoint(double x, double y) {
+        if (numPoints == xPoints.length) {
+            double[] grownX = new double[numPoints * 2];
+            double[] grownY = new double[numPoints * 2];
+            System.arraycopy(xPoints, 0, grownX, 0, numPoints);
+            System.arraycopy(yPoints, 0, grownY, 0, numPoints);
+            xPoints = grownX;
+            yPoints = grownY;
+        }
+        xPoints[numPoints] = x;
+        yPoints[numPoints] = y;
+        numPoints++;
+        if (numPoints > 1) {
+            addEdgeTotals(numPoints - 2, numPoints - 1, 1);
+        }
+    }
+
+    /**
+     * Adds or takes away an edge from the running totals.
+     *
+     * @param from index of the point the edge starts at.
+     * @param to index of the point the edge finishes at.
+     * @param sign 1 to add the edge, -1 to take it away.
+     */
+    private void addEdgeTotals(int from, int to, int sign) {
+        twiceArea += sign * (xPoints[from] * yPoints[to] - xPoints[to] * yPoints[from]);
+        horizontalRun += sign * Math.abs(xPoints[to] - xPoints[from]);
+        verticalRun += sign * Math.abs(yPoints[to] - yPoints[from]);
+    }
+}
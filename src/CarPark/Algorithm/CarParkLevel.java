@@ -0,0 +1,110 @@
+package CarPark.Algorithm;
+
+import CarPark.UI.BoarderLine;
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * One level of a multi-storey car park. A level uses the building's base
+ * boarder unless it is given its own, and adds its own ramp and core cut-outs
+ * as holes. Ramps between levels are shown by changing the state of boarder
+ * lines to entrances and exits on this level only.
+ *
+ * @author Aydin + Sam
+ */
+public class CarParkLevel {
+
+    private String name;
+    //null when the level uses the building's base boarder.
+    private ArrayList<BoarderLine> boarderOverride = null;
+    //boarder line number to the state it has on this level.
+    private HashMap<Integer, Integer> edgeStates = new HashMap<Integer, Integer>();
+    private ArrayList<SiteHole> holes = new ArrayList<SiteHole>();
+
+    /**
+     * Constructor: Sets up a level using the base boarder with no ramps or
+     * cut-outs.
+     *
+     * @param name the name of the level, e.g. "L1".
+     */
+    public CarParkLevel(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Gives the level its own boarder instead of the building's base boarder.
+     *
+     * @param boarder the BoarderLines defining the edge of this level.
+     */
+    public void setBoarderOverride(ArrayList<BoarderLine> boarder) {
+        boarderOverride = new ArrayList<BoarderLine>(boarder);
+    }
+
+    /**
+     * Sets the state of one boarder line on this level, e.g. to mark where a
+     * ramp arrives (BoarderLine.ENT) or leaves (BoarderLine.EXIT).
+     *
+     * @param line the number of the line in the boarder.
+     * @param state the state of the line on this level.
+     */
+    public void setEdgeState(int line, int state) {
+        edgeStates.put(line, state);
+    }
+
+    /**
+     * Adds a ramp, core or other cut-out on this level.
+     *
+     * @param hole the cut-out and its clearance.
+     */
+    public void addHole(SiteHole hole) {
+        holes.add(hole);
+    }
+
+    /**
+     * Gets the name of the level.
+     *
+     * @return the name of the level.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the holes on this level.
+     *
+     * @return the ramp, core and other cut-outs.
+     */
+    public ArrayList<SiteHole> getHoles() {
+        return new ArrayList<SiteHole>(holes);
+    }
+
+    /**
+     * Builds the boarder of this level: the override or base boarder with
+     * this level's line states applied. New BoarderLines are made so levels
+     * never share line states.
+     *
+     * @param baseBoarder the building's base boarder.
+     * @return the BoarderLines for this level.
+     */
+    public ArrayList<BoarderLine> buildBoarder(ArrayList<BoarderLine> baseBoarder) {
+        ArrayList<BoarderLine> source = boarderOverride != null ? boarderOverride : baseBoarder;
+        ArrayList<BoarderLine> boarder = new ArrayList<BoarderLine>(source.size());
+        for (int i = 0; i < source.size(); i++) {
+            BoarderLine line = new BoarderLine(
+                    new Point2D.Double(source.get(i).getP1().getX(),
+                    source.get(i).getP1().getY()),
+                    new Point2D.Double(source.get(i).getP2().getX(),
+                    source.get(i).getP2().getY()), source.get(i).getGridDot());
+            line.setState(source.get(i).getState());
+            boarder.add(line);
+        }
+        for (Map.Entry<Integer, Integer> edge : edgeStates.entrySet()) {
+            if (edge.getKey() >= 0 && edge.getKey() < boarder.size()) {
+                boarder.get(edge.getKey()).setState(edge.getValue());
+            }
+        }
+        return boarder;
+    }
+}
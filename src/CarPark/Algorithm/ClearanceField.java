@@ -0,0 +1,264 @@
+package CarPark.Algorithm;
+
+import CarPark.UI.BoarderLine;
+import java.awt.Rectangle;
+import java.awt.geom.Line2D;
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+
+/**
+ * Works out, once per car park boarder, how far every 0.2 m grid cell is from
+ * the nearest entrance or exit. The distances are found with an exact
+ * euclidean distance transform that takes time linear in the number of cells.
+ *
+ * Cells closer than the entrance/exit clearance are counted into a summed
+ * area table so asking whether a park breaks the clearance rule is a single
+ * lookup, however big the park is. The field only depends on the boarder and
+ * the clearance, so it can be kept and reused when the park direction changes.
+ *
+ * @author Aydin + Sam
+ */
+public class ClearanceField {
+
+    //stands in for infinity in the squared distance transform.
+    private static final double FAR = 1e15;
+    //the field uses the same cells as SiteRaster.
+    private int cellSize;
+    private int originX;
+    private int originY;
+    private int cols;
+    private int rows;
+    private double clearanceMinPx;
+    //squared distance in cells from each cell to the nearest entrance/exit.
+    private double[] distanceSq;
+    //number of blocked cells above and to the left of each cell corner.
+    private int[] blockedSums;
+    //the boarder this field was worked out for.
+    private BoundarySnapshot boundary;
+
+    /**
+     * Constructor: Works out the distance field for a car park boarder.
+     *
+     * @param bounds the box bounding the car park boarder (px).
+     * @param boundary the edge of the carpark.
+     * @param clearanceMinPx the minimum clearance from entrances and exits (px).
+     * @param cellSize the size of a grid dot (px).
+     */
+    public ClearanceField(Rectangle bounds, BoundarySnapshot boundary,
+            double clearanceMinPx, int cellSize) {
+        this.cellSize = cellSize;
+        originX = bounds.x;
+        originY = bounds.y;
+        cols = Math.max(1, (bounds.width + cellSize - 1) / cellSize);
+        rows = Math.max(1, (bounds.height + cellSize - 1) / cellSize);
+        this.clearanceMinPx = clearanceMinPx;
+        this.boundary = boundary;
+
+        distanceSq = new double[cols * rows];
+        Arrays.fill(distanceSq, FAR);
+        for (int i = 0; i < boundary.size(); i++) {
+            if (boundary.get(i).getState() != BoarderLine.BOARDER) {
+                markSource(boundary.get(i).getLine());
+            }
+        }
+        transform();
+        sumBlocked();
+    }
+
+    /**
+     * Checks whether this field was worked out for the same boarder lines,
+     * entrance/exit states, clearance and grid, and so can be reused.
+     *
+     * @param boundary the edge of the carpark.
+     * @param clearanceMinPx the minimum clearance from entrances and exits (px).
+     * @param cellSize the size of a grid dot (px).
+     * @return true if the field is still correct for this boarder.
+     */
+    public boolean matches(BoundarySnapshot boundary, double clearanceMinPx,
+            int cellSize) {
+        return this.clearanceMinPx == clearanceMinPx
+                && this.cellSize == cellSize
+                && this.boundary.equals(boundary);
+    }
+
+    /**
+     * Whether any part of a park comes within the clearance of an entrance or
+     * exit.
+     *
+     * @param parkBounds the bounding box of the park (px).
+     * @return true if the park breaks the clearance rule.
+     */
+    public boolean violatesClearance(Rectangle2D parkBounds) {
+        int firstCol = Math.max(0, (int) Math.floor((parkBounds.getMinX() - originX) / cellSize));
+        int firstRow = Math.max(0, (int) Math.floor((parkBounds.getMinY() - originY) / cellSize));
+        int endCol = Math.min(cols, (int) Math.ceil((parkBounds.getMaxX() - originX) / cellSize));
+        int endRow = Math.min(rows, (int) Math.ceil((parkBounds.getMaxY() - originY) / cellSize));
+        if (firstCol >= endCol || firstRow >= endRow) {
+            return false;
+        }
+        int stride = cols + 1;
+        int blocked = blockedSums[endRow * stride + endCol]
+                - blockedSums[firstRow * stride + endCol]
+                - blockedSums[endRow * stride + firstCol]
+                + blockedSums[firstRow * stride + firstCol];
+        return blocked > 0;
+    }
+
+    /**
+     * Whether a single cell is within the clearance of an entrance or exit.
+     *
+     * @param c the column of the cell.
+     * @param r the row of the cell.
+     * @return true if a park may not cover the cell.
+     */
+    public boolean isBlocked(int c, int r) {
+        if (c < 0 || r < 0 || c >= cols || r >= rows) {
+            return false;
+        }
+        return isBlockedDistance(distanceSq[r * cols + c]);
+    }
+
+    /**
+     * How big a cell is.
+     *
+     * @return the size of a grid dot (px).
+     */
+    public int getCellSize() {
+        return cellSize;
+    }
+
+    /**
+     * Distance from a cell to the nearest entrance or exit.
+     *
+     * @param c the column of the cell.
+     * @param r the row of the cell.
+     * @return the distance between cell centres (px).
+     */
+    public double getDistance(int c, int r) {
+        return Math.sqrt(distanceSq[r * cols + c]) * cellSize;
+    }
+
+    /**
+     * A cell is blocked when its centre is within the clearance plus the
+     * width of a cell of the nearest entrance/exit cell, which allows for the
+     * line lying anywhere in that cell.
+     *
+     * @param cellsSq the squared distance in cells.
+     * @return true if the cell is blocked.
+     */
+    private boolean isBlockedDistance(double cellsSq) {
+        double reach = clearanceMinPx / cellSize + 1;
+        return cellsSq < reach * reach;
+    }
+
+    /**
+     * Marks every cell an entrance or exit line passes through as distance 0
+     * by stepping along the line half a cell at a time.
+     *
+     * @param line the entrance or exit line.
+     */
+    private void markSource(Line2D line) {
+        double length = line.getP1().distance(line.getP2());
+        int steps = (int) Math.ceil(length / (cellSize / 2.0)) + 1;
+        for (int s = 0; s <= steps; s++) {
+            double t = (double) s / steps;
+            double x = line.getX1() + t * (line.getX2() - line.getX1());
+            double y = line.getY1() + t * (line.getY2() - line.getY1());
+            int c = Math.min(cols - 1, Math.max(0, (int) Math.floor((x - originX) / cellSize)));
+            int r = Math.min(rows - 1, Math.max(0, (int) Math.floor((y - originY) / cellSize)));
+            distanceSq[r * cols + c] = 0;
+        }
+    }
+
+    /**
+     * Turns the 0/FAR source cells into squared distances, columns first and
+     * then rows, using the lower envelope of parabolas (Felzenszwalb and
+     * Huttenlocher). Each pass is linear in the length of the line of cells.
+     */
+    private void transform() {
+        int longest = Math.max(cols, rows);
+        double[] f = new double[longest];
+        double[] d = new double[longest];
+        int[] v = new int[longest];
+        double[] z = new double[longest + 1];
+
+        for (int c = 0; c < cols; c++) {
+            for (int r = 0; r < rows; r++) {
+                f[r] = distanceSq[r * cols + c];
+            }
+            transform1D(f, rows, d, v, z);
+            for (int r = 0; r < rows; r++) {
+                distanceSq[r * cols + c] = d[r];
+            }
+        }
+        for (int r = 0; r < rows; r++) {
+            System.arraycopy(distanceSq, r * cols, f, 0, cols);
+            transform1D(f, cols, d, v, z);
+            System.arraycopy(d, 0, distanceSq, r * cols, cols);
+        }
+    }
+
+    /**
+     * One dimensional squared distance transform.
+     *
+     * @param f the sampled function, FAR where there is no source.
+     * @param n how many samples there are.
+     * @param d receives the transformed values.
+     * @param v scratch space for parabola locations.
+     * @param z scratch space for parabola boundaries.
+     */
+    private static void transform1D(double[] f, int n, double[] d, int[] v, double[] z) {
+        int k = 0;
+        v[0] = 0;
+        z[0] = -FAR;
+        z[1] = FAR;
+        for (int q = 1; q < n; q++) {
+            double s = intersect(f, q, v[k]);
+            while (s <= z[k]) {
+                k--;
+                s = intersect(f, q, v[k]);
+            }
+            k++;
+            v[k] = q;
+            z[k] = s;
+            z[k + 1] = FAR;
+        }
+        k = 0;
+        for (int q = 0; q < n; q++) {
+            while (z[k + 1] < q) {
+                k++;
+            }
+            double dq = q - v[k];
+            d[q] = dq * dq + f[v[k]];
+        }
+    }
+
+    /**
+     * Where the parabolas rooted at q and p cross.
+     *
+     * @param f the sampled function.
+     * @param q the later sample.
+     * @param p the earlier sample.
+     * @return the crossing point.
+     */
+    private static double intersect(double[] f, int q, int p) {
+        return ((f[q] + (double) q * q) - (f[p] + (double) p * p)) / (2.0 * q - 2.0 * p);
+    }
+
+    /**
+     * Builds the summed area table of blocked cells.
+     */
+    private void sumBlocked() {
+        int stride = cols + 1;
+        blockedSums = new int[stride * (rows + 1)];
+        for (int r = 0; r < rows; r++) {
+            int rowSum = 0;
+            for (int c = 0; c < cols; c++) {
+                if (isBlockedDistance(distanceSq[r * cols + c])) {
+                    rowSum++;
+                }
+                blockedSums[(r + 1) * stride + c + 1] = blockedSums[r * stride + c + 1] + rowSum;
+            }
+        }
+    }
+}
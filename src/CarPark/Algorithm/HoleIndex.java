@@ -0,0 +1,124 @@
+package CarPark.Algorithm;
+
+import java.awt.Polygon;
+import java.awt.Rectangle;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+
+/**
+ * Finds which holes inside the car park a park would hit. Holes are put into
+ * square buckets covering the car park so a park only has to be checked
+ * against the few holes sharing its buckets rather than every hole, which
+ * keeps a lot with hundreds of columns almost as quick as an empty one.
+ *
+ * Nothing is changed once the index is built, so one index can be asked
+ * about parks from any number of threads at once.
+ *
+ * @author Aydin + Sam
+ */
+public class HoleIndex {
+
+    //size of a bucket (m).
+    private static final double BUCKET_METRES = 5;
+    //hole outlines and their clearances in pixels.
+    private Polygon[] outlines;
+    private double[] clearancesPx;
+    //bounds of each hole grown by its clearance.
+    private Rectangle2D.Double[] grownBounds;
+    //hole numbers in each bucket, by grown bounds.
+    private BucketGrid buckets;
+
+    /**
+     * Constructor: Buckets the holes.
+     *
+     * @param holes the holes inside the car park.
+     * @param pxPerMetre how many pixels make up a metre.
+     */
+    public HoleIndex(ArrayList<SiteHole> holes, double pxPerMetre) {
+        int n = holes.size();
+        outlines = new Polygon[n];
+        clearancesPx = new double[n];
+        grownBounds = new Rectangle2D.Double[n];
+        double[] boxes = new double[4 * n];
+        for (int i = 0; i < n; i++) {
+            outlines[i] = holes.get(i).getOutline();
+            clearancesPx[i] = holes.get(i).getClearance() * pxPerMetre;
+            Rectangle b = outlines[i].getBounds();
+            grownBounds[i] = new Rectangle2D.Double(b.x - clearancesPx[i],
+                    b.y - clearancesPx[i], b.width + 2 * clearancesPx[i],
+                    b.height + 2 * clearancesPx[i]);
+            boxes[4 * i] = grownBounds[i].getMinX();
+            boxes[4 * i + 1] = grownBounds[i].getMinY();
+            boxes[4 * i + 2] = grownBounds[i].getMaxX();
+            boxes[4 * i + 3] = grownBounds[i].getMaxY();
+        }
+        buckets = new BucketGrid(boxes, n, BUCKET_METRES * pxPerMetre);
+    }
+
+    /**
+     * Checks whether a park comes within the clearance of any hole.
+     *
+     * @param parkBounds the bounding box of the park (px).
+     * @return true if the park hits a hole.
+     */
+    public boolean intersects(Rectangle2D parkBounds) {
+        int firstCol = Math.max(0, buckets.col(parkBounds.getMinX()));
+        int lastCol = Math.min(buckets.getCols() - 1, buckets.col(parkBounds.getMaxX()));
+        int firstRow = Math.max(0, buckets.row(parkBounds.getMinY()));
+        int lastRow = Math.min(buckets.getRows() - 1, buckets.row(parkBounds.getMaxY()));
+        if (firstCol > lastCol || firstRow > lastRow) {
+            return false;
+        }
+
+        for (int r = firstRow; r <= lastRow; r++) {
+            for (int c = firstCol; c <= lastCol; c++) {
+                int[] bucket = buckets.getBucket(c, r);
+                for (int k = 0; k < bucket.length; k++) {
+                    int hole = bucket[k];
+                    //a hole spanning several buckets is only checked in the
+                    //first bucket it shares with the park.
+                    if (buckets.isFirstBucket(hole, c, r, firstCol, firstRow)
+                            && holeIntersects(hole, parkBounds)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether an area comes within the clearance of one hole.
+     *
+     * @param hole the number of the hole.
+     * @param area the area to check (px).
+     * @return true if the area hits the hole.
+     */
+    public boolean holeIntersects(int hole, Rectangle2D area) {
+        if (!grownBounds[hole].intersects(area)) {
+            return false;
+        }
+        double c = clearancesPx[hole];
+        return outlines[hole].intersects(area.getX() - c, area.getY() - c,
+                area.getWidth() + 2 * c, area.getHeight() + 2 * c);
+    }
+
+    /**
+     * How many holes are in the index.
+     *
+     * @return the number of holes.
+     */
+    public int getHoleCount() {
+        return outlines.length;
+    }
+
+    /**
+     * The bounds of a hole grown by its clearance.
+     *
+     * @param hole the number of the hole.
+     * @return a copy of the grown bounds (px).
+     */
+    public Rectangle2D getGrownBounds(int hole) {
+        return (Rectangle2D) grownBounds[hole].clone();
+    }
+}
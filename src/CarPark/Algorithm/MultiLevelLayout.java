@@ -0,0 +1,68 @@
+package CarPark.Algorithm;
+
+import java.util.ArrayList;
+
+/**
+ * The parks placed on each level of a multi-storey car park along with the
+ * building totals.
+ *
+ * @author Aydin + Sam
+ */
+public class MultiLevelLayout {
+
+    private ArrayList<String> levelNames = new ArrayList<String>();
+    private ArrayList<ArrayList<AlgGeneratedPark>> levelParks =
+            new ArrayList<ArrayList<AlgGeneratedPark>>();
+    private int totalParks = 0;
+
+    /**
+     * Adds the result for the next level.
+     *
+     * @param name the name of the level.
+     * @param parks the parks placed on the level.
+     */
+    void addLevel(String name, ArrayList<AlgGeneratedPark> parks) {
+        levelNames.add(name);
+        levelParks.add(parks);
+        totalParks += parks.size();
+    }
+
+    /**
+     * How many levels the building has.
+     *
+     * @return the number of levels.
+     */
+    public int getLevelCount() {
+        return levelNames.size();
+    }
+
+    /**
+     * Gets the name of a level.
+     *
+     * @param level the number of the level, from 0.
+     * @return the name of the level.
+     */
+    public String getLevelName(int level) {
+        return levelNames.get(level);
+    }
+
+    /**
+     * Gets the parks placed on a level. Levels with the same geometry share
+     * the same list so it must not be changed.
+     *
+     * @param level the number of the level, from 0.
+     * @return the parks on the level.
+     */
+    public ArrayList<AlgGeneratedPark> getLevelParks(int level) {
+        return levelParks.get(level);
+    }
+
+    /**
+     * How many parks the whole building holds.
+     *
+     * @return the number of parks on all levels.
+     */
+    public int getTotalParks() {
+        return totalParks;
+    }
+}
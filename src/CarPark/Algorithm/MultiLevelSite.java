@@ -0,0 +1,163 @@
+package CarPark.Algorithm;
+
+import CarPark.IO.CarPark;
+import CarPark.UI.BoarderLine;
+import CarPark.UI.Park;
+import java.awt.Polygon;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * A multi-storey car park: a base boarder shared by every level plus the
+ * levels themselves, each of which may override the boarder, mark ramps as
+ * entrances and exits, and cut out holes.
+ *
+ * Levels are laid out in parallel. Work is shared between levels wherever
+ * their geometry is the same: levels with the same boarder and line states
+ * share one PreparedSite and so one ClearanceField, and levels that are
+ * identical down to their holes are only laid out once.
+ *
+ * @author Aydin + Sam
+ */
+public class MultiLevelSite {
+
+    private ArrayList<BoarderLine> baseBoarder;
+    private ArrayList<CarParkLevel> levels = new ArrayList<CarParkLevel>();
+
+    /**
+     * Constructor: Sets up a building with no levels.
+     *
+     * @param baseBoarder the BoarderLines shared by every level unless a level
+     * overrides them.
+     */
+    public MultiLevelSite(ArrayList<BoarderLine> baseBoarder) {
+        this.baseBoarder = new ArrayList<BoarderLine>(baseBoarder);
+    }
+
+    /**
+     * Adds the next level of the building.
+     *
+     * @param level the level to add.
+     */
+    public void addLevel(CarParkLevel level) {
+        levels.add(level);
+    }
+
+    /**
+     * Lays out every level of the building.
+     *
+     * @param carParkData the data used to setup carpark spacing and minimum
+     * distances.
+     * @param parkLayout the object defining the shape of each car park.
+     * @param mixedDirections true to let each row pick its own direction.
+     * @param threads how many levels to lay out at once.
+     * @return the parks on each level and the building total.
+     * @throws InterruptedException if interrupted while waiting for levels.
+     * @throws ExecutionException if laying out a level failed.
+     */
+    public MultiLevelLayout layout(final CarPark carParkData, final Park parkLayout,
+            final boolean mixedDirections, int threads)
+            throws InterruptedException, ExecutionException {
+        int n = levels.size();
+        final ArrayList<ArrayList<BoarderLine>> boarders = new ArrayList<ArrayList<BoarderLine>>(n);
+        String[] boarderKeys = new String[n];
+        String[] levelKeys = new String[n];
+        for (int i = 0; i < n; i++) {
+            boarders.add(levels.get(i).buildBoarder(baseBoarder));
+            boarderKeys[i] = boarderKey(boarders.get(i));
+            levelKeys[i] = boarderKeys[i] + holeKey(levels.get(i).getHoles());
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads));
+        try {
+            //prepare each distinct boarder and its clearance field once.
+            HashMap<String, Future<PreparedSite>> sites =
+                    new HashMap<String, Future<PreparedSite>>();
+            for (int i = 0; i < n; i++) {
+                if (!sites.containsKey(boarderKeys[i])) {
+                    final ArrayList<BoarderLine> boarder = boarders.get(i);
+                    sites.put(boarderKeys[i], pool.submit(new Callable<PreparedSite>() {
+                        @Override
+                        public PreparedSite call() {
+                            PreparedSite site = new PreparedSite(boarder, parkLayout.getPxPerMetre());
+                            site.getClearanceField(carParkData.getClearanceMin()
+                                    * parkLayout.getPxPerMetre());
+                            return site;
+                        }
+                    }));
+                }
+            }
+
+            //lay out each distinct level once.
+            HashMap<String, Future<ArrayList<AlgGeneratedPark>>> layouts =
+                    new HashMap<String, Future<ArrayList<AlgGeneratedPark>>>();
+            for (int i = 0; i < n; i++) {
+                if (!layouts.containsKey(levelKeys[i])) {
+                    final ArrayList<BoarderLine> boarder = boarders.get(i);
+                    final ArrayList<SiteHole> holes = levels.get(i).getHoles();
+                    final Future<PreparedSite> site = sites.get(boarderKeys[i]);
+                    layouts.put(levelKeys[i], pool.submit(new Callable<ArrayList<AlgGeneratedPark>>() {
+                        @Override
+                        public ArrayList<AlgGeneratedPark> call() throws Exception {
+                            ParkingAlg alg;
+                            if (mixedDirections) {
+                                alg = new RowStackAlg(carParkData, boarder, parkLayout);
+                            } else {
+                                alg = new MultiResParkingAlg(carParkData, boarder, parkLayout);
+                            }
+                            alg.setPreparedSite(site.get());
+                            alg.setHoles(holes);
+                            return alg.runAlg();
+                        }
+                    }));
+                }
+            }
+
+            MultiLevelLayout result = new MultiLevelLayout();
+            for (int i = 0; i < n; i++) {
+                result.addLevel(levels.get(i).getName(), layouts.get(levelKeys[i]).get());
+            }
+            return result;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Describes a boarder's lines and states so identical boarders can be
+     * found.
+     *
+     * @param boarder the BoarderLines of a level.
+     * @return a key equal for identical boarders.
+     */
+    private static String boarderKey(ArrayList<BoarderLine> boarder) {
+        StringBuilder key = new StringBuilder();
+        for (int i = 0; i < boarder.size(); i++) {
+            key.append(boarder.get(i).toString()).append(';');
+        }
+        return key.toString();
+    }
+
+    /**
+     * Describes a level's holes so identical levels can be found.
+     *
+     * @param holes the holes of a level.
+     * @return a key equal for identical holes.
+     */
+    private static String holeKey(ArrayList<SiteHole> holes) {
+        StringBuilder key = new StringBuilder("|");
+        for (int i = 0; i < holes.size(); i++) {
+            Polygon outline = holes.get(i).getOutline();
+            for (int p = 0; p < outline.npoints; p++) {
+                key.append(outline.xpoints[p]).append(',').append(outline.ypoints[p]).append(' ');
+            }
+            key.append(holes.get(i).getClearance()).append(';');
+        }
+        return key.toString();
+    }
+}
@@ -0,0 +1,292 @@
+package CarPark.Algorithm;
+
+import CarPark.IO.CarPark;
+import CarPark.UI.BoarderLine;
+import CarPark.UI.Park;
+import java.awt.Polygon;
+import java.awt.Rectangle;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+
+/**
+ * Places parks the same way as ParkingAlg but first sorts the car park into
+ * coarse cells (1 m by default) that are completely inside the boarder,
+ * completely outside it, or on it. Only parks touching a boarder cell are
+ * checked against the boarder geometry at full resolution:
+ * <ul>
+ * <li>a park covering only inside cells fits as long as it is clear of the
+ * entrances and exits,</li>
+ * <li>a park covering an outside cell can't fit and neither can any park
+ * further along the row until it has moved past that cell, so the search
+ * jumps straight there.</li>
+ * </ul>
+ * With a tolerance of 0 the parks placed are exactly those ParkingAlg would
+ * place. A larger tolerance lets empty rows be skipped by more than a pixel,
+ * so rows may start up to the tolerance further down than ParkingAlg's.
+ *
+ * @author Aydin + Sam
+ */
+public class MultiResParkingAlg extends ParkingAlg {
+
+    //states a coarse cell can be in.
+    private static final byte BOARDER_CELL = 0;
+    private static final byte INSIDE_CELL = 1;
+    private static final byte OUTSIDE_CELL = 2;
+    //size of a coarse cell in metres.
+    private double coarseCellMetres;
+    //how far rows may drift from the full resolution search in metres.
+    private double toleranceMetres;
+    //coarse cell states worked out for this run.
+    private byte[] coarseCells;
+    private int coarseSize;
+    private int coarseCols;
+    private int coarseRows;
+    private int coarseOriginX;
+    private int coarseOriginY;
+
+    /**
+     * Constructor: Sets up the MultiResParkingAlg object with 1 m coarse cells
+     * and no tolerance, which gives the same parks as ParkingAlg.
+     *
+     * @param carParkData the data used to setup carpark spacing and minimum
+     * distances.
+     * @param carParkBoarder the BoarderLines defining the edge of the carpark.
+     * @param parkLayout the object defining the shape of each car park.
+     */
+    public MultiResParkingAlg(CarPark carParkData,
+            ArrayList<BoarderLine> carParkBoarder,
+            Park parkLayout) {
+        this(carParkData, carParkBoarder, parkLayout, 1.0, 0.0);
+    }
+
+    /**
+     * Constructor: Sets up the MultiResParkingAlg object with required data.
+     *
+     * @param carParkData the data used to setup carpark spacing and minimum
+     * distances.
+     * @param carParkBoarder the BoarderLines defining the edge of the carpark.
+     * @param parkLayout the object defining the shape of each car park.
+     * @param coarseCellMetres the size of the coarse cells in metres.
+     * @param toleranceMetres how far rows may start from where the full
+     * resolution search would put them in metres, 0 for an exact match.
+     */
+    public MultiResParkingAlg(CarPark carParkData,
+            ArrayList<BoarderLine> carParkBoarder,
+            Park parkLayout,
+            double coarseCellMetres,
+            double toleranceMetres) {
+        super(carParkData, carParkBoarder, parkLayout);
+        this.coarseCellMetres = coarseCellMetres;
+        this.toleranceMetres = toleranceMetres;
+    }
+
+    /**
+     * Constructor: Sets up the MultiResParkingAlg object with a snapshot of
+     * the boarder, 1 m coarse cells and no tolerance.
+     *
+     * @param carParkData the data used to setup carpark spacing and minimum
+     * distances.
+     * @param boundary a snapshot of the edge of the carpark.
+     * @param parkLayout the object defining the shape of each car park.
+     */
+    public MultiResParkingAlg(CarPark carParkData,
+            BoundarySnapshot boundary,
+            Park parkLayout) {
+        this(carParkData, boundary, parkLayout, 1.0, 0.0);
+    }
+
+    /**
+     * Constructor: Sets up the MultiResParkingAlg object with a snapshot of
+     * the boarder.
+     *
+     * @param carParkData the data used to setup carpark spacing and minimum
+     * distances.
+     * @param boundary a snapshot of the edge of the carpark.
+     * @param parkLayout the object defining the shape of each car park.
+     * @param coarseCellMetres the size of the coarse cells in metres.
+     * @param toleranceMetres how far rows may start from where the full
+     * resolution search would put them in metres, 0 for an exact match.
+     */
+    public MultiResParkingAlg(CarPark carParkData,
+            BoundarySnapshot boundary,
+            Park parkLayout,
+            double coarseCellMetres,
+            double toleranceMetres) {
+        super(carParkData, boundary, parkLayout);
+        this.coarseCellMetres = coarseCellMetres;
+        this.toleranceMetres = toleranceMetres;
+    }
+
+    /**
+     * runs the algorithm and returns an ArrayList of AlgGeneratedParks which
+     * hold the location (in px) and rotation of each park.
+     *
+     * @return the ArrayList holding the location and rotation of each park.
+     */
+    @Override
+    public ArrayList<AlgGeneratedPark> runAlg() {
+        coarseCells = null;
+        return super.runAlg();
+    }
+
+    /**
+     * how far to move down after a row where no parks could be placed.
+     *
+     * @return the tolerance in pixels, at least 1.
+     */
+    @Override
+    int emptyRowStep() {
+        return Math.max(1, (int) (toleranceMetres * pxPerMetre));
+    }
+
+    /**
+     * places as many parks of one direction as will fit along a single row,
+     * only going to full resolution near the boarder.
+     *
+     * @param carParkPolygon the polygon that defines the shape of the car park.
+     * @param polygonBoundingBox the bounds of carParkPolygon.
+     * @param i how far down from the top of the bounding box the row starts
+     * (px).
+     * @param direction Park.DEG0, Park.DEG60 or Park.DEG90
+     *
+     * @return the parks placed in the row, empty if none fit.
+     */
+    @Override
+    ArrayList<AlgGeneratedPark> placeRow(Polygon carParkPolygon,
+            Rectangle polygonBoundingBox, int i, int direction) {
+        if (coarseCells == null) {
+            classifyCoarseCells(carParkPolygon, polygonBoundingBox);
+        }
+        ArrayList<AlgGeneratedPark> row = new ArrayList<AlgGeneratedPark>();
+
+        int parkWidth = rowPitch(direction);
+        int boundingStartX = (int) polygonBoundingBox.getX();
+        int boundingStartY = (int) polygonBoundingBox.getY();
+
+        Rectangle2D.Double parkBounds;
+
+        //starts at 1 to prevent vertical straight lines causing intersections
+        int j = 1;
+        while (j < polygonBoundingBox.getWidth()) {
+            //a potential place for a carpark
+            parkBounds = determineParkDimensions(boundingStartX + j,
+                    boundingStartY + i, direction);
+
+            int firstCol = coarseCol(parkBounds.getMinX());
+            int lastCol = coarseCol(Math.nextAfter(parkBounds.getMaxX(), 0));
+            int firstRow = coarseRow(parkBounds.getMinY());
+            int lastRow = coarseRow(Math.nextAfter(parkBounds.getMaxY(), 0));
+
+            //find the right most outside cell and whether all cells are inside.
+            int blockingCol = -1;
+            boolean allInside = true;
+            for (int r = firstRow; r <= lastRow; r++) {
+                for (int c = firstCol; c <= lastCol; c++) {
+                    byte state = coarseCell(c, r);
+                    if (state == OUTSIDE_CELL) {
+                        blockingCol = Math.max(blockingCol, c);
+                    }
+                    if (state != INSIDE_CELL) {
+                        allInside = false;
+                    }
+                }
+            }
+
+            boolean placeable;
+            if (blockingCol != -1) {
+                placeable = false;
+            } else if (allInside) {
+                //the park can't touch the boarder, only entrances and holes
+                //matter.
+                placeable = !clearanceField.violatesClearance(parkBounds)
+                        && !getHoleIndex().intersects(parkBounds);
+            } else {
+                placeable = !parkPlacementViolations(carParkPolygon, parkBounds);
+            }
+
+            if (placeable) {
+                Point2D.Double point = new Point2D.Double((double) boundingStartX + j,
+                        (double) boundingStartY + i);
+                row.add(new AlgGeneratedPark(point, 0.0, direction));
+                //a park was placed move over by that park distance
+                j += parkWidth;
+            } else if (blockingCol != -1) {
+                //every park until this one clears the outside cell would
+                //overlap it too, jump to the right side of the cell.
+                int clearX = coarseOriginX + (blockingCol + 1) * coarseSize;
+                j = Math.max(j + 1, clearX - boundingStartX);
+            } else {
+                //move over to the next pixel
+                j++;
+            }
+        }
+        return row;
+    }
+
+    /**
+     * Sorts every coarse cell into inside, outside or on the boarder.
+     *
+     * @param carParkPolygon the polygon that defines the shape of the car park.
+     * @param polygonBoundingBox the bounds of carParkPolygon.
+     */
+    private void classifyCoarseCells(Polygon carParkPolygon, Rectangle polygonBoundingBox) {
+        coarseSize = Math.max(1, (int) Math.round(coarseCellMetres * pxPerMetre));
+        coarseOriginX = polygonBoundingBox.x;
+        coarseOriginY = polygonBoundingBox.y;
+        coarseCols = (polygonBoundingBox.width + coarseSize - 1) / coarseSize + 1;
+        coarseRows = (polygonBoundingBox.height + coarseSize - 1) / coarseSize + 1;
+        coarseCells = new byte[coarseCols * coarseRows];
+
+        Rectangle2D.Double cell = new Rectangle2D.Double();
+        for (int r = 0; r < coarseRows; r++) {
+            for (int c = 0; c < coarseCols; c++) {
+                cell.setRect(coarseOriginX + c * coarseSize,
+                        coarseOriginY + r * coarseSize, coarseSize, coarseSize);
+                byte state;
+                if (!carParkPolygon.intersects(cell)) {
+                    state = OUTSIDE_CELL;
+                } else if (carParkPolygon.contains(cell) && !touchesBoarder(cell)) {
+                    state = INSIDE_CELL;
+                } else {
+                    state = BOARDER_CELL;
+                }
+                coarseCells[r * coarseCols + c] = state;
+            }
+        }
+    }
+
+    /**
+     * Gets the state of a coarse cell, cells off the grid are outside.
+     *
+     * @param c the column of the cell.
+     * @param r the row of the cell.
+     * @return the state of the cell.
+     */
+    private byte coarseCell(int c, int r) {
+        if (c < 0 || r < 0 || c >= coarseCols || r >= coarseRows) {
+            return OUTSIDE_CELL;
+        }
+        return coarseCells[r * coarseCols + c];
+    }
+
+    /**
+     * Which coarse column an x location falls in.
+     *
+     * @param x the x location (px).
+     * @return the column.
+     */
+    private int coarseCol(double x) {
+        return (int) Math.floor((x - coarseOriginX) / coarseSize);
+    }
+
+    /**
+     * Which coarse row a y location falls in.
+     *
+     * @param y the y location (px).
+     * @return the row.
+     */
+    private int coarseRow(double y) {
+        return (int) Math.floor((y - coarseOriginY) / coarseSize);
+    }
+}
@@ -0,0 +1,262 @@
+package CarPark.Algorithm;
+
+import CarPark.IO.CarPark;
+import CarPark.UI.BoarderLine;
+import CarPark.UI.Park;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Lays out the same car park boarder for every combination of a set of
+ * dimension ranges, such as every park width from 2.4 m to 2.6 m against
+ * every aisle width from 6.5 m to 7.7 m.
+ *
+ * The combinations are split in halves on a fork-join pool until each task
+ * has a single layout to run, and each layout writes its park count into its
+ * own slot. Every layout runs on the same PreparedSite, so the boarder
+ * polygon, boarder line index and hole index are only worked out once, and a
+ * ClearanceField is worked out once for each distinct entrance clearance
+ * before any layout starts.
+ *
+ * @author Aydin + Sam
+ */
+public class ParameterSweep {
+
+    private CarPark carParkData;
+    private BoundarySnapshot boundary;
+    private Park parkLayout;
+    private ArrayList<SiteHole> holes = new ArrayList<SiteHole>();
+    private boolean mixedDirections = false;
+    //the dimensions being swept and the values to try for each.
+    private ArrayList<CarPark.requiredTagNames> tags = new ArrayList<CarPark.requiredTagNames>();
+    private ArrayList<double[]> ranges = new ArrayList<double[]>();
+
+    /**
+     * Constructor: Sets up a sweep with no ranges, which runs the one layout
+     * for the given car park data.
+     *
+     * @param carParkData the data every combination starts from.
+     * @param carParkBoarder the BoarderLines defining the edge of the carpark.
+     * @param parkLayout the object defining the shape and direction of each
+     * car park.
+     */
+    public ParameterSweep(CarPark carParkData, ArrayList<BoarderLine> carParkBoarder,
+            Park parkLayout) {
+        this.carParkData = carParkData;
+        boundary = new BoundarySnapshot(carParkBoarder);
+        this.parkLayout = parkLayout;
+    }
+
+    /**
+     * Sets the holes inside the car park boarder that parks must avoid.
+     *
+     * @param holes the holes, each with its own clearance.
+     */
+    public void setHoles(ArrayList<SiteHole> holes) {
+        this.holes = new ArrayList<SiteHole>(holes);
+    }
+
+    /**
+     * Sets whether each row may pick its own direction.
+     *
+     * @param mixedDirections true to let each row pick its own direction.
+     */
+    public void setMixedDirections(boolean mixedDirections) {
+        this.mixedDirections = mixedDirections;
+    }
+
+    /**
+     * Adds a dimension to sweep over, from one value to another in even
+     * steps. Adding the same dimension again replaces its range.
+     *
+     * @param tag which dimension to sweep.
+     * @param from the first value (m).
+     * @param to the last value (m), included if the steps land on it.
+     * @param step how much to change the value by each time (m).
+     */
+    public void addRange(CarPark.requiredTagNames tag, double from, double to, double step) {
+        if (step <= 0) {
+            throw new IllegalArgumentException("The step must be more than zero.");
+        }
+        //allow a little for rounding so the last value isn't lost.
+        int count = (int) Math.floor((to - from) / step + 1e-9) + 1;
+        double[] values = new double[Math.max(1, count)];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = from + i * step;
+        }
+        addValues(tag, values);
+    }
+
+    /**
+     * Adds a dimension to sweep over a list of values. Adding the same
+     * dimension again replaces its values.
+     *
+     * @param tag which dimension to sweep.
+     * @param values the values to try (m).
+     */
+    public void addValues(CarPark.requiredTagNames tag, double[] values) {
+        if (values.length == 0) {
+            throw new IllegalArgumentException("At least one value is needed.");
+        }
+        int existing = tags.indexOf(tag);
+        if (existing >= 0) {
+            ranges.set(existing, values.clone());
+        } else {
+            tags.add(tag);
+            ranges.add(values.clone());
+        }
+    }
+
+    /**
+     * Gets how many layouts the sweep will run.
+     *
+     * @return the number of combinations.
+     */
+    public int getCombinationCount() {
+        int count = 1;
+        for (int i = 0; i < ranges.size(); i++) {
+            count *= ranges.get(i).length;
+        }
+        return count;
+    }
+
+    /**
+     * Lays out every combination.
+     *
+     * @param threads how many layouts to run at once.
+     * @return the park count of each combination.
+     */
+    public SweepResult run(int threads) {
+        final int combinations = getCombinationCount();
+        final CarPark.requiredTagNames[] sweptTags =
+                tags.toArray(new CarPark.requiredTagNames[tags.size()]);
+        final double[][] values = new double[combinations][sweptTags.length];
+        final CarPark[] data = new CarPark[combinations];
+        for (int c = 0; c < combinations; c++) {
+            //the last dimension changes fastest.
+            int rest = c;
+            CarPark combination = carParkData;
+            for (int t = sweptTags.length - 1; t >= 0; t--) {
+                double[] range = ranges.get(t);
+                values[c][t] = range[rest % range.length];
+                rest /= range.length;
+                combination = combination.withValue(sweptTags[t], values[c][t]);
+            }
+            data[c] = combination;
+        }
+
+        PreparedSite site = new PreparedSite(boundary, holes, parkLayout.getPxPerMetre());
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, threads));
+        try {
+            //each distinct clearance needs its own field, worked out up front
+            //so no layout waits on another.
+            ArrayList<Double> clearances = new ArrayList<Double>();
+            for (int c = 0; c < combinations; c++) {
+                if (!clearances.contains(data[c].getClearanceMin())) {
+                    clearances.add(data[c].getClearanceMin());
+                }
+            }
+            pool.invoke(new ClearanceTask(site, clearances, 0, clearances.size()));
+
+            int[] capacities = new int[combinations];
+            pool.invoke(new LayoutTask(site, data, capacities, 0, combinations));
+            return new SweepResult(sweptTags, values, data, capacities,
+                    mixedDirections ? -1 : parkLayout.getDirection());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Works out the clearance fields for a share of the distinct clearances.
+     */
+    private static class ClearanceTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+        private PreparedSite site;
+        private ArrayList<Double> clearances;
+        private int from;
+        private int to;
+
+        /**
+         * Constructor: Sets up the task for clearances from one index up to,
+         * but not including, another.
+         *
+         * @param site the site to keep the fields in.
+         * @param clearances the distinct clearances (m).
+         * @param from the first clearance to work out.
+         * @param to one past the last clearance to work out.
+         */
+        ClearanceTask(PreparedSite site, ArrayList<Double> clearances, int from, int to) {
+            this.site = site;
+            this.clearances = clearances;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ClearanceTask(site, clearances, from, middle),
+                        new ClearanceTask(site, clearances, middle, to));
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                site.getClearanceField(clearances.get(i) * site.getPxPerMetre());
+            }
+        }
+    }
+
+    /**
+     * Runs the layouts for a share of the combinations.
+     */
+    private class LayoutTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+        private PreparedSite site;
+        private CarPark[] data;
+        private int[] capacities;
+        private int from;
+        private int to;
+
+        /**
+         * Constructor: Sets up the task for combinations from one index up
+         * to, but not including, another.
+         *
+         * @param site the site every combination is laid out on.
+         * @param data the car park data of each combination.
+         * @param capacities where to put each combination's park count.
+         * @param from the first combination to lay out.
+         * @param to one past the last combination to lay out.
+         */
+        LayoutTask(PreparedSite site, CarPark[] data, int[] capacities, int from, int to) {
+            this.site = site;
+            this.data = data;
+            this.capacities = capacities;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new LayoutTask(site, data, capacities, from, middle),
+                        new LayoutTask(site, data, capacities, middle, to));
+                return;
+            }
+            for (int c = from; c < to; c++) {
+                ParkingAlg alg;
+                if (mixedDirections) {
+                    alg = new RowStackAlg(data[c], site.getBoundary(), parkLayout);
+                } else {
+                    alg = new MultiResParkingAlg(data[c], site.getBoundary(), parkLayout);
+                }
+                alg.setPreparedSite(site);
+                capacities[c] = alg.runAlg().size();
+            }
+        }
+    }
+}
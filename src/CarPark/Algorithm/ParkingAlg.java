@@ -8,6 +8,7 @@ import java.awt.Rectangle;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.util.ArrayList;
+import java.util.concurrent.CancellationException;
 
 /**
  * Handles all parking algorithm based items. An object is created for the
@@ -19,13 +20,29 @@ import java.util.ArrayList;
 public class ParkingAlg {
 
     CarPark carParkData;
-    ArrayList<BoarderLine> carParkBoarder;
+    //a copy of the boarder, so the user can keep editing while this runs.
+    BoundarySnapshot boundary;
     Park parkLayout;
     //will store how much the 60deg park is diagonal in the x direction.
     double sheer;
+    //how many pixels make up a metre, taken from the park layout.
+    double pxPerMetre;
+    //pixels in every grid dot, which the raster searches work on.
+    int gridDot;
+    //distance to the entrances and exits, kept between runs on the same boarder.
+    ClearanceField clearanceField;
+    //columns, islands and other areas inside the boarder parks can't go on.
+    ArrayList<SiteHole> holes = new ArrayList<SiteHole>();
+    HoleIndex holeIndex;
+    //boarder work shared with other runs, null to work it out in this run.
+    PreparedSite preparedSite;
+    //whether row end parks may be left empty to open a way to cut off aisles.
+    boolean openRowEnds = true;
 
     /**
-     * Constructor: Sets up the ParkingAlg object with required data.
+     * Constructor: Sets up the ParkingAlg object with required data. The
+     * boarder is copied straight away, so this must be called on the thread
+     * that edits the boarder.
      *
      * @param carParkData the data used to setup carpark spacing and minimum
      * distances.
@@ -35,20 +52,38 @@ public class ParkingAlg {
     public ParkingAlg(CarPark carParkData,
             ArrayList<BoarderLine> carParkBoarder,
             Park parkLayout) {
+        this(carParkData, new BoundarySnapshot(carParkBoarder), parkLayout);
+    }
+
+    /**
+     * Constructor: Sets up the ParkingAlg object with required data.
+     *
+     * @param carParkData the data used to setup carpark spacing and minimum
+     * distances.
+     * @param boundary a snapshot of the edge of the carpark.
+     * @param parkLayout the object defining the shape of each car park.
+     */
+    public ParkingAlg(CarPark carParkData,
+            BoundarySnapshot boundary,
+            Park parkLayout) {
         this.carParkData = carParkData;
-        this.carParkBoarder = carParkBoarder;
+        this.boundary = boundary;
         this.parkLayout = parkLayout;
+        pxPerMetre = parkLayout.getPxPerMetre();
+        gridDot = parkLayout.getGridDotPx();
         //the sheer of the 60deg park in m
         sheer = carParkData.getAngle60Depth() / Math.tan(Math.PI / 3.0);
     }
 
     /**
-     * Generates a polygon of the parking lot from the ArrayList of
-     * BoarderLines.
+     * Generates a polygon of the parking lot from the boarder snapshot.
      *
      * @return returns the polygon that defines the shape of the car park.
      */
-    private Polygon generateParkBoarderPolygon() {
+    Polygon generateParkBoarderPolygon() {
+        if (preparedSite != null) {
+            return preparedSite.polygon();
+        }
         //the polygon to store the park boarder in
         Polygon carParkPolygon = new Polygon();
         //storage variables 
@@ -57,14 +92,106 @@ public class ParkingAlg {
 
         //get the first point of each line defining the park boarder and
         //place in the polygon.
-        for (int i = 0; i < carParkBoarder.size(); i++) {
-            parkCoordX = (int) carParkBoarder.get(i).getP1().getX();
-            parkCoordY = (int) carParkBoarder.get(i).getP1().getY();
+        for (int i = 0; i < boundary.size(); i++) {
+            parkCoordX = (int) boundary.get(i).getX1();
+            parkCoordY = (int) boundary.get(i).getY1();
             carParkPolygon.addPoint(parkCoordX, parkCoordY);
         }
         return carParkPolygon;
     }
 
+    /**
+     * Gets the entrance/exit clearance field for the boarder, reusing the one
+     * given by setClearanceField if it was worked out for the same boarder.
+     *
+     * @param carParkPolygon the polygon that defines the shape of the car park.
+     * @return the clearance field for this boarder.
+     */
+    ClearanceField getClearanceField(Polygon carParkPolygon) {
+        double clearanceMinPx = carParkData.getClearanceMin() * pxPerMetre;
+        if (preparedSite != null && (clearanceField == null
+                || !clearanceField.matches(boundary, clearanceMinPx, gridDot))) {
+            clearanceField = preparedSite.getClearanceField(clearanceMinPx);
+        }
+        if (clearanceField == null
+                || !clearanceField.matches(boundary, clearanceMinPx, gridDot)) {
+            clearanceField = new ClearanceField(carParkPolygon.getBounds(),
+                    boundary, clearanceMinPx, gridDot);
+        }
+        return clearanceField;
+    }
+
+    /**
+     * Gets the clearance field used by the last run so it can be handed to
+     * the next run.
+     *
+     * @return the clearance field, null if the algorithm hasn't been run.
+     */
+    public ClearanceField getClearanceField() {
+        return clearanceField;
+    }
+
+    /**
+     * Gives the algorithm a clearance field from an earlier run. It is only
+     * used if it matches the boarder, so changing just the park direction
+     * doesn't work the distances out again.
+     *
+     * @param clearanceField the clearance field from an earlier run.
+     */
+    public void setClearanceField(ClearanceField clearanceField) {
+        this.clearanceField = clearanceField;
+    }
+
+    /**
+     * Runs on a boarder already prepared, sharing its polygon, boarder line
+     * index, hole index and clearance fields with any other run using it.
+     * Replaces the boarder and holes the algorithm was set up with.
+     *
+     * @param preparedSite the prepared boarder, at the same scale as the park
+     * layout.
+     */
+    public void setPreparedSite(PreparedSite preparedSite) {
+        this.preparedSite = preparedSite;
+        boundary = preparedSite.getBoundary();
+        holes = preparedSite.getHoles();
+        holeIndex = preparedSite.getHoleIndex();
+    }
+
+    /**
+     * Sets the holes inside the car park boarder that parks must avoid.
+     *
+     * @param holes the holes, each with its own clearance.
+     */
+    public void setHoles(ArrayList<SiteHole> holes) {
+        this.holes = new ArrayList<SiteHole>(holes);
+        holeIndex = null;
+    }
+
+    /**
+     * Sets whether the first or last park of a row may be left empty when
+     * that opens a way through to aisles that would otherwise be cut off.
+     * On by default, but a layout only keeps the openings if it ends up with
+     * more parks than by just removing the parks that can't be reached.
+     *
+     * @param openRowEnds true to let row end parks be left empty, false to
+     * only ever remove the parks that can't be reached.
+     */
+    public void setOpenRowEnds(boolean openRowEnds) {
+        this.openRowEnds = openRowEnds;
+    }
+
+    /**
+     * Gets the index of holes inside the boarder, building it the first time.
+     *
+     * @return the hole index.
+     */
+    HoleIndex getHoleIndex() {
+        if (holeIndex == null) {
+            holeIndex = new HoleIndex(holes, pxPerMetre);
+        }
+        return holeIndex;
+    }
+
     /**
      * generates a rectangle determing the bounds of the individual park.
      *
@@ -75,13 +202,29 @@ public class ParkingAlg {
      * @return the bounding box of the required park to place in the algorithm.
      */
     private Rectangle2D.Double determineParkDimensions(int x, int y) {
+        return determineParkDimensions(x, y, parkLayout.getDirection());
+    }
+
+    /**
+     * generates a rectangle determing the bounds of the individual park for a
+     * given park direction.
+     *
+     * @param x the x location of the rectangle to place in pixels
+     *
+     * @param y the y location of the rectangle to place in pixels
+     *
+     * @param direction Park.DEG0, Park.DEG60 or Park.DEG90
+     *
+     * @return the bounding box of the required park to place in the algorithm.
+     */
+    Rectangle2D.Double determineParkDimensions(int x, int y, int direction) {
 
         double width;
         double height;
 
         //which direction should we be drawing?
         //store the correct dimentions for each case.
-        switch (parkLayout.getDirection()) {
+        switch (direction) {
             case Park.DEG60:
                 width = sheer;
                 width += carParkData.getAngle60Width();
@@ -101,93 +244,309 @@ public class ParkingAlg {
         }
 
         //converting to pixels from metres
-        height = height * 25;
-        width = width * 25;
+        height = height * pxPerMetre;
+        width = width * pxPerMetre;
 
         Rectangle2D.Double parkBounds = new Rectangle2D.Double(x, y, width, height);
         return parkBounds;
     }
 
+    /**
+     * how far to move across after a park has been placed in a row.
+     *
+     * @param direction Park.DEG0, Park.DEG60 or Park.DEG90
+     *
+     * @return the distance between neighbouring parks in a row in pixels.
+     */
+    int rowPitch(int direction) {
+        int parkWidth = (int) determineParkDimensions(0, 0, direction).getWidth();
+        //the 60deg parks should be placed closer together than their bounding
+        //box would suggest (this is adjusting for the park bounding box created).
+        if (direction == Park.DEG60) {
+            //converting sheer to px
+            parkWidth -= sheer * pxPerMetre;
+        }
+        return parkWidth;
+    }
+
+    /**
+     * how far to move up after a row of parks has been placed.
+     *
+     * @param direction Park.DEG0, Park.DEG60 or Park.DEG90
+     *
+     * @return the height of a row of parks including its manoeuvring space
+     * in pixels.
+     */
+    int rowHeight(int direction) {
+        return (int) determineParkDimensions(0, 0, direction).getHeight();
+    }
+
     /**
      * runs the algorithm and returns an ArrayList of AlgGeneratedParks which
      * hold the location (in px) and rotation of each park.
      *
      * @return the ArrayList holding the location and rotation of each park.
+     * @throws CancellationException If the thread running the algorithm is
+     * interrupted part way through.
      */
     public ArrayList<AlgGeneratedPark> runAlg() {
-        ArrayList parkGenLocs = new ArrayList();
+        ArrayList<AlgGeneratedPark> parkGenLocs = new ArrayList<AlgGeneratedPark>();
+        ArrayList<AlgGeneratedPark> row;
 
-        //how much to move over when trying to place a park
-        int xmove;
+        //how much to move up when trying to place a row
         int ymove;
-        boolean placed;
 
         Polygon carParkPolygon = generateParkBoarderPolygon();
         Rectangle polygonBoundingBox = carParkPolygon.getBounds();
+        getClearanceField(carParkPolygon);
 
-        // where does the upper corner of the parking lot live?
-        int boundingStartX = (int) polygonBoundingBox.getX();
-        int boundingStartY = (int) polygonBoundingBox.getY();
-
-        //check how far we should move across and up when trying to
-        //place each park.
-        Rectangle2D.Double parkBounds;
-        parkBounds = determineParkDimensions(0, 0);
-        int parkWidth = (int) parkBounds.getWidth();
-        //the 60deg parks should be placed closer together than their bounding
-        //box would suggest (this is adjusting for the park bounding box created).
-        if (parkLayout.getDirection() == Park.DEG60) {
-            //converting sheer to px
-            parkWidth -= sheer * 25;
-        }
-
-        int parkHeight = (int) parkBounds.getHeight();
+        int direction = parkLayout.getDirection();
+        int parkHeight = rowHeight(direction);
 
         //moving on up the y direction by carpark heights
         //should only move up until the parking lot is finished
         //starts at 1 to prevent horizontal straight lines causing intersections
         for (int i = 1; i < polygonBoundingBox.getHeight(); i += ymove) {
-
-            //reset placed each cycle
-            placed = false;
-            //moving on up the x direction by carpark widths
-            //should only move across until the parking lot is finished
-            //starts at 1 to prevent vertical straight lines causing intersections
-            for (int j = 1; j < polygonBoundingBox.getWidth(); j += xmove) {
-                //a potential place for a carpark
-                parkBounds = determineParkDimensions(boundingStartX + j,
-                        boundingStartY + i);
-
-                //if its safe to put there place it in the array.
-                if (!parkPlacementViolations(carParkPolygon, parkBounds)) {
-                    Point2D.Double point = new Point2D.Double((double) boundingStartX + j,
-                            (double) boundingStartY + i);
-                    //algorithm doesn't attempt to rotate to see if more car parks
-                    //can be fit into the park boundaries.
-                    parkGenLocs.add(new AlgGeneratedPark(point, 0.0));
-                    //a park was placed move over by that park distance
-                    xmove = parkWidth;
-
-                    //if any parks have been successfully placed on a "row".
-                    placed = true;
-                } else {
-                    //move over to the next pixel
-                    xmove = 1;
-                }
-            }
-            if (placed) {
+            checkCancelled();
+            row = placeRow(carParkPolygon, polygonBoundingBox, i, direction);
+            if (!row.isEmpty()) {
                 //car parks were placed move up by a height
                 ymove = parkHeight;
-                //for some weird edge cases where parks are generated but
-                //no one can escape from the carpark of doom.
-                //remvoes the last carpark of each row.
-                parkGenLocs.remove(parkGenLocs.size() - 1);
+                parkGenLocs.addAll(row);
             } else {
-                //car parks were not placed move down by 1 px and try again
-                ymove = 1;
+                //car parks were not placed move down and try again
+                ymove = emptyRowStep();
             }
         }
-        return parkGenLocs;
+        return removeUnreachable(parkGenLocs, carParkPolygon);
+    }
+
+    /**
+     * Stops the run if the thread running it has been interrupted, such as
+     * when the layout being worked out is no longer wanted. Checked once a
+     * row, so a cancelled run stops almost straight away.
+     */
+    void checkCancelled() {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("The layout was cancelled.");
+        }
+    }
+
+    /**
+     * how deep the stall of a park is, the rest of its bounding box height
+     * being manoeuvring space.
+     *
+     * @param direction Park.DEG0, Park.DEG60 or Park.DEG90
+     *
+     * @return the depth of the stall in pixels.
+     */
+    double stallDepth(int direction) {
+        switch (direction) {
+            case Park.DEG60:
+                return carParkData.getAngle60Depth() * pxPerMetre;
+            case Park.DEG90:
+                return carParkData.getAngle90Depth() * pxPerMetre;
+            default: //case Park.DEG0:
+                return carParkData.getAngle0Width() * pxPerMetre;
+        }
+    }
+
+    /**
+     * Removes the parks no car could drive to. The free space left between
+     * parks is flood filled once from the entrances and exits, and a park is
+     * kept if any part of the manoeuvring space in front of it was reached.
+     * A car needs a gap about as wide as the narrowest park to get through.
+     * If setOpenRowEnds is on, where a row of parks cuts an aisle off the
+     * first or last park of a row may be left empty to open a way through,
+     * but only when the fill actually needs it. The openings are only used
+     * when they leave more parks than keeping every park that can be reached
+     * as it is, so they never make a layout worse.
+     *
+     * @param parkGenLocs the parks placed by the algorithm, row by row.
+     * @param carParkPolygon the polygon that defines the shape of the car park.
+     *
+     * @return the parks that can be reached.
+     */
+    ArrayList<AlgGeneratedPark> removeUnreachable(ArrayList<AlgGeneratedPark> parkGenLocs,
+            Polygon carParkPolygon) {
+        int n = parkGenLocs.size();
+        ArrayList<Rectangle2D> stalls = new ArrayList<Rectangle2D>(n);
+        ArrayList<Rectangle2D> aisles = new ArrayList<Rectangle2D>(n);
+        boolean[] rowEnds = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            AlgGeneratedPark park = parkGenLocs.get(i);
+            stalls.add(stallBounds(park));
+            aisles.add(aisleBounds(park));
+            //parks are placed row by row from the left, so a row starts and
+            //ends where the y location changes.
+            double y = park.getParkPosition().getY();
+            rowEnds[i] = i == 0 || i == n - 1
+                    || parkGenLocs.get(i - 1).getParkPosition().getY() != y
+                    || parkGenLocs.get(i + 1).getParkPosition().getY() != y;
+        }
+        double laneWidthPx = laneWidthPx();
+
+        SiteRaster raster = new SiteRaster(carParkPolygon, null, getHoleIndex(), gridDot);
+        AisleGraph aisleGraph = new AisleGraph(raster, stalls, laneWidthPx);
+        //the middle of the nearest lane is about half a lane in from an
+        //entrance, allow a couple of grid dots for rounding.
+        boolean[] sources = aisleGraph.cellsNear(getClearanceField(carParkPolygon),
+                laneWidthPx / 2 + 2 * gridDot);
+        boolean[] keep = aisleGraph.resolveAccess(sources, aisles, new boolean[n]);
+        if (openRowEnds) {
+            boolean[] opened = aisleGraph.resolveAccess(sources, aisles, rowEnds);
+            if (countKept(opened) > countKept(keep)) {
+                keep = opened;
+            }
+        }
+
+        ArrayList<AlgGeneratedPark> reachable = new ArrayList<AlgGeneratedPark>(n);
+        for (int i = 0; i < n; i++) {
+            if (keep[i]) {
+                reachable.add(parkGenLocs.get(i));
+            }
+        }
+        return reachable;
+    }
+
+    /**
+     * how many parks a reachability pass kept.
+     *
+     * @param keep true for each park kept.
+     * @return the number of parks kept.
+     */
+    private static int countKept(boolean[] keep) {
+        int count = 0;
+        for (int i = 0; i < keep.length; i++) {
+            if (keep[i]) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * how wide a gap a car needs to drive through, a grid dot narrower than
+     * the narrowest park so a single empty park is wide enough.
+     *
+     * @return the lane width in pixels.
+     */
+    double laneWidthPx() {
+        return Math.min(carParkData.getAngle0Width(),
+                Math.min(carParkData.getAngle60Width(), carParkData.getAngle90Width()))
+                * pxPerMetre - gridDot;
+    }
+
+    /**
+     * the area taken up by the car in a park. Angled parks lean into their
+     * neighbours' bounding boxes, so only the pitch each park takes along the
+     * row is counted.
+     *
+     * @param park a park placed by the algorithm.
+     * @return the stall part of the park's bounding box (px).
+     */
+    Rectangle2D.Double stallBounds(AlgGeneratedPark park) {
+        Rectangle2D.Double bounds = determineParkDimensions(
+                (int) park.getParkPosition().getX(),
+                (int) park.getParkPosition().getY(), park.getParkDirection());
+        bounds.width = Math.min(bounds.width, rowPitch(park.getParkDirection()));
+        bounds.height = stallDepth(park.getParkDirection());
+        return bounds;
+    }
+
+    /**
+     * the manoeuvring space a car drives through to get into a park.
+     *
+     * @param park a park placed by the algorithm.
+     * @return the aisle part of the park's bounding box (px).
+     */
+    Rectangle2D.Double aisleBounds(AlgGeneratedPark park) {
+        Rectangle2D.Double bounds = determineParkDimensions(
+                (int) park.getParkPosition().getX(),
+                (int) park.getParkPosition().getY(), park.getParkDirection());
+        double depth = stallDepth(park.getParkDirection());
+        bounds.y += depth;
+        bounds.height -= depth;
+        return bounds;
+    }
+
+    /**
+     * how far to move down after a row where no parks could be placed.
+     *
+     * @return the distance to move down in pixels.
+     */
+    int emptyRowStep() {
+        return 1;
+    }
+
+    /**
+     * places as many parks of one direction as will fit along a single row.
+     *
+     * @param carParkPolygon the polygon that defines the shape of the car park.
+     * @param polygonBoundingBox the bounds of carParkPolygon.
+     * @param i how far down from the top of the bounding box the row starts
+     * (px).
+     * @param direction Park.DEG0, Park.DEG60 or Park.DEG90
+     *
+     * @return the parks placed in the row, empty if none fit.
+     */
+    ArrayList<AlgGeneratedPark> placeRow(Polygon carParkPolygon,
+            Rectangle polygonBoundingBox, int i, int direction) {
+        ArrayList<AlgGeneratedPark> row = new ArrayList<AlgGeneratedPark>();
+
+        //how much to move over when trying to place a park
+        int xmove;
+        int parkWidth = rowPitch(direction);
+
+        // where does the upper corner of the parking lot live?
+        int boundingStartX = (int) polygonBoundingBox.getX();
+        int boundingStartY = (int) polygonBoundingBox.getY();
+
+        Rectangle2D.Double parkBounds;
+
+        //moving on up the x direction by carpark widths
+        //should only move across until the parking lot is finished
+        //starts at 1 to prevent vertical straight lines causing intersections
+        for (int j = 1; j < polygonBoundingBox.getWidth(); j += xmove) {
+            //a potential place for a carpark
+            parkBounds = determineParkDimensions(boundingStartX + j,
+                    boundingStartY + i, direction);
+
+            //if its safe to put there place it in the array.
+            if (!parkPlacementViolations(carParkPolygon, parkBounds)) {
+                Point2D.Double point = new Point2D.Double((double) boundingStartX + j,
+                        (double) boundingStartY + i);
+                //algorithm doesn't attempt to rotate to see if more car parks
+                //can be fit into the park boundaries.
+                row.add(new AlgGeneratedPark(point, 0.0, direction));
+                //a park was placed move over by that park distance
+                xmove = parkWidth;
+            } else {
+                //move over to the next pixel
+                xmove = 1;
+            }
+        }
+        return row;
+    }
+
+    /**
+     * Checks whether any boarder line touches an area, including its edges.
+     *
+     * @param area the area to check (px).
+     * @return true if a boarder line touches the area.
+     */
+    boolean touchesBoarder(Rectangle2D area) {
+        if (preparedSite != null) {
+            return preparedSite.touchesBoarder(area);
+        }
+        for (int i = 0; i < boundary.size(); i++) {
+            BoundarySegment segment = boundary.get(i);
+            if (area.intersectsLine(segment.getX1(), segment.getY1(),
+                    segment.getX2(), segment.getY2())) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
@@ -196,7 +555,7 @@ public class ParkingAlg {
      *
      * @return a boolean, true if there has been a violation of the rules.
      */
-    private boolean parkPlacementViolations(Polygon carParkPolygon,
+    boolean parkPlacementViolations(Polygon carParkPolygon,
             Rectangle2D.Double parkBounds) {
         boolean collision = false;
         Point2D.Double cornerA, cornerB, cornerC, cornerD;
@@ -213,29 +572,19 @@ public class ParkingAlg {
                 && carParkPolygon.contains(cornerC)
                 && carParkPolygon.contains(cornerD)) {
 
-            //expands the carpark by the clearance for determing if the carpark
-            //violates the clearance rules.
-            double clearanceMinPx = carParkData.getClearanceMin() * 25;
-            double x = parkBounds.getX() - clearanceMinPx;
-            double y = parkBounds.getY() - clearanceMinPx;
-            double width = parkBounds.getWidth() + clearanceMinPx;
-            double height = parkBounds.getHeight() + clearanceMinPx;
-
-            Rectangle2D.Double clearancePark = new Rectangle2D.Double(x, y, width, height);
-
-            for (int i = 0; i < carParkBoarder.size(); i++) {
-
-                //have we touched a boarder?
-                if (carParkBoarder.get(i).getLine().intersects(parkBounds)) {
-                    collision = true;
-                }
-
-                //have we touched an entrance or exit or both
-                //with the expanded carpark?
-                if (carParkBoarder.get(i).getLine().intersects(clearancePark)
-                        && (carParkBoarder.get(i).getState() != BoarderLine.BOARDER)) {
-                    collision = true;
-                }
+            //have we touched a boarder?
+            if (touchesBoarder(parkBounds)) {
+                collision = true;
+            }
+
+            //are we within the clearance of an entrance or exit or both?
+            if (clearanceField.violatesClearance(parkBounds)) {
+                collision = true;
+            }
+
+            //have we hit a column, island or other hole in the car park?
+            if (getHoleIndex().intersects(parkBounds)) {
+                collision = true;
             }
         } else {
             //we are out side of the polygon
@@ -0,0 +1,289 @@
+package CarPark.Algorithm;
+
+import CarPark.UI.BoarderLine;
+import CarPark.UI.Park;
+import java.awt.Polygon;
+import java.awt.Rectangle;
+import java.awt.geom.Line2D;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Everything about a closed car park boarder that doesn't depend on the park
+ * dimensions or direction, worked out once: the boarder polygon and its
+ * bounding box, an index of which boarder lines pass through each part of
+ * the car park, the entrances and exits, and the hole index.
+ *
+ * A site is never changed once built, so it can be handed to any number of
+ * ParkingAlg runs at once, with different directions or car park data, on
+ * different threads. The one thing it keeps adding to is a cache of
+ * ClearanceFields, one per clearance, each worked out by whichever run asks
+ * for it first while any other run asking at the same time waits for it.
+ *
+ * @author Aydin + Sam
+ */
+public final class PreparedSite {
+
+    //size of an edge bucket (m).
+    private static final double BUCKET_METRES = 5;
+    private final BoundarySnapshot boundary;
+    private final Polygon polygon;
+    private final Rectangle bounds;
+    //ends of each boarder line, x1 y1 x2 y2 in turn.
+    private final double[] edges;
+    //boarder line numbers in each bucket.
+    private final BucketGrid edgeBuckets;
+    private final ArrayList<Line2D> entrances = new ArrayList<Line2D>();
+    private final ArrayList<Line2D> exits = new ArrayList<Line2D>();
+    private final ArrayList<SiteHole> holes;
+    private final HoleIndex holeIndex;
+    private final double pxPerMetre;
+    //clearance fields by clearance (px).
+    private final ConcurrentHashMap<Double, FutureTask<ClearanceField>> clearanceFields =
+            new ConcurrentHashMap<Double, FutureTask<ClearanceField>>();
+
+    /**
+     * Constructor: Prepares a boarder with no holes.
+     *
+     * @param carParkBoarder the BoarderLines defining the edge of the carpark,
+     * each starting where the last one finished and the last finishing where
+     * the first started.
+     * @param pxPerMetre how many pixels make up a metre.
+     */
+    public PreparedSite(ArrayList<BoarderLine> carParkBoarder, double pxPerMetre) {
+        this(carParkBoarder, new ArrayList<SiteHole>(), pxPerMetre);
+    }
+
+    /**
+     * Constructor: Prepares a boarder and the holes inside it.
+     *
+     * @param carParkBoarder the BoarderLines defining the edge of the carpark,
+     * each starting where the last one finished and the last finishing where
+     * the first started.
+     * @param holes the holes inside the boarder that parks must avoid.
+     * @param pxPerMetre how many pixels make up a metre.
+     */
+    public PreparedSite(ArrayList<BoarderLine> carParkBoarder,
+            ArrayList<SiteHole> holes, double pxPerMetre) {
+        this(new BoundarySnapshot(carParkBoarder), holes, pxPerMetre);
+    }
+
+    /**
+     * Constructor: Prepares a snapshot of a boarder and the holes inside it.
+     *
+     * @param boundary a closed snapshot of the edge of the carpark.
+     * @param holes the holes inside the boarder that parks must avoid.
+     * @param pxPerMetre how many pixels make up a metre.
+     */
+    public PreparedSite(BoundarySnapshot boundary,
+            ArrayList<SiteHole> holes, double pxPerMetre) {
+        if (!boundary.isClosed()) {
+            throw new IllegalArgumentException("The car park boarder must be closed.");
+        }
+        int n = boundary.size();
+        this.boundary = boundary;
+        this.pxPerMetre = pxPerMetre;
+        edges = new double[4 * n];
+        //the box bounding each boarder line, for the edge buckets.
+        double[] boxes = new double[4 * n];
+        polygon = boundary.toPolygon();
+        for (int i = 0; i < n; i++) {
+            BoundarySegment segment = boundary.get(i);
+            edges[4 * i] = segment.getX1();
+            edges[4 * i + 1] = segment.getY1();
+            edges[4 * i + 2] = segment.getX2();
+            edges[4 * i + 3] = segment.getY2();
+            boxes[4 * i] = Math.min(edges[4 * i], edges[4 * i + 2]);
+            boxes[4 * i + 1] = Math.min(edges[4 * i + 1], edges[4 * i + 3]);
+            boxes[4 * i + 2] = Math.max(edges[4 * i], edges[4 * i + 2]);
+            boxes[4 * i + 3] = Math.max(edges[4 * i + 1], edges[4 * i + 3]);
+
+            int state = segment.getState();
+            if (state == BoarderLine.ENT || state == BoarderLine.ENTEXIT) {
+                entrances.add(segment.getLine());
+            }
+            if (state == BoarderLine.EXIT || state == BoarderLine.ENTEXIT) {
+                exits.add(segment.getLine());
+            }
+        }
+        //works out and keeps the polygon's own bounds, so nothing is left for
+        //it to fill in later while being shared.
+        bounds = polygon.getBounds();
+
+        edgeBuckets = new BucketGrid(boxes, n, BUCKET_METRES * pxPerMetre);
+
+        this.holes = new ArrayList<SiteHole>(holes);
+        holeIndex = new HoleIndex(this.holes, pxPerMetre);
+    }
+
+    /**
+     * Checks whether any boarder line touches an area, including its edges.
+     *
+     * @param area the area to check (px).
+     * @return true if a boarder line touches the area.
+     */
+    public boolean touchesBoarder(Rectangle2D area) {
+        int firstCol = Math.max(0, edgeBuckets.col(area.getMinX()));
+        int lastCol = Math.min(edgeBuckets.getCols() - 1, edgeBuckets.col(area.getMaxX()));
+        int firstRow = Math.max(0, edgeBuckets.row(area.getMinY()));
+        int lastRow = Math.min(edgeBuckets.getRows() - 1, edgeBuckets.row(area.getMaxY()));
+        for (int r = firstRow; r <= lastRow; r++) {
+            for (int c = firstCol; c <= lastCol; c++) {
+                int[] bucket = edgeBuckets.getBucket(c, r);
+                for (int k = 0; k < bucket.length; k++) {
+                    int e = 4 * bucket[k];
+                    if (area.intersectsLine(edges[e], edges[e + 1],
+                            edges[e + 2], edges[e + 3])) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets the clearance field for a clearance, working it out the first time
+     * it is asked for.
+     *
+     * @param clearanceMinPx the minimum clearance from entrances and exits (px).
+     * @return the clearance field.
+     */
+    public ClearanceField getClearanceField(final double clearanceMinPx) {
+        FutureTask<ClearanceField> field = clearanceFields.get(clearanceMinPx);
+        if (field == null) {
+            FutureTask<ClearanceField> made = new FutureTask<ClearanceField>(
+                    new Callable<ClearanceField>() {
+                        @Override
+                        public ClearanceField call() {
+                            return new ClearanceField(bounds, boundary, clearanceMinPx,
+                                    Park.gridDotPx(pxPerMetre));
+                        }
+                    });
+            field = clearanceFields.putIfAbsent(clearanceMinPx, made);
+            if (field == null) {
+                field = made;
+                made.run();
+            }
+        }
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return field.get();
+                } catch (InterruptedException ie) {
+                    //another run is working it out, keep waiting.
+                    interrupted = true;
+                }
+            }
+        } catch (ExecutionException ee) {
+            throw new IllegalStateException(ee.getCause());
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Gets the polygon of the boarder shared by every run. It must not be
+     * changed.
+     *
+     * @return the shared polygon.
+     */
+    Polygon polygon() {
+        return polygon;
+    }
+
+    /**
+     * Gets the snapshot of the boarder the site was prepared from.
+     *
+     * @return the boarder snapshot.
+     */
+    public BoundarySnapshot getBoundary() {
+        return boundary;
+    }
+
+    /**
+     * Gets the polygon of the boarder.
+     *
+     * @return a copy of the polygon.
+     */
+    public Polygon getPolygon() {
+        return new Polygon(polygon.xpoints, polygon.ypoints, polygon.npoints);
+    }
+
+    /**
+     * Gets the box bounding the boarder.
+     *
+     * @return a copy of the bounds (px).
+     */
+    public Rectangle getBounds() {
+        return new Rectangle(bounds);
+    }
+
+    /**
+     * Gets the lines cars can come in through, including lines that are both
+     * an entrance and an exit.
+     *
+     * @return copies of the entrance lines.
+     */
+    public ArrayList<Line2D> getEntrances() {
+        return copyLines(entrances);
+    }
+
+    /**
+     * Gets the lines cars can leave through, including lines that are both
+     * an entrance and an exit.
+     *
+     * @return copies of the exit lines.
+     */
+    public ArrayList<Line2D> getExits() {
+        return copyLines(exits);
+    }
+
+    /**
+     * Gets the holes inside the boarder.
+     *
+     * @return a copy of the list of holes.
+     */
+    public ArrayList<SiteHole> getHoles() {
+        return new ArrayList<SiteHole>(holes);
+    }
+
+    /**
+     * Gets the index of the holes inside the boarder.
+     *
+     * @return the hole index.
+     */
+    public HoleIndex getHoleIndex() {
+        return holeIndex;
+    }
+
+    /**
+     * Gets the scale the site was prepared at.
+     *
+     * @return how many pixels make up a metre.
+     */
+    public double getPxPerMetre() {
+        return pxPerMetre;
+    }
+
+    /**
+     * Copies a list of lines so the originals can't be changed.
+     *
+     * @param lines the lines to copy.
+     * @return the copies.
+     */
+    private static ArrayList<Line2D> copyLines(ArrayList<Line2D> lines) {
+        ArrayList<Line2D> copies = new ArrayList<Line2D>(lines.size());
+        for (int i = 0; i < lines.size(); i++) {
+            copies.add((Line2D) lines.get(i).clone());
+        }
+        return copies;
+    }
+}
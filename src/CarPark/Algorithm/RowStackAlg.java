@@ -0,0 +1,178 @@
+package CarPark.Algorithm;
+
+import CarPark.IO.CarPark;
+import CarPark.UI.BoarderLine;
+import CarPark.UI.Park;
+import java.awt.Polygon;
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Lays out the car park as a stack of rows where each row may use a different
+ * park direction. Rather than fixing one row height for the whole lot, the
+ * number of parks each direction can fit is found for every row position and
+ * dynamic programming picks the stack of rows giving the most parks.
+ *
+ * Rows are filled against a SiteRaster the same way as BitsetParkingAlg, so
+ * a row's count only depends on which rows of grid dots it covers. Each count
+ * is worked out once and shared by every row position covering the same grid
+ * dots, which keeps the whole search to about one raster layout per
+ * direction.
+ *
+ * @author Aydin + Sam
+ */
+public class RowStackAlg extends ParkingAlg {
+
+    //the directions the row stack is allowed to choose between.
+    private static final int[] DIRECTIONS = {Park.DEG0, Park.DEG60, Park.DEG90};
+    //marks a row count that has not been worked out yet.
+    private static final int UNKNOWN = -1;
+    //how many parks each direction fits in a row, by the first row of grid
+    //dots it covers and whether it reaches one grid dot further down.
+    private int[][] rowCounts;
+    private SiteRaster raster;
+    private long[] band;
+
+    /**
+     * Constructor: Sets up the RowStackAlg object with required data.
+     *
+     * @param carParkData the data used to setup carpark spacing and minimum
+     * distances.
+     * @param carParkBoarder the BoarderLines defining the edge of the carpark.
+     * @param parkLayout the object defining the shape of each car park.
+     */
+    public RowStackAlg(CarPark carParkData,
+            ArrayList<BoarderLine> carParkBoarder,
+            Park parkLayout) {
+        super(carParkData, carParkBoarder, parkLayout);
+    }
+
+    /**
+     * Constructor: Sets up the RowStackAlg object with a snapshot of the
+     * boarder.
+     *
+     * @param carParkData the data used to setup carpark spacing and minimum
+     * distances.
+     * @param boundary a snapshot of the edge of the carpark.
+     * @param parkLayout the object defining the shape of each car park.
+     */
+    public RowStackAlg(CarPark carParkData,
+            BoundarySnapshot boundary,
+            Park parkLayout) {
+        super(carParkData, boundary, parkLayout);
+    }
+
+    /**
+     * runs the algorithm and returns an ArrayList of AlgGeneratedParks which
+     * hold the location (in px), rotation and direction of each park.
+     *
+     * @return the ArrayList holding the location and rotation of each park.
+     */
+    @Override
+    public ArrayList<AlgGeneratedPark> runAlg() {
+        ArrayList<AlgGeneratedPark> parkGenLocs = new ArrayList<AlgGeneratedPark>();
+
+        Polygon carParkPolygon = generateParkBoarderPolygon();
+        Rectangle polygonBoundingBox = carParkPolygon.getBounds();
+        raster = new SiteRaster(carParkPolygon,
+                getClearanceField(carParkPolygon), getHoleIndex(), gridDot);
+        band = new long[raster.getWordsPerRow()];
+        int boundingHeight = (int) polygonBoundingBox.getHeight();
+
+        int[] rowHeights = new int[DIRECTIONS.length];
+        rowCounts = new int[DIRECTIONS.length][2 * raster.getRows()];
+        for (int d = 0; d < DIRECTIONS.length; d++) {
+            rowHeights[d] = rowHeight(DIRECTIONS[d]);
+            Arrays.fill(rowCounts[d], UNKNOWN);
+        }
+
+        //best[i] is the most parks that fit from y offset i to the bottom of
+        //the lot. choice[i] is the direction index of the row starting at i
+        //or UNKNOWN if the best thing to do is move down a pixel.
+        int[] best = new int[boundingHeight + 1];
+        int[] choice = new int[boundingHeight + 1];
+        choice[boundingHeight] = UNKNOWN;
+
+        //work from the bottom of the lot up so every row below has been solved.
+        for (int i = boundingHeight - 1; i >= 0; i--) {
+            checkCancelled();
+            //moving down by 1 px is always possible.
+            best[i] = best[i + 1];
+            choice[i] = UNKNOWN;
+
+            for (int d = 0; d < DIRECTIONS.length; d++) {
+                int placed = rowCount(i, d, rowHeights[d]);
+                if (placed > 0) {
+                    int below = i + rowHeights[d];
+                    int total = placed + (below < boundingHeight ? best[below] : 0);
+                    if (total > best[i]) {
+                        best[i] = total;
+                        choice[i] = d;
+                    }
+                }
+            }
+        }
+
+        //walk the chosen stack from the top, placing only the chosen rows.
+        int i = 0;
+        while (i < boundingHeight) {
+            if (choice[i] == UNKNOWN) {
+                i++;
+            } else {
+                parkGenLocs.addAll(fillRow(i, choice[i], rowHeights[choice[i]]));
+                i += rowHeights[choice[i]];
+            }
+        }
+        raster = null;
+        band = null;
+        return removeUnreachable(parkGenLocs, carParkPolygon);
+    }
+
+    /**
+     * how many parks of one direction fit in the row at a y offset. Rows
+     * covering the same grid dots share one count, worked out the first time
+     * it is asked for.
+     *
+     * @param i how far down from the top of the raster the row starts (px).
+     * @param d index into DIRECTIONS.
+     * @param rowHeight height of a row of direction d (px).
+     *
+     * @return the number of parks placed in the row.
+     */
+    private int rowCount(int i, int d, int rowHeight) {
+        int cellSize = gridDot;
+        int firstRow = i / cellSize;
+        int lastRow = (i + rowHeight + cellSize - 1) / cellSize - 1;
+        //a row hanging off the bottom of the lot can't hold anything.
+        if (lastRow >= raster.getRows()) {
+            return 0;
+        }
+        //a row either covers the fewest grid dots it can or one more.
+        int fewest = (rowHeight + cellSize - 1) / cellSize;
+        int key = 2 * firstRow + (lastRow - firstRow + 1 - fewest);
+        if (rowCounts[d][key] == UNKNOWN) {
+            rowCounts[d][key] = fillRow(i, d, rowHeight).size();
+        }
+        return rowCounts[d][key];
+    }
+
+    /**
+     * places as many parks of one direction as fit in the row at a y offset.
+     *
+     * @param i how far down from the top of the raster the row starts (px).
+     * @param d index into DIRECTIONS.
+     * @param rowHeight height of a row of direction d (px).
+     *
+     * @return the parks placed in the row, empty if none fit.
+     */
+    private ArrayList<AlgGeneratedPark> fillRow(int i, int d, int rowHeight) {
+        int cellSize = gridDot;
+        int firstRow = i / cellSize;
+        int lastRow = (i + rowHeight + cellSize - 1) / cellSize - 1;
+        raster.andRows(firstRow, lastRow, band);
+        return BitsetParkingAlg.fillRow(band, raster, raster.getOriginY() + i,
+                determineParkDimensions(0, 0, DIRECTIONS[d]).getWidth(),
+                rowPitch(DIRECTIONS[d]), DIRECTIONS[d]);
+    }
+}
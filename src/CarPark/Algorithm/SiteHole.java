@@ -0,0 +1,53 @@
+package CarPark.Algorithm;
+
+import java.awt.Polygon;
+
+/**
+ * An area inside the car park boarder that parks can't be placed on, such as
+ * a column, planter island, ramp or plant room. Each hole has its own
+ * clearance that parks must keep from it.
+ *
+ * @author Aydin + Sam
+ */
+public class SiteHole {
+
+    /*
+     * The outline of the hole (px)
+     */
+    private Polygon outline;
+    /*
+     * How far parks must stay from the hole (m)
+     */
+    private double clearance;
+
+    /**
+     * Constructor to initialise the instance variables. The setting of the
+     * instance variables is done only once in the lifetime of the object (no
+     * setter methods available).
+     *
+     * @param outline The outline of the hole (px).
+     * @param clearance How far parks must stay from the hole (m).
+     */
+    public SiteHole(Polygon outline, double clearance) {
+        this.outline = new Polygon(outline.xpoints, outline.ypoints, outline.npoints);
+        this.clearance = clearance;
+    }
+
+    /**
+     * The outline of the hole.
+     *
+     * @return a copy of the outline (px).
+     */
+    public Polygon getOutline() {
+        return new Polygon(outline.xpoints, outline.ypoints, outline.npoints);
+    }
+
+    /**
+     * How far parks must stay from the hole.
+     *
+     * @return in metres.
+     */
+    public double getClearance() {
+        return clearance;
+    }
+}
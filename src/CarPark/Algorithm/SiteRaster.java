@@ -0,0 +1,338 @@
+package CarPark.Algorithm;
+
+import java.awt.Polygon;
+import java.awt.Rectangle;
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+
+/**
+ * Splits the car park into 0.2 m grid cells (one grid dot, rounded to a whole
+ * number of pixels at the park scale) and records which
+ * cells a park may cover. Each row of cells is packed into longs, one bit per
+ * cell, so whole rows can be combined and searched 64 cells at a time.
+ *
+ * A cell is free when it lies completely inside the car park boarder, is
+ * further than the entrance/exit clearance from every entrance and exit, and
+ * is clear of every hole.
+ *
+ * @author Aydin + Sam
+ */
+public class SiteRaster {
+
+    //pixels in every grid dot.
+    private int cellSize;
+    private int originX;
+    private int originY;
+    private int cols;
+    private int rows;
+    private int wordsPerRow;
+    //free cells, row after row, wordsPerRow longs to a row.
+    private long[] freeBits;
+
+    /**
+     * Constructor: Rasterises the car park boarder.
+     *
+     * @param carParkPolygon the polygon that defines the shape of the car park.
+     * @param clearanceField the entrance/exit clearance worked out for the
+     * same boarder, or null to leave the clearance free (e.g. for driving).
+     * @param holeIndex the holes inside the boarder.
+     * @param cellSize the size of a grid dot (px), the same as the clearance
+     * field's.
+     */
+    public SiteRaster(Polygon carParkPolygon, ClearanceField clearanceField,
+            HoleIndex holeIndex, int cellSize) {
+        if (clearanceField != null && clearanceField.getCellSize() != cellSize) {
+            throw new IllegalArgumentException("The clearance field is on a different grid.");
+        }
+        this.cellSize = cellSize;
+        Rectangle bounds = carParkPolygon.getBounds();
+        originX = bounds.x;
+        originY = bounds.y;
+        cols = (bounds.width + cellSize - 1) / cellSize;
+        rows = (bounds.height + cellSize - 1) / cellSize;
+        wordsPerRow = (cols + 63) >>> 6;
+        freeBits = new long[rows * wordsPerRow];
+
+        fillInside(carParkPolygon);
+        if (clearanceField != null) {
+            blockClearance(clearanceField);
+        }
+        for (int i = 0; i < holeIndex.getHoleCount(); i++) {
+            blockHole(holeIndex, i);
+        }
+    }
+
+    /**
+     * Marks every cell that lies completely inside the polygon as free. The
+     * boarder corners snap to the grid so a cell is inside when both its top
+     * and bottom edges are inside.
+     *
+     * @param carParkPolygon the polygon that defines the shape of the car park.
+     */
+    private void fillInside(Polygon carParkPolygon) {
+        long[] top = new long[wordsPerRow];
+        long[] bottom = new long[wordsPerRow];
+        double[] crossings = new double[carParkPolygon.npoints];
+
+        for (int r = 0; r < rows; r++) {
+            //just inside the top and bottom of the row so horizontal boarders
+            //sitting on the grid don't count as crossings.
+            double y = originY + r * cellSize;
+            scanLine(carParkPolygon, y + 0.5, crossings, top);
+            scanLine(carParkPolygon, y + cellSize - 0.5, crossings, bottom);
+            int offset = r * wordsPerRow;
+            for (int w = 0; w < wordsPerRow; w++) {
+                freeBits[offset + w] = top[w] & bottom[w];
+            }
+        }
+    }
+
+    /**
+     * Sets the bits of cells lying between boarder crossings of a horizontal
+     * line.
+     *
+     * @param carParkPolygon the polygon that defines the shape of the car park.
+     * @param y the height of the horizontal line (px).
+     * @param crossings scratch space, at least one entry per polygon point.
+     * @param bits where the inside cells are set, cleared first.
+     */
+    private void scanLine(Polygon carParkPolygon, double y, double[] crossings,
+            long[] bits) {
+        Arrays.fill(bits, 0L);
+        int n = carParkPolygon.npoints;
+        int found = 0;
+        for (int i = 0; i < n; i++) {
+            double x1 = carParkPolygon.xpoints[i];
+            double y1 = carParkPolygon.ypoints[i];
+            double x2 = carParkPolygon.xpoints[(i + 1) % n];
+            double y2 = carParkPolygon.ypoints[(i + 1) % n];
+            if ((y1 <= y && y < y2) || (y2 <= y && y < y1)) {
+                crossings[found++] = x1 + (y - y1) * (x2 - x1) / (y2 - y1);
+            }
+        }
+        Arrays.sort(crossings, 0, found);
+        for (int i = 0; i + 1 < found; i += 2) {
+            int first = (int) Math.ceil((crossings[i] - originX) / cellSize);
+            int last = (int) Math.floor((crossings[i + 1] - originX) / cellSize) - 1;
+            setRange(bits, 0, Math.max(first, 0), Math.min(last, cols - 1));
+        }
+    }
+
+    /**
+     * Clears every cell closer than the clearance to an entrance or exit.
+     *
+     * @param clearanceField the entrance/exit clearance for this boarder.
+     */
+    private void blockClearance(ClearanceField clearanceField) {
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                if (clearanceField.isBlocked(c, r)) {
+                    freeBits[r * wordsPerRow + (c >>> 6)] &= ~(1L << c);
+                }
+            }
+        }
+    }
+
+    /**
+     * Clears every cell within the clearance of a hole.
+     *
+     * @param holeIndex the holes inside the boarder.
+     * @param hole the number of the hole to clear.
+     */
+    private void blockHole(HoleIndex holeIndex, int hole) {
+        Rectangle2D grown = holeIndex.getGrownBounds(hole);
+        int firstCol = Math.max(0, (int) Math.floor((grown.getMinX() - originX) / cellSize));
+        int lastCol = Math.min(cols - 1, (int) Math.floor((grown.getMaxX() - originX) / cellSize));
+        int firstRow = Math.max(0, (int) Math.floor((grown.getMinY() - originY) / cellSize));
+        int lastRow = Math.min(rows - 1, (int) Math.floor((grown.getMaxY() - originY) / cellSize));
+
+        Rectangle2D.Double cell = new Rectangle2D.Double();
+        for (int r = firstRow; r <= lastRow; r++) {
+            for (int c = firstCol; c <= lastCol; c++) {
+                cell.setRect(originX + c * cellSize, originY + r * cellSize,
+                        cellSize, cellSize);
+                if (holeIndex.holeIntersects(hole, cell)) {
+                    freeBits[r * wordsPerRow + (c >>> 6)] &= ~(1L << c);
+                }
+            }
+        }
+    }
+
+    /**
+     * ANDs a band of cell rows together, giving the cells that are free in
+     * every row of the band.
+     *
+     * @param firstRow the top row of the band.
+     * @param lastRow the bottom row of the band (inclusive).
+     * @param band receives the combined row, wordsPerRow longs.
+     */
+    public void andRows(int firstRow, int lastRow, long[] band) {
+        Arrays.fill(band, -1L);
+        for (int r = firstRow; r <= lastRow; r++) {
+            int offset = r * wordsPerRow;
+            for (int w = 0; w < wordsPerRow; w++) {
+                band[w] &= freeBits[offset + w];
+            }
+        }
+    }
+
+    /**
+     * Whether a single cell is free.
+     *
+     * @param c the column of the cell.
+     * @param r the row of the cell.
+     * @return true if a park may cover the cell.
+     */
+    public boolean isFree(int c, int r) {
+        if (c < 0 || r < 0 || c >= cols || r >= rows) {
+            return false;
+        }
+        return (freeBits[r * wordsPerRow + (c >>> 6)] & (1L << c)) != 0;
+    }
+
+    /**
+     * Finds the first bit at or after an index that is set.
+     *
+     * @param bits the packed bits.
+     * @param from the index to start looking from.
+     * @return the index of the set bit, or -1 if there are none.
+     */
+    public static int nextSetBit(long[] bits, int from) {
+        int w = from >>> 6;
+        if (w >= bits.length) {
+            return -1;
+        }
+        long word = bits[w] & (-1L << from);
+        while (word == 0) {
+            if (++w == bits.length) {
+                return -1;
+            }
+            word = bits[w];
+        }
+        return (w << 6) + Long.numberOfTrailingZeros(word);
+    }
+
+    /**
+     * Finds the first bit at or after an index that is clear.
+     *
+     * @param bits the packed bits.
+     * @param from the index to start looking from.
+     * @return the index of the clear bit, which may be past the last word.
+     */
+    public static int nextClearBit(long[] bits, int from) {
+        int w = from >>> 6;
+        if (w >= bits.length) {
+            return from;
+        }
+        long word = ~bits[w] & (-1L << from);
+        while (word == 0) {
+            if (++w == bits.length) {
+                return w << 6;
+            }
+            word = ~bits[w];
+        }
+        return (w << 6) + Long.numberOfTrailingZeros(word);
+    }
+
+    /**
+     * Finds the start of the first run of set bits at least a given length,
+     * jumping whole words of clear or set bits at a time.
+     *
+     * @param bits the packed bits.
+     * @param from the index to start looking from.
+     * @param length how many set bits in a row are needed.
+     * @return the index the run starts at, or -1 if there is no such run.
+     */
+    public static int nextRun(long[] bits, int from, int length) {
+        int start = nextSetBit(bits, from);
+        while (start != -1) {
+            int end = nextClearBit(bits, start);
+            if (end - start >= length) {
+                return start;
+            }
+            start = nextSetBit(bits, end);
+        }
+        return -1;
+    }
+
+    /**
+     * Sets an inclusive range of bits.
+     *
+     * @param bits the packed bits.
+     * @param offset the index of the first long of the row.
+     * @param first the first bit to set.
+     * @param last the last bit to set.
+     */
+    private static void setRange(long[] bits, int offset, int first, int last) {
+        if (first > last) {
+            return;
+        }
+        int firstWord = first >>> 6;
+        int lastWord = last >>> 6;
+        long firstMask = -1L << first;
+        long lastMask = -1L >>> (63 - (last & 63));
+        if (firstWord == lastWord) {
+            bits[offset + firstWord] |= firstMask & lastMask;
+        } else {
+            bits[offset + firstWord] |= firstMask;
+            for (int w = firstWord + 1; w < lastWord; w++) {
+                bits[offset + w] = -1L;
+            }
+            bits[offset + lastWord] |= lastMask;
+        }
+    }
+
+    /**
+     * How big a cell is.
+     *
+     * @return the size of a grid dot (px).
+     */
+    public int getCellSize() {
+        return cellSize;
+    }
+
+    /**
+     * Where the grid starts across the car park.
+     *
+     * @return the x location of the left of the first column (px).
+     */
+    public int getOriginX() {
+        return originX;
+    }
+
+    /**
+     * Where the grid starts down the car park.
+     *
+     * @return the y location of the top of the first row (px).
+     */
+    public int getOriginY() {
+        return originY;
+    }
+
+    /**
+     * How many columns of cells the grid has.
+     *
+     * @return the number of columns of cells.
+     */
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * How many rows of cells the grid has.
+     *
+     * @return the number of rows of cells.
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * How many longs hold one row of cells.
+     *
+     * @return the number of longs needed to hold one row of cells.
+     */
+    public int getWordsPerRow() {
+        return wordsPerRow;
+    }
+}
@@ -0,0 +1,203 @@
+package CarPark.Algorithm;
+
+import CarPark.IO.CarPark;
+import CarPark.UI.Park;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * The park count of every combination tried by a ParameterSweep, along with
+ * the Pareto front of park count against stall size: the combinations where
+ * no other combination gives both as many parks and a stall at least as big.
+ *
+ * @author Aydin + Sam
+ */
+public class SweepResult {
+
+    private CarPark.requiredTagNames[] tags;
+    //[combination][swept dimension] (m).
+    private double[][] values;
+    private CarPark[] data;
+    private int[] capacities;
+    private double[] stallAreas;
+    //combinations on the Pareto front, smallest stall first.
+    private int[] front;
+
+    /**
+     * Constructor: Holds the results of a sweep and finds the Pareto front.
+     *
+     * @param tags the dimensions that were swept.
+     * @param values the value of each swept dimension in each combination.
+     * @param data the car park data of each combination.
+     * @param capacities the park count of each combination.
+     * @param direction the direction parks were laid out in, -1 if each row
+     * picked its own, in which case the smallest stall is used.
+     */
+    SweepResult(CarPark.requiredTagNames[] tags, double[][] values,
+            CarPark[] data, int[] capacities, int direction) {
+        this.tags = tags;
+        this.values = values;
+        this.data = data;
+        this.capacities = capacities;
+        stallAreas = new double[data.length];
+        for (int c = 0; c < data.length; c++) {
+            stallAreas[c] = stallArea(data[c], direction);
+        }
+        front = paretoFront();
+    }
+
+    /**
+     * The floor area of a single stall, not counting manoeuvring space.
+     *
+     * @param data the car park data.
+     * @param direction Park.DEG0, Park.DEG60 or Park.DEG90, -1 for the
+     * smallest of the three.
+     * @return the area (m^2).
+     */
+    private static double stallArea(CarPark data, int direction) {
+        double area0 = data.getAngle0Width() * data.getAngle0Length();
+        double area60 = data.getAngle60Width() * data.getAngle60Depth();
+        double area90 = data.getAngle90Width() * data.getAngle90Depth();
+        switch (direction) {
+            case Park.DEG0:
+                return area0;
+            case Park.DEG60:
+                return area60;
+            case Park.DEG90:
+                return area90;
+            default:
+                return Math.min(area0, Math.min(area60, area90));
+        }
+    }
+
+    /**
+     * Finds the combinations no other combination beats on both park count
+     * and stall size. Going from the biggest stall down, a combination is on
+     * the front if it has more parks than every bigger stall did.
+     *
+     * @return the combinations on the front, smallest stall first.
+     */
+    private int[] paretoFront() {
+        Integer[] order = new Integer[capacities.length];
+        for (int c = 0; c < order.length; c++) {
+            order[c] = c;
+        }
+        //biggest stall first, most parks first between equal stalls.
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                int byArea = Double.compare(stallAreas[b], stallAreas[a]);
+                return byArea != 0 ? byArea : capacities[b] - capacities[a];
+            }
+        });
+        ArrayList<Integer> onFront = new ArrayList<Integer>();
+        int best = -1;
+        for (int k = 0; k < order.length; k++) {
+            if (capacities[order[k]] > best) {
+                best = capacities[order[k]];
+                onFront.add(order[k]);
+            }
+        }
+        int[] result = new int[onFront.size()];
+        for (int k = 0; k < result.length; k++) {
+            result[k] = onFront.get(result.length - 1 - k);
+        }
+        return result;
+    }
+
+    /**
+     * Gets how many combinations were laid out.
+     *
+     * @return the number of combinations.
+     */
+    public int getCombinationCount() {
+        return capacities.length;
+    }
+
+    /**
+     * Gets the car park data a combination was laid out with.
+     *
+     * @param combination the combination number.
+     * @return the car park data.
+     */
+    public CarPark getCarPark(int combination) {
+        return data[combination];
+    }
+
+    /**
+     * Gets how many parks fitted for a combination.
+     *
+     * @param combination the combination number.
+     * @return the number of parks.
+     */
+    public int getCapacity(int combination) {
+        return capacities[combination];
+    }
+
+    /**
+     * Gets the floor area of one stall for a combination.
+     *
+     * @param combination the combination number.
+     * @return the area (m^2).
+     */
+    public double getStallArea(int combination) {
+        return stallAreas[combination];
+    }
+
+    /**
+     * Gets the combinations on the Pareto front of park count against stall
+     * size.
+     *
+     * @return the combination numbers, smallest stall first.
+     */
+    public int[] getParetoFront() {
+        return front.clone();
+    }
+
+    /**
+     * Writes out a table of every combination followed by the Pareto front.
+     *
+     * @return the report.
+     */
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder();
+        appendHeader(report);
+        for (int c = 0; c < capacities.length; c++) {
+            appendRow(report, c);
+        }
+        report.append(String.format("%nPareto front (%d of %d)%n", front.length, capacities.length));
+        appendHeader(report);
+        for (int k = 0; k < front.length; k++) {
+            appendRow(report, front[k]);
+        }
+        return report.toString();
+    }
+
+    /**
+     * Writes the column names of the table.
+     *
+     * @param report where to write them.
+     */
+    private void appendHeader(StringBuilder report) {
+        for (int t = 0; t < tags.length; t++) {
+            report.append(String.format("%-20s ", tags[t].toString()));
+        }
+        report.append(String.format("%-12s %s%n", "STALL AREA", "PARKS"));
+    }
+
+    /**
+     * Writes one combination as a row of the table.
+     *
+     * @param report where to write it.
+     * @param combination the combination number.
+     */
+    private void appendRow(StringBuilder report, int combination) {
+        for (int t = 0; t < tags.length; t++) {
+            report.append(String.format("%-20.2f ", values[combination][t]));
+        }
+        report.append(String.format("%-12.2f %d%n", stallAreas[combination],
+                capacities[combination]));
+    }
+}
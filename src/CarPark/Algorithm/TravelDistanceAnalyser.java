@@ -0,0 +1,142 @@
+package CarPark.Algorithm;
+
+import CarPark.IO.CarPark;
+import CarPark.UI.BoarderLine;
+import CarPark.UI.Park;
+import java.awt.Polygon;
+import java.awt.geom.Line2D;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Measures how far a car drives from the entrances to each park of a
+ * generated layout. A single breadth first search over the layout's
+ * AisleGraph starts from every entrance at once, so every park's distance
+ * comes out of one search rather than one search per park.
+ *
+ * The aisle graph only depends on the boarder's shape, the holes and the
+ * parks, not on which lines are entrances, so the last graph is kept and
+ * reused while those stay the same.
+ *
+ * @author Aydin + Sam
+ */
+public class TravelDistanceAnalyser {
+
+    private CarPark carParkData;
+    private Park parkLayout;
+    //the last aisle graph built and the geometry it was built from.
+    private double[] graphKey;
+    private AisleGraph graph;
+
+    /**
+     * Constructor: Sets up the TravelDistanceAnalyser object with required
+     * data.
+     *
+     * @param carParkData the data used to setup carpark spacing and minimum
+     * distances.
+     * @param parkLayout the object defining the shape of each car park.
+     */
+    public TravelDistanceAnalyser(CarPark carParkData, Park parkLayout) {
+        this.carParkData = carParkData;
+        this.parkLayout = parkLayout;
+    }
+
+    /**
+     * Works out the driving distance from the nearest entrance to each park.
+     *
+     * @param carParkBoarder the BoarderLines defining the edge of the carpark.
+     * @param holes the holes inside the car park.
+     * @param parks the parks placed by a parking algorithm.
+     * @return the distance to each park.
+     */
+    public TravelDistances measure(ArrayList<BoarderLine> carParkBoarder,
+            ArrayList<SiteHole> holes, ArrayList<AlgGeneratedPark> parks) {
+        ParkingAlg alg = new ParkingAlg(carParkData, carParkBoarder, parkLayout);
+        alg.setHoles(holes);
+        double laneWidthPx = alg.laneWidthPx();
+
+        int n = parks.size();
+        double[] key = geometryKey(carParkBoarder, holes, parks, laneWidthPx);
+        if (graph == null || !Arrays.equals(key, graphKey)) {
+            ArrayList<Rectangle2D> stalls = new ArrayList<Rectangle2D>(n);
+            for (int i = 0; i < n; i++) {
+                stalls.add(alg.stallBounds(parks.get(i)));
+            }
+            Polygon carParkPolygon = alg.generateParkBoarderPolygon();
+            SiteRaster raster = new SiteRaster(carParkPolygon, null, alg.getHoleIndex(),
+                    parkLayout.getGridDotPx());
+            graph = new AisleGraph(raster, stalls, laneWidthPx);
+            graphKey = key;
+        }
+
+        ArrayList<Line2D> entrances = new ArrayList<Line2D>();
+        for (int i = 0; i < carParkBoarder.size(); i++) {
+            int state = carParkBoarder.get(i).getState();
+            if (state == BoarderLine.ENT || state == BoarderLine.ENTEXIT) {
+                entrances.add(carParkBoarder.get(i).getLine());
+            }
+        }
+        //the middle of the nearest lane is about half a lane in from an
+        //entrance, allow a couple of grid dots for rounding.
+        int[] steps = graph.distancesFrom(graph.cellsNear(entrances,
+                laneWidthPx / 2 + 2 * parkLayout.getGridDotPx()));
+
+        double metresPerStep = parkLayout.getGridDotPx() / parkLayout.getPxPerMetre();
+        double[] distances = new double[n];
+        for (int i = 0; i < n; i++) {
+            int best = graph.minStepsWithin(steps, alg.aisleBounds(parks.get(i)));
+            distances[i] = best == -1 ? -1 : best * metresPerStep;
+        }
+        return new TravelDistances(distances);
+    }
+
+    /**
+     * Flattens everything the aisle graph is built from so two layouts can
+     * be compared.
+     *
+     * @param carParkBoarder the BoarderLines defining the edge of the carpark.
+     * @param holes the holes inside the car park.
+     * @param parks the parks placed by a parking algorithm.
+     * @param laneWidthPx how wide a gap a car needs (px).
+     * @return the key.
+     */
+    private static double[] geometryKey(ArrayList<BoarderLine> carParkBoarder,
+            ArrayList<SiteHole> holes, ArrayList<AlgGeneratedPark> parks,
+            double laneWidthPx) {
+        int length = 4 + carParkBoarder.size() * 4 + parks.size() * 3;
+        for (int i = 0; i < holes.size(); i++) {
+            length += 2 + holes.get(i).getOutline().npoints * 2;
+        }
+        double[] key = new double[length];
+        int k = 0;
+        key[k++] = laneWidthPx;
+        key[k++] = carParkBoarder.size();
+        for (int i = 0; i < carParkBoarder.size(); i++) {
+            BoarderLine line = carParkBoarder.get(i);
+            key[k++] = line.getP1().getX();
+            key[k++] = line.getP1().getY();
+            key[k++] = line.getP2().getX();
+            key[k++] = line.getP2().getY();
+        }
+        key[k++] = holes.size();
+        for (int i = 0; i < holes.size(); i++) {
+            Polygon outline = holes.get(i).getOutline();
+            key[k++] = holes.get(i).getClearance();
+            key[k++] = outline.npoints;
+            for (int j = 0; j < outline.npoints; j++) {
+                key[k++] = outline.xpoints[j];
+                key[k++] = outline.ypoints[j];
+            }
+        }
+        key[k++] = parks.size();
+        for (int i = 0; i < parks.size(); i++) {
+            Point2D.Double position = parks.get(i).getParkPosition();
+            key[k++] = position.getX();
+            key[k++] = position.getY();
+            key[k++] = parks.get(i).getParkDirection();
+        }
+        return key;
+    }
+}
@@ -0,0 +1,123 @@
+package CarPark.Algorithm;
+
+import java.util.Arrays;
+
+/**
+ * The driving distance from the nearest entrance to each park of a layout,
+ * with the summaries used to rank layouts.
+ *
+ * @author Aydin + Sam
+ */
+public class TravelDistances {
+
+    //distance to each park (m), -1 for parks that can't be reached.
+    private double[] distances;
+    //distances of the parks that can be reached, in increasing order (m).
+    private double[] sorted;
+
+    /**
+     * Constructor: Holds the distance to each park.
+     *
+     * @param distances the distance to each park in metres, -1 for parks that
+     * can't be reached.
+     */
+    TravelDistances(double[] distances) {
+        this.distances = distances;
+        int reached = 0;
+        for (int i = 0; i < distances.length; i++) {
+            if (distances[i] >= 0) {
+                reached++;
+            }
+        }
+        sorted = new double[reached];
+        int k = 0;
+        for (int i = 0; i < distances.length; i++) {
+            if (distances[i] >= 0) {
+                sorted[k++] = distances[i];
+            }
+        }
+        Arrays.sort(sorted);
+    }
+
+    /**
+     * Gets the distance to one park.
+     *
+     * @param park the park's place in the list given to the analyser.
+     * @return the distance (m), -1 if the park can't be reached.
+     */
+    public double getDistance(int park) {
+        return distances[park];
+    }
+
+    /**
+     * Gets the distance to every park.
+     *
+     * @return the distances in park order (m), -1 for parks that can't be
+     * reached.
+     */
+    public double[] getDistances() {
+        return Arrays.copyOf(distances, distances.length);
+    }
+
+    /**
+     * Gets how many parks can't be reached from an entrance.
+     *
+     * @return the number of unreachable parks.
+     */
+    public int getUnreachableCount() {
+        return distances.length - sorted.length;
+    }
+
+    /**
+     * Gets the mean distance to the parks that can be reached.
+     *
+     * @return the mean distance (m), 0 if there are none.
+     */
+    public double getMean() {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        double sum = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            sum += sorted[i];
+        }
+        return sum / sorted.length;
+    }
+
+    /**
+     * Gets the distance to the furthest park that can be reached.
+     *
+     * @return the longest distance (m), 0 if there are none.
+     */
+    public double getMax() {
+        return sorted.length == 0 ? 0 : sorted[sorted.length - 1];
+    }
+
+    /**
+     * Gets a percentile of the distance to the parks that can be reached,
+     * using the nearest rank.
+     *
+     * @param percent the percentile from 0 to 100.
+     * @return the distance (m), 0 if there are none.
+     */
+    public double getPercentile(double percent) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percent / 100 * sorted.length) - 1;
+        rank = Math.max(0, Math.min(sorted.length - 1, rank));
+        return sorted[rank];
+    }
+
+    /**
+     * Writes the summaries out as text.
+     *
+     * @return the summary.
+     */
+    @Override
+    public String toString() {
+        return String.format("Entrance to park: mean %.1f m, median %.1f m, 90%% %.1f m, furthest %.1f m, %d unreachable",
+                getMean(), getPercentile(50), getPercentile(90), getMax(),
+                getUnreachableCount());
+    }
+}
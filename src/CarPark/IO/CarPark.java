@@ -213,4 +213,55 @@ public class CarPark {
     public double getAngle60SpaceMin() {
         return angle60SpaceMin;
     }
+
+    /**
+     * Gets the dimension stored for one of the tags.
+     *
+     * @param tag which dimension to get.
+     * @return in metres.
+     */
+    public double getValue(requiredTagNames tag) {
+        switch (tag) {
+            case ENTRY_WIDTH_MIN:
+                return entryWidthMin;
+            case ENTRY_CLEARANCE_MIN:
+                return clearanceMin;
+            case ANGLE0_WIDTH:
+                return angle0Width;
+            case ANGLE0_LENGTH:
+                return angle0Length;
+            case ANGLE0_SPACE_MIN:
+                return angle0SpaceMin;
+            case ANGLE90_WIDTH:
+                return angle90Width;
+            case ANGLE90_DEPTH:
+                return angle90Depth;
+            case ANGLE90_SPACE_MIN:
+                return angle90SpaceMin;
+            case ANGLE60_WIDTH:
+                return angle60Width;
+            case ANGLE60_DEPTH:
+                return angle60Depth;
+            default: //case ANGLE60_SPACE_MIN:
+                return angle60SpaceMin;
+        }
+    }
+
+    /**
+     * Makes a copy of this car park data with one dimension changed. The
+     * object itself is never changed.
+     *
+     * @param tag which dimension to change.
+     * @param value the new dimension in metres.
+     * @return the changed copy.
+     */
+    public CarPark withValue(requiredTagNames tag, double value) {
+        requiredTagNames[] tags = requiredTagNames.values();
+        double[] data = new double[tags.length];
+        for (int i = 0; i < tags.length; i++) {
+            data[i] = tags[i] == tag ? value : getValue(tags[i]);
+        }
+        return new CarPark(data[0], data[1], data[2], data[3], data[4],
+                data[5], data[6], data[7], data[8], data[9], data[10]);
+    }
 }
\ No newline at end of file
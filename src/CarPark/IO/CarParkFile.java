@@ -5,8 +5,8 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
 import java.text.ParseException;
-import java.util.ArrayList;
-import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 
 /**
  * Reads in and parses car park data from a chosen text file. The old standard
@@ -14,16 +14,31 @@ import java.util.EnumMap;
  * and Computer Engineering department computers are not compatible with "New
  * IO" library since they are using Java 1.6 rather than 1.7.
  *
+ * Files are parsed a line at a time as they are read, looking each tag up in
+ * a table built once, so large bundles of profiles are never held in memory
+ * as lines. A bundle holds many named profiles, each starting with a
+ * "[PROFILE name]" line followed by the usual tags.
+ *
  * @author Aydin Arik
  */
 public class CarParkFile {
 
+    //the tag that starts a new profile in a bundle file.
+    private static final String PROFILE_TAG = "PROFILE";
+    private static final int TAG_COUNT = CarPark.requiredTagNames.values().length;
+    //tag name to tag, built once for every file read.
+    private static final HashMap<String, CarPark.requiredTagNames> TAGS =
+            new HashMap<String, CarPark.requiredTagNames>();
+
+    static {
+        for (CarPark.requiredTagNames anEnum : CarPark.requiredTagNames.values()) {
+            TAGS.put(anEnum.toString(), anEnum);
+        }
+    }
+
     /**
-     * Reads a car park data text file and stores/ returns all lines of
-     * interest. Within this method FileIO is done and any lines with only
-     * whitespaces are removed. After removing whitespaces,
-     * "extractRequiredData" method is called to filter out all lines which are
-     * irrelevant to the car park designer tool.
+     * Reads a car park data text file and returns the car park it describes.
+     * Lines with only whitespaces and lines without a valid tag are ignored.
      *
      * @param file car park data text file that needs to be read and parsed.
      *
@@ -37,133 +52,222 @@ public class CarParkFile {
     public CarPark readFile(File file) throws ParseException, IOException {
         // Set up buffer and steams to file.
         BufferedReader bufferedCarParkFileReader = new BufferedReader(new FileReader(file));
-
-        // Read all the lines of the file into an ArrayList.
-        ArrayList<String> linesOfCarParkData = new ArrayList<String>();
-        String aLineOfCarParkData = null;
-        while ((aLineOfCarParkData = bufferedCarParkFileReader.readLine()) != null) {
-
-            //Ignore lines with only whitespaces.
-            if (aLineOfCarParkData.trim().length() != 0) {
-                linesOfCarParkData.add(aLineOfCarParkData);
+        try {
+            ProfileData profile = new ProfileData(null);
+            String aLineOfCarParkData;
+            int lineNumber = 0;
+            while ((aLineOfCarParkData = bufferedCarParkFileReader.readLine()) != null) {
+                lineNumber++;
+                parseLine(aLineOfCarParkData, lineNumber, profile);
             }
+            return storeCarParkData(profile);
+        } finally {
+            bufferedCarParkFileReader.close();
         }
-        bufferedCarParkFileReader.close();
-
-        //Parsing car park data from text file.
-        EnumMap<CarPark.requiredTagNames, Double> data = extractRequiredData(linesOfCarParkData);
-
-        return storeCarParkData(data);
     }
 
     /**
-     * Filters out all lines from a car park data text file which have valid
-     * tags and values, then stores/ returns them. A single occurrence of each
-     * of the valid tags results in the file being considered as correctly
-     * formated. Any less or more than one tag for each type of valid tag result
-     * in the file being considered as incorrectly formatted. All other lines
-     * without tags are ignored.
+     * Reads a bundle of named car park profiles. Each profile starts with a
+     * "[PROFILE name]" line and must have a single occurrence of each of the
+     * valid tags, the same as a single car park data file. Lines before the
+     * first profile without a tag are ignored.
      *
-     * @param linesOfCarParkData lines from the car park data file with all
-     * whitespaces removed.
-     * @return an EnumMap which holds information (tag name and number) on each
-     * type of valid tag.
-     * @throws ParseException If there are zero or more than one of the required
-     * pieces of data detected in the car park data file.
+     * @param file the bundle text file that needs to be read and parsed.
+     *
+     * @return the profiles by name, in the order they are in the file.
+     *
+     * @throws ParseException If a profile has zero or more than one of the
+     * required pieces of data, two profiles share a name, a profile has no
+     * name or a tag comes before the first profile.
+     * @throws IOException If there is a read failure on the text file chosen.
      */
-    private EnumMap<CarPark.requiredTagNames, Double> extractRequiredData(ArrayList<String> linesOfCarParkData) throws ParseException {
-
-        EnumMap<CarPark.requiredTagNames, Double> em = new EnumMap<CarPark.requiredTagNames, Double>(CarPark.requiredTagNames.class);
-
-        //Parsing lines from file.
-        String extractedTagName = null;
-        String extractedTagValue = null;
-        String[] splitLine = new String[2];
-
-        //Iterating through each line of characters found in text file.
-        for (int i = 0; i < linesOfCarParkData.size(); i++) {
-
-            //Check if tag has both types of square brackets.
-            if ((linesOfCarParkData.get(i).contains("["))
-                    && (linesOfCarParkData.get(i).contains("]"))) {
-
-                //This removes the "]" character from the tag and separate the
-                //tag name from it's number.
-                splitLine = linesOfCarParkData.get(i).split("]", 2);
-
-                //Remove "[" from the tag name and excess frontal whitespacing.
-                extractedTagName = splitLine[0].replace("[", "").trim();
-
-                //Remove all excess whitespacing in around number.
-                extractedTagValue = splitLine[1].trim();
-
-                //Ensures only one of each valid tag exists in text file and validates 
-                //their numbers as non-negative numerical values. For loop goes
-                //through all possible valid tags.
-                for (CarPark.requiredTagNames anEnum : CarPark.requiredTagNames.values()) {
-
-                    //If tag match has been found and if there is anything after a 
-                    //tag found (hopefully a non-negative number).
-                    if ((extractedTagName.equals(anEnum.toString())
-                            && (extractedTagValue.length() != 0))) {
-                        try {
-                            //Does this tag already exist in the EnumMap???
-                            if (em.containsKey(anEnum)) {
-                                throw new ParseException("Too many \"" + anEnum.toString() + "\" tags found in selected file. Please ensure only one of these tags are in the file, then try again.", 2);
-                            } 
-                            //Attempt to convert extracted tag value from a string to double and see if it is negative.
-                            else if (Double.parseDouble(extractedTagValue) < 0) {
-                                break;//stop checking and skip to next line of file.
-                            }
-                            //Store value since it is of correct format.
-                            else {
-                                em.put(anEnum, Double.parseDouble(extractedTagValue));
-                                break;//stop checking and skip to next line of file.
-                            }
-                        } 
-                        //Ignore line containing an invalid non-numerical values.
-                        catch (NumberFormatException nfe) {
-                            break;//stop checking and skip to next line of file.
-                        }
+    public LinkedHashMap<String, CarPark> readBundle(File file) throws ParseException, IOException {
+        LinkedHashMap<String, CarPark> profiles = new LinkedHashMap<String, CarPark>();
+        BufferedReader bufferedCarParkFileReader = new BufferedReader(new FileReader(file));
+        try {
+            ProfileData profile = null;
+            String aLineOfCarParkData;
+            int lineNumber = 0;
+            while ((aLineOfCarParkData = bufferedCarParkFileReader.readLine()) != null) {
+                lineNumber++;
+                String name = profileName(aLineOfCarParkData, lineNumber);
+                if (name != null) {
+                    if (profile != null) {
+                        profiles.put(profile.name, storeCarParkData(profile));
                     }
+                    if (profiles.containsKey(name)) {
+                        throw new ParseException("Profile \"" + name + "\" is in the selected file more than once (line " + lineNumber + "). Please give each profile its own name, then try again.", lineNumber);
+                    }
+                    profile = new ProfileData(name);
+                } else if (profile != null) {
+                    parseLine(aLineOfCarParkData, lineNumber, profile);
+                } else if (tagOf(aLineOfCarParkData) != null) {
+                    throw new ParseException("The \"" + tagOf(aLineOfCarParkData) + "\" tag on line " + lineNumber + " comes before the first [" + PROFILE_TAG + " name] line. Please start each profile with its name, then try again.", lineNumber);
                 }
             }
+            if (profile != null) {
+                profiles.put(profile.name, storeCarParkData(profile));
+            }
+            return profiles;
+        } finally {
+            bufferedCarParkFileReader.close();
         }
+    }
 
-        // Check all tags are there.
-        for (CarPark.requiredTagNames anEnum : CarPark.requiredTagNames.values()) {
-            //If a valid tags is not found in file.
-            if (!em.containsKey(anEnum)) {
-                throw new ParseException("No \"" + anEnum.toString() + "\" tags found in selected file. Please add this tag to the file and ensure you are using a non-negative number for it's dimention, then try again.", 0);
-            }
+    /**
+     * Parses a single line of a car park data file. A line holding one of the
+     * valid tags followed by a non-negative number has its number stored.
+     * All other lines are ignored. A single occurrence of each of the valid
+     * tags results in the profile being considered as correctly formatted.
+     *
+     * @param line a line from the car park data file.
+     * @param lineNumber where the line is in the file, from 1.
+     * @param profile the profile the line belongs to.
+     * @throws ParseException If the tag on the line has already been found
+     * for this profile.
+     */
+    private void parseLine(String line, int lineNumber, ProfileData profile) throws ParseException {
+        //Check if tag has both types of square brackets.
+        int close = line.indexOf(']');
+        if (close == -1 || line.indexOf('[') == -1) {
+            return;
         }
 
-        return em;
-        
-    }//  return carParkTags;
+        //Remove "[" from the tag name and excess whitespacing, then look the
+        //tag up.
+        CarPark.requiredTagNames anEnum = TAGS.get(line.substring(0, close).replace("[", "").trim());
+
+        //Remove all excess whitespacing in around number.
+        String extractedTagValue = line.substring(close + 1).trim();
+
+        //If no tag match has been found or there is nothing after the tag.
+        if (anEnum == null || extractedTagValue.length() == 0) {
+            return;
+        }
+
+        //Does this tag already exist for this profile???
+        int tag = anEnum.ordinal();
+        if (profile.found[tag]) {
+            throw new ParseException(profile.describe() + "Too many \"" + anEnum.toString() + "\" tags found in selected file (line " + lineNumber + "). Please ensure only one of these tags are in the file, then try again.", lineNumber);
+        }
+        double value;
+        try {
+            value = Double.parseDouble(extractedTagValue);
+        } //Ignore line containing an invalid non-numerical values.
+        catch (NumberFormatException nfe) {
+            return;
+        }
+        //Store value if it is non-negative.
+        if (value >= 0) {
+            profile.values[tag] = value;
+            profile.found[tag] = true;
+        }
+    }
+
+    /**
+     * Finds the tag name on a line.
+     *
+     * @param line a line from the car park data file.
+     * @return the tag name, null if the line has no valid tag.
+     */
+    private String tagOf(String line) {
+        int close = line.indexOf(']');
+        if (close == -1 || line.indexOf('[') == -1) {
+            return null;
+        }
+        String name = line.substring(0, close).replace("[", "").trim();
+        return TAGS.containsKey(name) ? name : null;
+    }
+
+    /**
+     * Reads the profile name off a "[PROFILE name]" line.
+     *
+     * @param line a line from the bundle file.
+     * @param lineNumber where the line is in the file, from 1.
+     * @return the profile name, null if the line doesn't start a profile.
+     * @throws ParseException If the profile has no name.
+     */
+    private String profileName(String line, int lineNumber) throws ParseException {
+        int close = line.indexOf(']');
+        if (close == -1 || line.indexOf('[') == -1
+                || line.substring(close + 1).trim().length() != 0) {
+            return null;
+        }
+        String tag = line.substring(0, close).replace("[", "").trim();
+        if (!tag.startsWith(PROFILE_TAG)
+                || (tag.length() > PROFILE_TAG.length()
+                && !Character.isWhitespace(tag.charAt(PROFILE_TAG.length())))) {
+            return null;
+        }
+        String name = tag.substring(PROFILE_TAG.length()).trim();
+        if (name.length() == 0) {
+            throw new ParseException("The profile on line " + lineNumber + " has no name. Please name it like \"[" + PROFILE_TAG + " name]\", then try again.", lineNumber);
+        }
+        return name;
+    }
 
     /**
-     * Stores all relevant car park data found from car park data text file into
-     * a CarPark object.
+     * Stores all relevant car park data found for a profile into a CarPark
+     * object, once it is checked to have every tag.
      *
-     * @param data an EnumMap of relevant data.
+     * @param profile the data found for the profile.
      * @return a CarPark object which stores the data.
+     * @throws ParseException If a valid tag was not found for the profile.
      */
-    private CarPark storeCarParkData(EnumMap<CarPark.requiredTagNames, Double> data) {
+    private CarPark storeCarParkData(ProfileData profile) throws ParseException {
 
+        // Check all tags are there.
+        for (CarPark.requiredTagNames anEnum : CarPark.requiredTagNames.values()) {
+            //If a valid tags is not found in file.
+            if (!profile.found[anEnum.ordinal()]) {
+                throw new ParseException(profile.describe() + "No \"" + anEnum.toString() + "\" tags found in selected file. Please add this tag to the file and ensure you are using a non-negative number for it's dimention, then try again.", 0);
+            }
+        }
+
+        double[] data = profile.values;
         CarPark storage = new CarPark(
-                data.get(CarPark.requiredTagNames.ENTRY_WIDTH_MIN),
-                data.get(CarPark.requiredTagNames.ENTRY_CLEARANCE_MIN),
-                data.get(CarPark.requiredTagNames.ANGLE0_WIDTH),
-                data.get(CarPark.requiredTagNames.ANGLE0_LENGTH),
-                data.get(CarPark.requiredTagNames.ANGLE0_SPACE_MIN),
-                data.get(CarPark.requiredTagNames.ANGLE90_WIDTH),
-                data.get(CarPark.requiredTagNames.ANGLE90_DEPTH),
-                data.get(CarPark.requiredTagNames.ANGLE90_SPACE_MIN),
-                data.get(CarPark.requiredTagNames.ANGLE60_WIDTH),
-                data.get(CarPark.requiredTagNames.ANGLE60_DEPTH),
-                data.get(CarPark.requiredTagNames.ANGLE60_SPACE_MIN));
+                data[CarPark.requiredTagNames.ENTRY_WIDTH_MIN.ordinal()],
+                data[CarPark.requiredTagNames.ENTRY_CLEARANCE_MIN.ordinal()],
+                data[CarPark.requiredTagNames.ANGLE0_WIDTH.ordinal()],
+                data[CarPark.requiredTagNames.ANGLE0_LENGTH.ordinal()],
+                data[CarPark.requiredTagNames.ANGLE0_SPACE_MIN.ordinal()],
+                data[CarPark.requiredTagNames.ANGLE90_WIDTH.ordinal()],
+                data[CarPark.requiredTagNames.ANGLE90_DEPTH.ordinal()],
+                data[CarPark.requiredTagNames.ANGLE90_SPACE_MIN.ordinal()],
+                data[CarPark.requiredTagNames.ANGLE60_WIDTH.ordinal()],
+                data[CarPark.requiredTagNames.ANGLE60_DEPTH.ordinal()],
+                data[CarPark.requiredTagNames.ANGLE60_SPACE_MIN.ordinal()]);
 
         return storage;
     }
-}
\ No newline at end of file
+
+    /**
+     * The tag values found so far for one profile.
+     */
+    private static class ProfileData {
+
+        private String name;
+        //value and whether it has been found, by tag ordinal.
+        private double[] values = new double[TAG_COUNT];
+        private boolean[] found = new boolean[TAG_COUNT];
+
+        /**
+         * Constructor: Starts a profile with no tags found.
+         *
+         * @param name the profile name, null for a single car park file.
+         */
+        ProfileData(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Names the profile at the start of an error message.
+         *
+         * @return the profile name and a separator, empty for a single car
+         * park file.
+         */
+        String describe() {
+            return name == null ? "" : "Profile \"" + name + "\": ";
+        }
+    }
+}
@@ -0,0 +1,754 @@
+package CarPark.IO;
+
+import CarPark.Algorithm.BoundarySnapshot;
+import CarPark.UI.BoarderLine;
+import CarPark.UI.Park;
+import java.awt.geom.Line2D;
+import java.awt.geom.Point2D;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Reads a car park boarder from a DXF drawing, such as a site outline from a
+ * surveyor.
+ *
+ * The file is read a group code and value at a time, keeping only the LINE
+ * and LWPOLYLINE entities on the named layers, so even very large drawings
+ * are never held in memory. Each layer is mapped to a boarder state; by
+ * default the layers LayoutVectorExport writes, BOARDER, ENT, EXIT and
+ * ENTEXIT, are read, and any other layer is left out. The pieces are then
+ * joined end to end into closed rings and the ring enclosing the most area
+ * becomes the boarder. Curved polyline pieces are read as straight lines.
+ *
+ * Drawings are in metres unless the header says otherwise, with y pointing
+ * up, so y is flipped and the boarder is moved to sit a little in from the
+ * top left of the grid.
+ *
+ * @author Aydin + Sam
+ */
+public class DxfBoundaryReader {
+
+    //space left above and to the left of the boarder, 2 m at the default scale (px).
+    private static final double MARGIN = 50;
+    //points closer than this are the same point when joining pieces (m).
+    private static final double JOIN_TOLERANCE = 0.001;
+    //the state of a piece that has been cut away.
+    private static final int REMOVED = -1;
+    private double pxPerMetre;
+    //upper case layer name to boarder state.
+    private HashMap<String, Integer> layerStates = new HashMap<String, Integer>();
+    //the pieces read so far: x1 y1 x2 y2 of each in turn (m), and its state.
+    private double[] pieces;
+    private int[] pieceStates;
+    private int pieceCount;
+    //metres per drawing unit, from the header.
+    private double unitScale;
+
+    /**
+     * Constructor: Sets up a reader for the standard layers.
+     *
+     * @param pxPerMetre how many pixels make up a metre.
+     */
+    public DxfBoundaryReader(double pxPerMetre) {
+        this.pxPerMetre = pxPerMetre;
+        setLayerState(LayoutVectorExport.BOARDER_LAYER, BoarderLine.BOARDER);
+        setLayerState(LayoutVectorExport.ENT_LAYER, BoarderLine.ENT);
+        setLayerState(LayoutVectorExport.EXIT_LAYER, BoarderLine.EXIT);
+        setLayerState(LayoutVectorExport.ENTEXIT_LAYER, BoarderLine.ENTEXIT);
+    }
+
+    /**
+     * Reads a layer as part of the boarder, with the given state. Layer names
+     * are matched ignoring case.
+     *
+     * @param layer the layer name.
+     * @param state one of the BoarderLine states, other than COLLISION.
+     */
+    public void setLayerState(String layer, int state) {
+        if (state < BoarderLine.BOARDER || state > BoarderLine.ENTEXIT) {
+            throw new IllegalArgumentException("Not a boarder state: " + state);
+        }
+        layerStates.put(layer.toUpperCase(), state);
+    }
+
+    /**
+     * Stops reading any layers, so only layers set afterwards are read.
+     */
+    public void clearLayers() {
+        layerStates.clear();
+    }
+
+    /**
+     * Reads the boarder from a DXF file.
+     *
+     * @param file the DXF file.
+     * @return the BoarderLines of the boarder, each starting where the last
+     * one finished and the last finishing where the first started.
+     * @throws ParseException If the file isn't a DXF file, or no closed
+     * boarder can be made from the named layers.
+     * @throws IOException If there is a read failure on the file.
+     */
+    public ArrayList<BoarderLine> read(File file) throws ParseException, IOException {
+        BufferedReader in = new BufferedReader(new FileReader(file), 1 << 16);
+        try {
+            return read(in);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Reads the boarder from DXF text.
+     *
+     * @param in the DXF text, read to the end but not closed.
+     * @return the BoarderLines of the boarder, each starting where the last
+     * one finished and the last finishing where the first started.
+     * @throws ParseException If the text isn't DXF, or no closed boarder can
+     * be made from the named layers.
+     * @throws IOException If there is a read failure.
+     */
+    public ArrayList<BoarderLine> read(BufferedReader in) throws ParseException, IOException {
+        pieces = new double[256];
+        pieceStates = new int[64];
+        pieceCount = 0;
+        unitScale = 1;
+
+        Entity entity = new Entity();
+        String section = null;
+        boolean nameNext = false;
+        String headerVariable = null;
+        int lineNumber = 0;
+        String codeLine;
+        while ((codeLine = in.readLine()) != null) {
+            String value = in.readLine();
+            lineNumber += 2;
+            if (value == null) {
+                throw new ParseException("The DXF file ends part way through a group"
+                        + " (line " + (lineNumber - 1) + ").", lineNumber - 1);
+            }
+            int code;
+            try {
+                code = Integer.parseInt(codeLine.trim());
+            } catch (NumberFormatException nfe) {
+                throw new ParseException("\"" + codeLine.trim() + "\" is not a DXF group code"
+                        + " (line " + (lineNumber - 1) + ").", lineNumber - 1);
+            }
+            value = value.trim();
+
+            if (code == 0) {
+                //a new entity or section marker ends the one before.
+                entity.finish();
+                if (value.equals("SECTION")) {
+                    nameNext = true;
+                } else if (value.equals("ENDSEC")) {
+                    section = null;
+                } else if ("ENTITIES".equals(section)) {
+                    entity.start(value);
+                }
+                continue;
+            }
+            if (code == 2 && nameNext) {
+                section = value;
+                nameNext = false;
+                continue;
+            }
+            if ("HEADER".equals(section)) {
+                if (code == 9) {
+                    headerVariable = value;
+                } else if (code == 70 && "$INSUNITS".equals(headerVariable)) {
+                    unitScale = metresPerUnit(parseInt(value, lineNumber));
+                }
+            } else if ("ENTITIES".equals(section) && entity.type != null) {
+                entity.group(code, value, lineNumber);
+            }
+        }
+        entity.finish();
+        return joinBoarder();
+    }
+
+    /**
+     * Gets how many metres a drawing unit is, from the $INSUNITS header value.
+     *
+     * @param units the units code.
+     * @return metres per unit, 1 if the units aren't a length this knows.
+     */
+    private static double metresPerUnit(int units) {
+        switch (units) {
+            case 1:
+                //inches
+                return 0.0254;
+            case 2:
+                //feet
+                return 0.3048;
+            case 4:
+                //millimetres
+                return 0.001;
+            case 5:
+                //centimetres
+                return 0.01;
+            default:
+                //metres or unitless
+                return 1;
+        }
+    }
+
+    /**
+     * Parses a whole number group value.
+     *
+     * @param value the value.
+     * @param lineNumber the line the value is on.
+     * @return the number.
+     * @throws ParseException If the value isn't a whole number.
+     */
+    private static int parseInt(String value, int lineNumber) throws ParseException {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException nfe) {
+            throw new ParseException("\"" + value + "\" is not a whole number"
+                    + " (line " + lineNumber + ").", lineNumber);
+        }
+    }
+
+    /**
+     * Parses a number group value.
+     *
+     * @param value the value.
+     * @param lineNumber the line the value is on.
+     * @return the number.
+     * @throws ParseException If the value isn't a number.
+     */
+    private static double parseDouble(String value, int lineNumber) throws ParseException {
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException nfe) {
+            throw new ParseException("\"" + value + "\" is not a number"
+                    + " (line " + lineNumber + ").", lineNumber);
+        }
+    }
+
+    /**
+     * Keeps a straight piece of the boarder.
+     *
+     * @param x1 the x location of the start (drawing units).
+     * @param y1 the y location of the start (drawing units).
+     * @param x2 the x location of the finish (drawing units).
+     * @param y2 the y location of the finish (drawing units).
+     * @param state the boarder state of the piece.
+     */
+    private void addPiece(double x1, double y1, double x2, double y2, int state) {
+        if (x1 == x2 && y1 == y2) {
+            return;
+        }
+        if (4 * pieceCount + 4 > pieces.length) {
+            pieces = Arrays.copyOf(pieces, 2 * pieces.length);
+        }
+        if (pieceCount == pieceStates.length) {
+            pieceStates = Arrays.copyOf(pieceStates, 2 * pieceStates.length);
+        }
+        pieces[4 * pieceCount] = x1 * unitScale;
+        pieces[4 * pieceCount + 1] = y1 * unitScale;
+        pieces[4 * pieceCount + 2] = x2 * unitScale;
+        pieces[4 * pieceCount + 3] = y2 * unitScale;
+        pieceStates[pieceCount] = state;
+        pieceCount++;
+    }
+
+    /**
+     * Makes a key for the join tolerance square a point rounds to.
+     *
+     * @param kx the x location in join tolerances, rounded.
+     * @param ky the y location in join tolerances, rounded.
+     * @return the key.
+     */
+    private static long pointKey(long kx, long ky) {
+        return (kx << 32) ^ (ky & 0xffffffffL);
+    }
+
+    /**
+     * Finds the key of the point a piece end joins. Points either side of a
+     * rounding boundary round to neighbouring squares, so the squares around
+     * the point are looked at too and a point already seen within the join
+     * tolerance gives its key. Otherwise the point starts a new key.
+     *
+     * @param x the x location (m).
+     * @param y the y location (m).
+     * @param seen the first point seen in each square, added to.
+     * @return the key.
+     */
+    private static long joinKey(double x, double y, HashMap<Long, double[]> seen) {
+        long kx = Math.round(x / JOIN_TOLERANCE);
+        long ky = Math.round(y / JOIN_TOLERANCE);
+        long own = pointKey(kx, ky);
+        double[] found = seen.get(own);
+        for (int dx = -1; dx <= 1 && found == null; dx++) {
+            for (int dy = -1; dy <= 1 && found == null; dy++) {
+                double[] near = seen.get(pointKey(kx + dx, ky + dy));
+                if (near != null && samePoint(x, y, near[0], near[1])) {
+                    found = near;
+                }
+            }
+        }
+        if (found == null) {
+            found = new double[]{x, y};
+        }
+        if (!seen.containsKey(own)) {
+            seen.put(own, found);
+        }
+        //the key of the square the first point seen rounds to.
+        return pointKey(Math.round(found[0] / JOIN_TOLERANCE),
+                Math.round(found[1] / JOIN_TOLERANCE));
+    }
+
+    /**
+     * Whether two points are within the join tolerance of each other.
+     *
+     * @param x1 the x location of the first point (m).
+     * @param y1 the y location of the first point (m).
+     * @param x2 the x location of the second point (m).
+     * @param y2 the y location of the second point (m).
+     * @return true if they are the same point when joining pieces.
+     */
+    private static boolean samePoint(double x1, double y1, double x2, double y2) {
+        return Point2D.distance(x1, y1, x2, y2) <= JOIN_TOLERANCE;
+    }
+
+    /**
+     * Joins the pieces end to end into closed rings and turns the one
+     * enclosing the most area into BoarderLines.
+     *
+     * @return the BoarderLines of the boarder.
+     * @throws ParseException If the pieces don't join into a closed ring.
+     */
+    private ArrayList<BoarderLine> joinBoarder() throws ParseException {
+        if (pieceCount == 0) {
+            throw new ParseException("No lines were found on the boarder layers.", 0);
+        }
+        splitUnderGates();
+        //the point each piece end joins, and which pieces end at each point.
+        long[] endKeys = new long[2 * pieceCount];
+        HashMap<Long, double[]> seen = new HashMap<Long, double[]>();
+        HashMap<Long, int[]> ends = new HashMap<Long, int[]>();
+        for (int i = 0; i < pieceCount; i++) {
+            if (pieceStates[i] == REMOVED) {
+                continue;
+            }
+            for (int end = 0; end < 2; end++) {
+                Long key = joinKey(pieces[4 * i + 2 * end], pieces[4 * i + 2 * end + 1], seen);
+                endKeys[2 * i + end] = key;
+                int[] list = ends.get(key);
+                if (list == null) {
+                    list = new int[]{0, 0, 0};
+                    ends.put(key, list);
+                } else if (list[0] + 1 == list.length) {
+                    list = Arrays.copyOf(list, 2 * list.length);
+                    ends.put(key, list);
+                }
+                //the first entry is how many pieces end here.
+                list[++list[0]] = i;
+            }
+        }
+
+        boolean[] used = new boolean[pieceCount];
+        for (int i = 0; i < pieceCount; i++) {
+            used[i] = pieceStates[i] == REMOVED;
+        }
+        String gap = dropLooseEnds(endKeys, ends, used);
+        int[] best = null;
+        boolean[] bestFlipped = null;
+        double bestArea = -1;
+        int[] ring = new int[pieceCount];
+        boolean[] flipped = new boolean[pieceCount];
+        for (int first = 0; first < pieceCount; first++) {
+            if (used[first]) {
+                continue;
+            }
+            used[first] = true;
+            int length = 0;
+            ring[length] = first;
+            flipped[length] = false;
+            length++;
+            long start = endKeys[2 * first];
+            long at = endKeys[2 * first + 1];
+            //walk from piece to piece until back at the start.
+            while (at != start) {
+                int[] list = ends.get(at);
+                int next = -1;
+                for (int k = 1; k <= list[0] && next < 0; k++) {
+                    if (!used[list[k]]) {
+                        next = list[k];
+                    }
+                }
+                if (next < 0) {
+                    //every piece here was taken by this walk, which can only
+                    //happen where more than two pieces meet, so free the
+                    //pieces for walks starting elsewhere.
+                    if (gap == null) {
+                        int p = ring[length - 1];
+                        gap = String.format(" The lines don't join up at (%.3f, %.3f).",
+                                flipped[length - 1] ? pieces[4 * p] : pieces[4 * p + 2],
+                                flipped[length - 1] ? pieces[4 * p + 1] : pieces[4 * p + 3]);
+                    }
+                    for (int k = 0; k < length; k++) {
+                        used[ring[k]] = false;
+                    }
+                    length = 0;
+                    break;
+                }
+                used[next] = true;
+                boolean flip = endKeys[2 * next] != at;
+                ring[length] = next;
+                flipped[length] = flip;
+                length++;
+                at = flip ? endKeys[2 * next] : endKeys[2 * next + 1];
+            }
+            double area = Math.abs(ringArea(ring, flipped, length));
+            if (length >= 3 && area > bestArea) {
+                bestArea = area;
+                best = Arrays.copyOf(ring, length);
+                bestFlipped = Arrays.copyOf(flipped, length);
+            }
+        }
+        if (best == null) {
+            throw new ParseException("No closed boarder was found on the boarder layers."
+                    + (gap == null ? "" : gap), 0);
+        }
+        return toBoarderLines(best, bestFlipped);
+    }
+
+    /**
+     * Marks every piece with an end that no other piece joins as used, such
+     * as stray lines, since it can't be part of a ring. Dropping a piece can
+     * leave the piece it joined with a loose end in turn, so this carries on
+     * until none are left. Without this, whether a drawing could be read
+     * would depend on the order its lines were drawn in.
+     *
+     * @param endKeys the point each piece end joins.
+     * @param ends the pieces ending at each point.
+     * @param used set for each piece dropped.
+     * @return where the first loose end is, for the error message, or null
+     * if there were none.
+     */
+    private String dropLooseEnds(long[] endKeys, HashMap<Long, int[]> ends,
+            boolean[] used) {
+        String gap = null;
+        int[] stack = new int[pieceCount];
+        int top = 0;
+        for (int i = 0; i < pieceCount; i++) {
+            if (!used[i]) {
+                stack[top++] = i;
+            }
+        }
+        while (top > 0) {
+            int i = stack[--top];
+            if (used[i]) {
+                continue;
+            }
+            int loose = -1;
+            for (int end = 0; end < 2 && loose < 0; end++) {
+                int[] list = ends.get(endKeys[2 * i + end]);
+                int others = 0;
+                for (int k = 1; k <= list[0]; k++) {
+                    if (list[k] != i && !used[list[k]]) {
+                        others++;
+                    }
+                }
+                if (others == 0) {
+                    loose = end;
+                }
+            }
+            if (loose < 0) {
+                continue;
+            }
+            used[i] = true;
+            if (gap == null) {
+                gap = String.format(" The lines don't join up at (%.3f, %.3f).",
+                        pieces[4 * i + 2 * loose], pieces[4 * i + 2 * loose + 1]);
+            }
+            //the pieces at the other end may be left loose now.
+            int[] list = ends.get(endKeys[2 * i + 1 - loose]);
+            for (int k = 1; k <= list[0]; k++) {
+                if (!used[list[k]]) {
+                    if (top == stack.length) {
+                        stack = Arrays.copyOf(stack, 2 * stack.length);
+                    }
+                    stack[top++] = list[k];
+                }
+            }
+        }
+        return gap;
+    }
+
+    /**
+     * Entrances and exits are often drawn on their own layer over the top of
+     * a boarder line that runs the whole length of the side. Each boarder
+     * piece lying under an entrance or exit piece is cut back to the parts
+     * either side of it, so the entrance or exit takes its place in the ring.
+     */
+    private void splitUnderGates() {
+        int count = pieceCount;
+        for (int g = 0; g < count; g++) {
+            if (pieceStates[g] == BoarderLine.BOARDER || pieceStates[g] == REMOVED) {
+                continue;
+            }
+            for (int e = 0; e < pieceCount; e++) {
+                if (pieceStates[e] != BoarderLine.BOARDER) {
+                    continue;
+                }
+                int ge = 4 * g;
+                int ee = 4 * e;
+                Line2D.Double edge = new Line2D.Double(
+                        pieces[ee], pieces[ee + 1], pieces[ee + 2], pieces[ee + 3]);
+                if (edge.ptSegDist(pieces[ge], pieces[ge + 1]) > JOIN_TOLERANCE
+                        || edge.ptSegDist(pieces[ge + 2], pieces[ge + 3]) > JOIN_TOLERANCE) {
+                    continue;
+                }
+                //order the gate's ends along the boarder piece.
+                double toFirst = Point2D.distance(pieces[ee], pieces[ee + 1], pieces[ge], pieces[ge + 1]);
+                double toSecond = Point2D.distance(pieces[ee], pieces[ee + 1], pieces[ge + 2], pieces[ge + 3]);
+                int near = toFirst <= toSecond ? ge : ge + 2;
+                int far = toFirst <= toSecond ? ge + 2 : ge;
+                double nearX = pieces[near];
+                double nearY = pieces[near + 1];
+                double farX = pieces[far];
+                double farY = pieces[far + 1];
+                double endX = pieces[ee + 2];
+                double endY = pieces[ee + 3];
+                //the boarder piece keeps the part before the gate...
+                pieces[ee + 2] = nearX;
+                pieces[ee + 3] = nearY;
+                if (samePoint(pieces[ee], pieces[ee + 1], nearX, nearY)) {
+                    pieceStates[e] = REMOVED;
+                }
+                //...and the part after it is added, already in metres.
+                if (!samePoint(farX, farY, endX, endY)) {
+                    addPiece(farX / unitScale, farY / unitScale,
+                            endX / unitScale, endY / unitScale, BoarderLine.BOARDER);
+                }
+                break;
+            }
+        }
+    }
+
+    /**
+     * Works out the signed area inside a ring of pieces.
+     *
+     * @param ring the pieces in order.
+     * @param flipped whether each piece runs finish to start.
+     * @param length how many pieces are in the ring.
+     * @return the area (m^2), negative for clockwise rings.
+     */
+    private double ringArea(int[] ring, boolean[] flipped, int length) {
+        double twiceArea = 0;
+        for (int k = 0; k < length; k++) {
+            int p = 4 * ring[k];
+            double x1 = flipped[k] ? pieces[p + 2] : pieces[p];
+            double y1 = flipped[k] ? pieces[p + 3] : pieces[p + 1];
+            double x2 = flipped[k] ? pieces[p] : pieces[p + 2];
+            double y2 = flipped[k] ? pieces[p + 1] : pieces[p + 3];
+            twiceArea += x1 * y2 - x2 * y1;
+        }
+        return twiceArea / 2;
+    }
+
+    /**
+     * Turns a ring of pieces into BoarderLines on the grid, with y pointing
+     * down and the ring moved in from the top left by the margin.
+     *
+     * @param ring the pieces in order.
+     * @param flipped whether each piece runs finish to start.
+     * @return the BoarderLines, leaving out any that snap to nothing.
+     * @throws ParseException If the ring is too small to make a boarder once
+     * snapped to the grid, or short pieces snapping together leave it open
+     * or crossing itself.
+     */
+    private ArrayList<BoarderLine> toBoarderLines(int[] ring, boolean[] flipped)
+            throws ParseException {
+        double minX = Double.MAX_VALUE;
+        double maxY = -Double.MAX_VALUE;
+        for (int k = 0; k < ring.length; k++) {
+            int p = 4 * ring[k];
+            minX = Math.min(minX, Math.min(pieces[p], pieces[p + 2]));
+            maxY = Math.max(maxY, Math.max(pieces[p + 1], pieces[p + 3]));
+        }
+        int gridDot = Park.gridDotPx(pxPerMetre);
+        ArrayList<BoarderLine> boarder = new ArrayList<BoarderLine>(ring.length);
+        for (int k = 0; k < ring.length; k++) {
+            int p = 4 * ring[k];
+            int s = flipped[k] ? 2 : 0;
+            //each piece starts where the last finished, so use the start of
+            //this piece and the start of the next for an exact join.
+            int q = 4 * ring[(k + 1) % ring.length];
+            int t = flipped[(k + 1) % ring.length] ? 2 : 0;
+            BoarderLine line = new BoarderLine(
+                    new Point2D.Double((pieces[p + s] - minX) * pxPerMetre + MARGIN,
+                    (maxY - pieces[p + s + 1]) * pxPerMetre + MARGIN),
+                    new Point2D.Double((pieces[q + t] - minX) * pxPerMetre + MARGIN,
+                    (maxY - pieces[q + t + 1]) * pxPerMetre + MARGIN), gridDot);
+            if (line.getLength() > 0) {
+                line.setState(pieceStates[ring[k]]);
+                boarder.add(line);
+            }
+        }
+        if (boarder.size() < 3) {
+            throw new ParseException("The boarder is too small to draw on the grid.", 0);
+        }
+        if (!new BoundarySnapshot(boarder).isClosed() || crossesItself(boarder)) {
+            throw new ParseException("The boarder crosses itself once snapped to the "
+                    + gridDot + " px grid. Lines shorter than the grid are too"
+                    + " short to keep apart.", 0);
+        }
+        return boarder;
+    }
+
+    /**
+     * Whether any two lines of a ring cross or touch, other than neighbours
+     * meeting end to end.
+     *
+     * @param boarder the lines of the ring in order.
+     * @return true if the ring crosses itself.
+     */
+    private static boolean crossesItself(ArrayList<BoarderLine> boarder) {
+        int n = boarder.size();
+        for (int i = 0; i < n; i++) {
+            Line2D a = boarder.get(i).getLine();
+            for (int j = i + 1; j < n; j++) {
+                Line2D b = boarder.get(j).getLine();
+                if (j == i + 1) {
+                    //a finishes where b starts, so they only touch elsewhere
+                    //if one doubles back along the other.
+                    if (a.ptSegDist(b.getP2()) == 0 || b.ptSegDist(a.getP1()) == 0) {
+                        return true;
+                    }
+                } else if (i == 0 && j == n - 1) {
+                    //b finishes where a starts.
+                    if (a.ptSegDist(b.getP1()) == 0 || b.ptSegDist(a.getP2()) == 0) {
+                        return true;
+                    }
+                } else if (a.intersectsLine(b)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The entity being read. Only one is kept at a time and reused.
+     */
+    private class Entity {
+
+        //LINE, LWPOLYLINE or null for an entity that isn't read.
+        private String type;
+        private Integer state;
+        private boolean closed;
+        //LINE end points, or LWPOLYLINE vertices x y in turn.
+        private double[] points = new double[64];
+        private int pointCount;
+        //the next x or y expected.
+        private int xCount;
+        private int yCount;
+
+        /**
+         * Starts reading a new entity.
+         *
+         * @param name the entity type.
+         */
+        void start(String name) {
+            type = name.equals("LINE") || name.equals("LWPOLYLINE") ? name : null;
+            state = null;
+            closed = false;
+            pointCount = 0;
+            xCount = 0;
+            yCount = 0;
+            if (type != null) {
+                //a LINE has its 2 points in fixed places.
+                Arrays.fill(points, 0, 4, 0);
+            }
+        }
+
+        /**
+         * Reads one group of the entity.
+         *
+         * @param code the group code.
+         * @param value the group value.
+         * @param lineNumber the line the value is on.
+         * @throws ParseException If a number can't be read.
+         */
+        void group(int code, String value, int lineNumber) throws ParseException {
+            if (code == 8) {
+                state = layerStates.get(value.toUpperCase());
+                return;
+            }
+            if (state == null) {
+                //no need to read the points of layers left out, as long as
+                //the layer comes first as it always does.
+                return;
+            }
+            if (type.equals("LINE")) {
+                switch (code) {
+                    case 10:
+                        points[0] = parseDouble(value, lineNumber);
+                        break;
+                    case 20:
+                        points[1] = parseDouble(value, lineNumber);
+                        break;
+                    case 11:
+                        points[2] = parseDouble(value, lineNumber);
+                        break;
+                    case 21:
+                        points[3] = parseDouble(value, lineNumber);
+                        break;
+                    default:
+                        break;
+                }
+                return;
+            }
+            switch (code) {
+                case 70:
+                    closed = (parseInt(value, lineNumber) & 1) != 0;
+                    break;
+                case 10:
+                    if (2 * xCount + 2 > points.length) {
+                        points = Arrays.copyOf(points, 2 * points.length);
+                    }
+                    points[2 * xCount++] = parseDouble(value, lineNumber);
+                    break;
+                case 20:
+                    if (yCount < xCount) {
+                        points[2 * yCount++ + 1] = parseDouble(value, lineNumber);
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        /**
+         * Keeps the pieces of the entity if it is on a boarder layer.
+         */
+        void finish() {
+            if (type != null && state != null) {
+                if (type.equals("LINE")) {
+                    addPiece(points[0], points[1], points[2], points[3], state);
+                } else {
+                    pointCount = Math.min(xCount, yCount);
+                    for (int v = 0; v + 1 < pointCount; v++) {
+                        addPiece(points[2 * v], points[2 * v + 1],
+                                points[2 * v + 2], points[2 * v + 3], state);
+                    }
+                    if (closed && pointCount > 2) {
+                        addPiece(points[2 * pointCount - 2], points[2 * pointCount - 1],
+                                points[0], points[1], state);
+                    }
+                }
+            }
+            type = null;
+        }
+    }
+}
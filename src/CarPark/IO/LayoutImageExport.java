@@ -0,0 +1,478 @@
+package CarPark.IO;
+
+import CarPark.Algorithm.BoundarySnapshot;
+import CarPark.Algorithm.BoundarySegment;
+import CarPark.Algorithm.SiteHole;
+import CarPark.UI.LayoutRenderer;
+import CarPark.UI.ParkGridIndex;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.imageio.ImageIO;
+
+/**
+ * Writes a car park layout out as a PNG image at a higher resolution than it
+ * is drawn on screen, for printing plans of a whole site.
+ *
+ * The plan is never held as one giant image. It is handed to the PNG writer
+ * as a RenderedImage cut into square tiles, each drawn on its own Graphics2D
+ * only when the writer reaches it. The writer asks for the image a pixel row
+ * at a time, from the top down, so while it works through one row of tiles
+ * the next row is drawn on a pool of threads. Only those two rows of tiles
+ * are held in memory at once, about 8 x width x tile size bytes.
+ *
+ * @author Aydin + Sam
+ */
+public class LayoutImageExport {
+
+    //space left round the car park, 1 m at the default scale (px).
+    private static final double MARGIN = 25;
+    private BoundarySnapshot boundary;
+    private ArrayList<SiteHole> holes;
+    private ParkGridIndex parks;
+    //the part of the car park drawn (px).
+    private Rectangle2D extent;
+    //how many image pixels each car park pixel is drawn as.
+    private double scale = 4;
+    private int tileSize = 512;
+
+    /**
+     * Constructor: Sets up an export of a layout.
+     *
+     * @param boundary the car park boarder.
+     * @param holes the holes inside the boarder.
+     * @param parks the parks laid out inside the boarder.
+     */
+    public LayoutImageExport(BoundarySnapshot boundary, ArrayList<SiteHole> holes,
+            ParkGridIndex parks) {
+        this.boundary = boundary;
+        this.holes = new ArrayList<SiteHole>(holes);
+        this.parks = parks;
+
+        extent = null;
+        for (int i = 0; i < boundary.size(); i++) {
+            BoundarySegment segment = boundary.get(i);
+            if (extent == null) {
+                extent = new Rectangle2D.Double(segment.getX1(), segment.getY1(), 0, 0);
+            }
+            extent.add(segment.getX1(), segment.getY1());
+            extent.add(segment.getX2(), segment.getY2());
+        }
+        if (parks.size() > 0) {
+            if (extent == null) {
+                extent = parks.getBounds();
+            } else {
+                extent.add(parks.getBounds());
+            }
+        }
+        if (extent == null) {
+            throw new IllegalArgumentException("There is nothing to export.");
+        }
+        extent.setRect(extent.getX() - MARGIN, extent.getY() - MARGIN,
+                extent.getWidth() + 2 * MARGIN, extent.getHeight() + 2 * MARGIN);
+    }
+
+    /**
+     * Sets how much bigger than the car park's own scale the plan is drawn.
+     *
+     * @param scale how many image pixels each car park pixel is drawn as,
+     * 4 by default, which is 100 px to the metre at the default scale.
+     */
+    public void setScale(double scale) {
+        if (scale <= 0) {
+            throw new IllegalArgumentException("The scale must be more than zero.");
+        }
+        this.scale = scale;
+    }
+
+    /**
+     * Sets how big each tile image is.
+     *
+     * @param tileSize the width and height of a tile (px), 512 by default.
+     */
+    public void setTileSize(int tileSize) {
+        if (tileSize <= 0) {
+            throw new IllegalArgumentException("The tile size must be more than zero.");
+        }
+        this.tileSize = tileSize;
+    }
+
+    /**
+     * Gets the width of the whole plan.
+     *
+     * @return the width (px).
+     */
+    public int getWidth() {
+        return (int) Math.ceil(extent.getWidth() * scale);
+    }
+
+    /**
+     * Gets the height of the whole plan.
+     *
+     * @return the height (px).
+     */
+    public int getHeight() {
+        return (int) Math.ceil(extent.getHeight() * scale);
+    }
+
+    /**
+     * Gets how many tiles across the plan is cut into.
+     *
+     * @return the number of columns.
+     */
+    public int getTileColumns() {
+        return (getWidth() + tileSize - 1) / tileSize;
+    }
+
+    /**
+     * Gets how many tiles down the plan is cut into.
+     *
+     * @return the number of rows.
+     */
+    public int getTileRows() {
+        return (getHeight() + tileSize - 1) / tileSize;
+    }
+
+    /**
+     * Draws the plan and writes it to a PNG file.
+     *
+     * @param file the file to write.
+     * @param threads how many tiles to draw at once.
+     * @throws IOException If the file can't be written.
+     */
+    public void write(File file, int threads) throws IOException {
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads));
+        try {
+            if (!ImageIO.write(new PlanImage(pool), "png", file)) {
+                throw new IOException("No PNG writer is available.");
+            }
+        } catch (TileException te) {
+            if (te.getCause() instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+                throw new IOException("The export was interrupted.", te.getCause());
+            }
+            throw new IllegalStateException(te.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Draws one tile of the plan on its own image.
+     *
+     * @param row which tile down.
+     * @param col which tile across.
+     * @return the tile image, smaller than a full tile along the right and
+     * bottom edges of the plan.
+     */
+    public BufferedImage drawTile(int row, int col) {
+        int x = col * tileSize;
+        int y = row * tileSize;
+        int width = Math.min(tileSize, getWidth() - x);
+        int height = Math.min(tileSize, getHeight() - y);
+        BufferedImage tile = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2 = tile.createGraphics();
+        try {
+            g2.setColor(Color.WHITE);
+            g2.fillRect(0, 0, width, height);
+            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+                    RenderingHints.VALUE_ANTIALIAS_ON);
+            g2.scale(scale, scale);
+            g2.translate(-extent.getX() - x / scale, -extent.getY() - y / scale);
+            //lines as thick as on screen, scaled up with everything else.
+            g2.setStroke(new BasicStroke(1));
+            //only the parks this tile covers are looked at.
+            Rectangle2D visible = new Rectangle2D.Double(extent.getX() + x / scale,
+                    extent.getY() + y / scale, width / scale, height / scale);
+            LayoutRenderer.drawBoundary(g2, boundary);
+            LayoutRenderer.drawHoles(g2, holes);
+            LayoutRenderer.drawParks(g2, parks, visible, scale);
+        } finally {
+            g2.dispose();
+        }
+        return tile;
+    }
+
+    /**
+     * The whole plan as an image whose tiles are drawn when they are first
+     * asked for. Asking for a row of tiles also starts drawing the row below
+     * it and forgets the rows above it, so pixels must be asked for from the
+     * top down, as the PNG writer does.
+     */
+    private class PlanImage implements RenderedImage {
+
+        private ExecutorService pool;
+        private SampleModel sampleModel;
+        private ColorModel colorModel;
+        //the row of tiles asked for last and the row below it, each a future
+        //tile per column, or null before they are asked for.
+        private int currentRow = -1;
+        private ArrayList<Future<BufferedImage>> current;
+        private ArrayList<Future<BufferedImage>> next;
+
+        /**
+         * Constructor: Sets up the plan image, nothing is drawn yet.
+         *
+         * @param pool the threads the tiles are drawn on.
+         */
+        PlanImage(ExecutorService pool) {
+            this.pool = pool;
+            BufferedImage sample = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+            sampleModel = sample.getSampleModel().createCompatibleSampleModel(tileSize, tileSize);
+            colorModel = sample.getColorModel();
+        }
+
+        /**
+         * Starts drawing every tile of a row.
+         *
+         * @param row which tile down.
+         * @return the tiles being drawn, one per column.
+         */
+        private ArrayList<Future<BufferedImage>> submitRow(final int row) {
+            int cols = getTileColumns();
+            ArrayList<Future<BufferedImage>> tiles = new ArrayList<Future<BufferedImage>>(cols);
+            for (int c = 0; c < cols; c++) {
+                final int col = c;
+                tiles.add(pool.submit(new Callable<BufferedImage>() {
+                    @Override
+                    public BufferedImage call() {
+                        return drawTile(row, col);
+                    }
+                }));
+            }
+            return tiles;
+        }
+
+        /**
+         * Gets a row of tiles, moving on to it if it is below the current row.
+         *
+         * @param row which tile down, not above the current row.
+         * @return the tiles, one per column.
+         */
+        private synchronized ArrayList<Future<BufferedImage>> getRow(int row) {
+            if (row < currentRow) {
+                throw new IllegalStateException("The plan must be read from the top down.");
+            }
+            if (row != currentRow) {
+                //the row below is already being drawn if it is the one needed.
+                if (row == currentRow + 1 && next != null) {
+                    current = next;
+                } else {
+                    if (next != null) {
+                        for (int c = 0; c < next.size(); c++) {
+                            next.get(c).cancel(true);
+                        }
+                    }
+                    current = submitRow(row);
+                }
+                currentRow = row;
+                next = row + 1 < getTileRows() ? submitRow(row + 1) : null;
+            }
+            return current;
+        }
+
+        /**
+         * Gets one tile, waiting for it to be drawn.
+         *
+         * @param row which tile down.
+         * @param col which tile across.
+         * @return the tile image.
+         */
+        private BufferedImage getTileImage(int row, int col) {
+            try {
+                return getRow(row).get(col).get();
+            } catch (InterruptedException ie) {
+                throw new TileException(ie);
+            } catch (ExecutionException ee) {
+                throw new TileException(ee.getCause());
+            }
+        }
+
+        /**
+         * Gets one tile, drawing it first if needed.
+         *
+         * @param tileX which tile across.
+         * @param tileY which tile down.
+         * @return the tile's pixels, placed where the tile is in the plan.
+         */
+        @Override
+        public Raster getTile(int tileX, int tileY) {
+            return getTileImage(tileY, tileX).getRaster()
+                    .createTranslatedChild(tileX * tileSize, tileY * tileSize);
+        }
+
+        /**
+         * Copies part of the plan out of the tiles that cover it.
+         *
+         * @param rect the part wanted (px).
+         * @return the pixels of the part that lies inside the plan.
+         */
+        @Override
+        public Raster getData(Rectangle rect) {
+            Rectangle area = rect.intersection(new Rectangle(0, 0, getWidth(), getHeight()));
+            WritableRaster data = Raster.createWritableRaster(
+                    sampleModel.createCompatibleSampleModel(area.width, area.height),
+                    new Point(area.x, area.y));
+            if (area.isEmpty()) {
+                return data;
+            }
+            //copies from every tile the area covers, each only where it
+            //overlaps.
+            for (int r = area.y / tileSize; r <= (area.y + area.height - 1) / tileSize; r++) {
+                for (int c = area.x / tileSize; c <= (area.x + area.width - 1) / tileSize; c++) {
+                    data.setRect(getTile(c, r));
+                }
+            }
+            return data;
+        }
+
+        /**
+         * Copies the whole plan into one raster. Only for small plans.
+         *
+         * @return the pixels of the whole plan.
+         */
+        @Override
+        public Raster getData() {
+            return getData(new Rectangle(0, 0, getWidth(), getHeight()));
+        }
+
+        /**
+         * Copies part of the plan into a raster.
+         *
+         * @param raster where to copy to, or null for a new raster of the
+         * whole plan.
+         * @return the raster copied into.
+         */
+        @Override
+        public WritableRaster copyData(WritableRaster raster) {
+            if (raster == null) {
+                return (WritableRaster) getData();
+            }
+            raster.setRect(getData(raster.getBounds()));
+            return raster;
+        }
+
+        @Override
+        public Vector<RenderedImage> getSources() {
+            return null;
+        }
+
+        @Override
+        public Object getProperty(String name) {
+            return Image.UndefinedProperty;
+        }
+
+        @Override
+        public String[] getPropertyNames() {
+            return null;
+        }
+
+        @Override
+        public ColorModel getColorModel() {
+            return colorModel;
+        }
+
+        @Override
+        public SampleModel getSampleModel() {
+            return sampleModel;
+        }
+
+        @Override
+        public int getWidth() {
+            return LayoutImageExport.this.getWidth();
+        }
+
+        @Override
+        public int getHeight() {
+            return LayoutImageExport.this.getHeight();
+        }
+
+        @Override
+        public int getMinX() {
+            return 0;
+        }
+
+        @Override
+        public int getMinY() {
+            return 0;
+        }
+
+        @Override
+        public int getNumXTiles() {
+            return getTileColumns();
+        }
+
+        @Override
+        public int getNumYTiles() {
+            return getTileRows();
+        }
+
+        @Override
+        public int getMinTileX() {
+            return 0;
+        }
+
+        @Override
+        public int getMinTileY() {
+            return 0;
+        }
+
+        @Override
+        public int getTileWidth() {
+            return tileSize;
+        }
+
+        @Override
+        public int getTileHeight() {
+            return tileSize;
+        }
+
+        @Override
+        public int getTileGridXOffset() {
+            return 0;
+        }
+
+        @Override
+        public int getTileGridYOffset() {
+            return 0;
+        }
+    }
+
+    /**
+     * Carries a failure to draw a tile out through the PNG writer, which
+     * only lets unchecked exceptions through.
+     */
+    private static class TileException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Constructor: Wraps the reason the tile couldn't be drawn.
+         *
+         * @param cause the reason.
+         */
+        TileException(Throwable cause) {
+            super(cause);
+        }
+    }
+}
@@ -0,0 +1,388 @@
+package CarPark.IO;
+
+import CarPark.Algorithm.AlgGeneratedPark;
+import CarPark.Algorithm.BoundarySegment;
+import CarPark.Algorithm.BoundarySnapshot;
+import CarPark.Algorithm.SiteHole;
+import CarPark.UI.BoarderLine;
+import CarPark.UI.LayoutRenderer;
+import CarPark.UI.Park;
+import java.awt.Color;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Rectangle2D;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+
+/**
+ * Writes a car park layout out as a vector drawing, either SVG or DXF (R12),
+ * in metres, for opening in CAD packages.
+ *
+ * Nothing is built up in memory before writing: each park's outline is made
+ * from Park.getParkLine, walked with a PathIterator and written straight out,
+ * one park at a time, so a layout of any number of parks is written in the
+ * same memory. In DXF files the y axis points up, so y locations are flipped,
+ * and each boarder state, the obstacles and the parks are on their own layer.
+ *
+ * @author Aydin + Sam
+ */
+public class LayoutVectorExport {
+
+    //DXF layer names, one for each boarder state then obstacles and parks.
+    public static final String BOARDER_LAYER = "BOARDER";
+    public static final String ENT_LAYER = "ENT";
+    public static final String EXIT_LAYER = "EXIT";
+    public static final String ENTEXIT_LAYER = "ENTEXIT";
+    public static final String OBSTACLE_LAYER = "OBSTACLE";
+    public static final String PARK_LAYER = "PARKS";
+    //DXF colour numbers for each layer, in the same order.
+    private static final String[] LAYERS = {BOARDER_LAYER, ENT_LAYER, EXIT_LAYER,
+        ENTEXIT_LAYER, OBSTACLE_LAYER, PARK_LAYER};
+    private static final int[] LAYER_COLOURS = {7, 4, 30, 3, 8, 5};
+    //how far curves are allowed to stray when cut into lines (px).
+    private static final double FLATNESS = 0.1;
+    private BoundarySnapshot boundary;
+    private ArrayList<SiteHole> holes;
+    private ArrayList<AlgGeneratedPark> parks;
+    private Park parkLayout;
+    private double pxPerMetre;
+
+    /**
+     * Constructor: Sets up an export of a layout.
+     *
+     * @param boundary the car park boarder.
+     * @param holes the holes inside the boarder.
+     * @param parks the locations and rotations of each park, which must not
+     * be changed while writing.
+     * @param parkLayout the object defining the shape of each park.
+     */
+    public LayoutVectorExport(BoundarySnapshot boundary, ArrayList<SiteHole> holes,
+            ArrayList<AlgGeneratedPark> parks, Park parkLayout) {
+        this.boundary = boundary;
+        this.holes = new ArrayList<SiteHole>(holes);
+        this.parks = parks;
+        this.parkLayout = parkLayout;
+        pxPerMetre = parkLayout.getPxPerMetre();
+    }
+
+    /**
+     * Gets the DXF layer boarder lines of a state are put on.
+     *
+     * @param state one of the BoarderLine states.
+     * @return the layer name.
+     */
+    public static String layerName(int state) {
+        switch (state) {
+            case BoarderLine.ENT:
+                return ENT_LAYER;
+            case BoarderLine.EXIT:
+                return EXIT_LAYER;
+            case BoarderLine.ENTEXIT:
+                return ENTEXIT_LAYER;
+            default:
+                return BOARDER_LAYER;
+        }
+    }
+
+    /**
+     * Writes the layout to a file, as DXF if the file name ends in ".dxf"
+     * and as SVG otherwise.
+     *
+     * @param file the file to write.
+     * @throws IOException If the file can't be written.
+     */
+    public void write(File file) throws IOException {
+        Writer out = new BufferedWriter(new FileWriter(file), 1 << 16);
+        try {
+            if (file.getName().toLowerCase().endsWith(".dxf")) {
+                writeDxf(out);
+            } else {
+                writeSvg(out);
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Writes the layout as an SVG drawing in metres.
+     *
+     * @param out where to write the drawing, which is flushed but not closed.
+     * @throws IOException If writing fails.
+     */
+    public void writeSvg(Writer out) throws IOException {
+        Rectangle2D extent = extent();
+        StringBuilder line = new StringBuilder(256);
+        line.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+                .append("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"");
+        appendNumber(line, extent.getWidth() * pxPerMetre);
+        line.append("\" height=\"");
+        appendNumber(line, extent.getHeight() * pxPerMetre);
+        line.append("\" viewBox=\"");
+        appendNumber(line, extent.getX());
+        line.append(' ');
+        appendNumber(line, extent.getY());
+        line.append(' ');
+        appendNumber(line, extent.getWidth());
+        line.append(' ');
+        appendNumber(line, extent.getHeight());
+        line.append("\">\n<g id=\"boarder\" fill=\"none\" stroke-width=\"0.04\">\n");
+        out.append(line);
+
+        for (int i = 0; i < boundary.size(); i++) {
+            BoundarySegment segment = boundary.get(i);
+            line.setLength(0);
+            line.append("<line x1=\"");
+            appendNumber(line, segment.getX1() / pxPerMetre);
+            line.append("\" y1=\"");
+            appendNumber(line, segment.getY1() / pxPerMetre);
+            line.append("\" x2=\"");
+            appendNumber(line, segment.getX2() / pxPerMetre);
+            line.append("\" y2=\"");
+            appendNumber(line, segment.getY2() / pxPerMetre);
+            line.append("\" stroke=\"");
+            appendColour(line, LayoutRenderer.stateColor(segment.getState()));
+            line.append("\"/>\n");
+            out.append(line);
+        }
+
+        out.append("</g>\n<g id=\"obstacles\" fill=\"#808080\" stroke=\"none\">\n");
+        for (int i = 0; i < holes.size(); i++) {
+            line.setLength(0);
+            line.append("<path d=\"");
+            appendSvgPath(line, holes.get(i).getOutline().getPathIterator(null, FLATNESS));
+            line.append("\"/>\n");
+            out.append(line);
+        }
+
+        out.append("</g>\n<g id=\"parks\" fill=\"none\" stroke=\"#0000ff\" stroke-width=\"0.04\">\n");
+        for (int i = 0; i < parks.size(); i++) {
+            line.setLength(0);
+            line.append("<path d=\"");
+            appendSvgPath(line, parkLayout.getParkLine(parks.get(i)).getPathIterator(null, FLATNESS));
+            line.append("\"/>\n");
+            out.append(line);
+        }
+        out.append("</g>\n</svg>\n");
+        out.flush();
+    }
+
+    /**
+     * Writes the layout as an R12 DXF drawing in metres, with a LINE for
+     * every straight piece of the boarder, obstacles and parks.
+     *
+     * @param out where to write the drawing, which is flushed but not closed.
+     * @throws IOException If writing fails.
+     */
+    public void writeDxf(Writer out) throws IOException {
+        StringBuilder entity = new StringBuilder(256);
+        out.append("  0\nSECTION\n  2\nHEADER\n  9\n$ACADVER\n  1\nAC1009\n"
+                + "  9\n$INSUNITS\n 70\n6\n  0\nENDSEC\n");
+        out.append("  0\nSECTION\n  2\nTABLES\n  0\nTABLE\n  2\nLAYER\n 70\n")
+                .append(String.valueOf(LAYERS.length)).append('\n');
+        for (int i = 0; i < LAYERS.length; i++) {
+            out.append("  0\nLAYER\n  2\n").append(LAYERS[i])
+                    .append("\n 70\n0\n 62\n").append(String.valueOf(LAYER_COLOURS[i]))
+                    .append("\n  6\nCONTINUOUS\n");
+        }
+        out.append("  0\nENDTAB\n  0\nENDSEC\n  0\nSECTION\n  2\nENTITIES\n");
+
+        for (int i = 0; i < boundary.size(); i++) {
+            BoundarySegment segment = boundary.get(i);
+            entity.setLength(0);
+            appendDxfLine(entity, layerName(segment.getState()), segment.getX1(),
+                    segment.getY1(), segment.getX2(), segment.getY2());
+            out.append(entity);
+        }
+        for (int i = 0; i < holes.size(); i++) {
+            writeDxfPath(out, entity, OBSTACLE_LAYER,
+                    holes.get(i).getOutline().getPathIterator(null, FLATNESS));
+        }
+        for (int i = 0; i < parks.size(); i++) {
+            writeDxfPath(out, entity, PARK_LAYER,
+                    parkLayout.getParkLine(parks.get(i)).getPathIterator(null, FLATNESS));
+        }
+        out.append("  0\nENDSEC\n  0\nEOF\n");
+        out.flush();
+    }
+
+    /**
+     * Writes each straight piece of an outline as a DXF LINE.
+     *
+     * @param out where to write the lines.
+     * @param entity a builder to reuse for each line.
+     * @param layer the layer to put the lines on.
+     * @param path the outline, already cut into straight pieces.
+     * @throws IOException If writing fails.
+     */
+    private void writeDxfPath(Writer out, StringBuilder entity, String layer,
+            PathIterator path) throws IOException {
+        double[] coords = new double[6];
+        double startX = 0;
+        double startY = 0;
+        double lastX = 0;
+        double lastY = 0;
+        while (!path.isDone()) {
+            switch (path.currentSegment(coords)) {
+                case PathIterator.SEG_MOVETO:
+                    startX = coords[0];
+                    startY = coords[1];
+                    lastX = coords[0];
+                    lastY = coords[1];
+                    break;
+                case PathIterator.SEG_LINETO:
+                    entity.setLength(0);
+                    appendDxfLine(entity, layer, lastX, lastY, coords[0], coords[1]);
+                    out.append(entity);
+                    lastX = coords[0];
+                    lastY = coords[1];
+                    break;
+                case PathIterator.SEG_CLOSE:
+                    if (lastX != startX || lastY != startY) {
+                        entity.setLength(0);
+                        appendDxfLine(entity, layer, lastX, lastY, startX, startY);
+                        out.append(entity);
+                    }
+                    lastX = startX;
+                    lastY = startY;
+                    break;
+                default:
+                    break;
+            }
+            path.next();
+        }
+    }
+
+    /**
+     * Adds a DXF LINE between two points, converting to metres with y up.
+     *
+     * @param entity where to add the line.
+     * @param layer the layer to put the line on.
+     * @param x1 the x location of the start (px).
+     * @param y1 the y location of the start (px).
+     * @param x2 the x location of the finish (px).
+     * @param y2 the y location of the finish (px).
+     */
+    private void appendDxfLine(StringBuilder entity, String layer,
+            double x1, double y1, double x2, double y2) {
+        entity.append("  0\nLINE\n  8\n").append(layer).append("\n 10\n");
+        appendNumber(entity, x1 / pxPerMetre);
+        entity.append("\n 20\n");
+        appendNumber(entity, -y1 / pxPerMetre);
+        entity.append("\n 30\n0\n 11\n");
+        appendNumber(entity, x2 / pxPerMetre);
+        entity.append("\n 21\n");
+        appendNumber(entity, -y2 / pxPerMetre);
+        entity.append("\n 31\n0\n");
+    }
+
+    /**
+     * Adds an outline as SVG path data in metres.
+     *
+     * @param data where to add the path data.
+     * @param path the outline, already cut into straight pieces.
+     */
+    private void appendSvgPath(StringBuilder data, PathIterator path) {
+        double[] coords = new double[6];
+        while (!path.isDone()) {
+            switch (path.currentSegment(coords)) {
+                case PathIterator.SEG_MOVETO:
+                    data.append('M');
+                    appendNumber(data, coords[0] / pxPerMetre);
+                    data.append(' ');
+                    appendNumber(data, coords[1] / pxPerMetre);
+                    break;
+                case PathIterator.SEG_LINETO:
+                    data.append('L');
+                    appendNumber(data, coords[0] / pxPerMetre);
+                    data.append(' ');
+                    appendNumber(data, coords[1] / pxPerMetre);
+                    break;
+                case PathIterator.SEG_CLOSE:
+                    data.append('Z');
+                    break;
+                default:
+                    break;
+            }
+            path.next();
+        }
+    }
+
+    /**
+     * Works out the area the drawing covers, the boarder with a metre round
+     * it.
+     *
+     * @return the area (m).
+     */
+    private Rectangle2D extent() {
+        Rectangle2D extent = new Rectangle2D.Double();
+        for (int i = 0; i < boundary.size(); i++) {
+            BoundarySegment segment = boundary.get(i);
+            if (i == 0) {
+                extent.setRect(segment.getX1(), segment.getY1(), 0, 0);
+            }
+            extent.add(segment.getX1(), segment.getY1());
+            extent.add(segment.getX2(), segment.getY2());
+        }
+        return new Rectangle2D.Double(extent.getX() / pxPerMetre - 1,
+                extent.getY() / pxPerMetre - 1, extent.getWidth() / pxPerMetre + 2,
+                extent.getHeight() / pxPerMetre + 2);
+    }
+
+    /**
+     * Adds a number rounded to 0.1 mm, without going through String.format,
+     * which is the slow part of writing a large layout.
+     *
+     * @param text where to add the number.
+     * @param value the number (m).
+     */
+    static void appendNumber(StringBuilder text, double value) {
+        long scaled = Math.round(value * 10000);
+        if (scaled < 0) {
+            text.append('-');
+            scaled = -scaled;
+        }
+        text.append(scaled / 10000);
+        long fraction = scaled % 10000;
+        if (fraction != 0) {
+            //drop trailing zeros, then pad with leading ones.
+            int digits = 4;
+            while (fraction % 10 == 0) {
+                fraction /= 10;
+                digits--;
+            }
+            text.append('.');
+            for (long place = pow10(digits - 1); place > fraction; place /= 10) {
+                text.append('0');
+            }
+            text.append(fraction);
+        }
+    }
+
+    /**
+     * Works out a power of ten.
+     *
+     * @param exponent the power, 0 to 3.
+     * @return ten to the power.
+     */
+    private static long pow10(int exponent) {
+        long result = 1;
+        for (int i = 0; i < exponent; i++) {
+            result *= 10;
+        }
+        return result;
+    }
+
+    /**
+     * Adds a colour as an SVG hex colour.
+     *
+     * @param text where to add the colour.
+     * @param colour the colour.
+     */
+    private static void appendColour(StringBuilder text, Color colour) {
+        text.append(String.format("#%06x", colour.getRGB() & 0xffffff));
+    }
+}
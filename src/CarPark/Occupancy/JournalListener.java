@@ -0,0 +1,18 @@
+package CarPark.Occupancy;
+
+/**
+ * Receives the events of an OccupancyJournal as it is replayed.
+ *
+ * @author Aydin + Sam
+ */
+public interface JournalListener {
+
+    /**
+     * Called for each event in the order they were written.
+     *
+     * @param stall the stall number.
+     * @param timeMillis when the event happened (ms since the epoch).
+     * @param taken true if a car went into the stall, false if it left.
+     */
+    void event(int stall, long timeMillis, boolean taken);
+}
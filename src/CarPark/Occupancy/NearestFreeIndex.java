@@ -0,0 +1,193 @@
+package CarPark.Occupancy;
+
+import CarPark.Algorithm.AlgGeneratedPark;
+import CarPark.Algorithm.BucketGrid;
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Finds the nearest free stall to a point, e.g. an entrance or a driver.
+ * Stalls are put into square buckets by their park position and each bucket
+ * keeps an atomic count of its free stalls. A query searches rings of buckets
+ * outwards from the point, skipping full buckets with a single read, and
+ * stops once no unsearched bucket could hold anything nearer.
+ *
+ * Occupancy changes have to go through setTaken so the bucket counts follow
+ * the StallOccupancy bits. Queries and updates can run at the same time on
+ * any threads; a query only promises a stall that was free while it looked,
+ * so use claimNearestFree to both find and take a stall.
+ *
+ * @author Aydin + Sam
+ */
+public class NearestFreeIndex {
+
+    private StallOccupancy occupancy;
+    //park positions (px).
+    private double[] stallX;
+    private double[] stallY;
+    //stall numbers in each bucket and the bucket of each stall.
+    private BucketGrid buckets;
+    private int[] stallBuckets;
+    //free stalls in each bucket.
+    private AtomicIntegerArray bucketFree;
+
+    /**
+     * Constructor: Buckets the stalls of a layout.
+     *
+     * @param parks the parks placed by a parking algorithm, in stall order.
+     * @param occupancy the occupancy of the same stalls.
+     * @param bucketSize the width of a bucket (px), a few stalls wide works
+     * well.
+     */
+    public NearestFreeIndex(ArrayList<AlgGeneratedPark> parks,
+            StallOccupancy occupancy, double bucketSize) {
+        if (parks.size() != occupancy.getStallCount()) {
+            throw new IllegalArgumentException("The layout has " + parks.size()
+                    + " parks but the occupancy has " + occupancy.getStallCount() + " stalls.");
+        }
+        this.occupancy = occupancy;
+        int n = parks.size();
+        stallX = new double[n];
+        stallY = new double[n];
+        //each stall is a point.
+        double[] points = new double[4 * n];
+        for (int i = 0; i < n; i++) {
+            Point2D.Double position = parks.get(i).getParkPosition();
+            stallX[i] = position.getX();
+            stallY[i] = position.getY();
+            points[4 * i] = stallX[i];
+            points[4 * i + 1] = stallY[i];
+            points[4 * i + 2] = stallX[i];
+            points[4 * i + 3] = stallY[i];
+        }
+        buckets = new BucketGrid(points, n, bucketSize);
+
+        int cols = buckets.getCols();
+        stallBuckets = new int[n];
+        bucketFree = new AtomicIntegerArray(cols * buckets.getRows());
+        for (int i = 0; i < n; i++) {
+            stallBuckets[i] = buckets.row(stallY[i]) * cols + buckets.col(stallX[i]);
+            if (!occupancy.isTaken(i)) {
+                bucketFree.incrementAndGet(stallBuckets[i]);
+            }
+        }
+    }
+
+    /**
+     * Records a sensor event for a stall, keeping the bucket counts in step.
+     *
+     * @param stall the stall number.
+     * @param taken true if a car is now in the stall.
+     * @return true if this changed the stall, false if it was already so.
+     */
+    public boolean setTaken(int stall, boolean taken) {
+        if (!occupancy.setTaken(stall, taken)) {
+            return false;
+        }
+        bucketFree.addAndGet(stallBuckets[stall], taken ? -1 : 1);
+        return true;
+    }
+
+    /**
+     * Finds the nearest stall that is free.
+     *
+     * @param x the x location to search from (px).
+     * @param y the y location to search from (px).
+     * @return the stall number, -1 if no stall is free.
+     */
+    public int nearestFree(double x, double y) {
+        if (occupancy.getFreeCount() == 0) {
+            return -1;
+        }
+        int cols = buckets.getCols();
+        int rows = buckets.getRows();
+        double bucketSize = buckets.getBucketSize();
+        double originX = buckets.getOriginX();
+        double originY = buckets.getOriginY();
+        int centreCol = clamp(buckets.col(x), cols);
+        int centreRow = clamp(buckets.row(y), rows);
+        //how far the point is outside the grid, every stall is at least
+        //this far away.
+        double outside = Math.max(0, Math.max(
+                Math.max(originX - x, x - (originX + cols * bucketSize)),
+                Math.max(originY - y, y - (originY + rows * bucketSize))));
+
+        int best = -1;
+        double bestDistanceSq = Double.MAX_VALUE;
+        int rings = Math.max(Math.max(centreCol, cols - 1 - centreCol),
+                Math.max(centreRow, rows - 1 - centreRow));
+        for (int ring = 0; ring <= rings; ring++) {
+            //everything in this ring and beyond is at least this far away.
+            double reach = Math.max(outside, Math.max(0, ring - 1) * bucketSize);
+            if (best != -1 && reach * reach > bestDistanceSq) {
+                break;
+            }
+            for (int r = centreRow - ring; r <= centreRow + ring; r++) {
+                if (r < 0 || r >= rows) {
+                    continue;
+                }
+                //the middle rows of a ring only have their two end buckets.
+                int step = (r == centreRow - ring || r == centreRow + ring) ? 1 : 2 * ring;
+                for (int c = centreCol - ring; c <= centreCol + ring; c += Math.max(1, step)) {
+                    if (c < 0 || c >= cols) {
+                        continue;
+                    }
+                    int b = r * cols + c;
+                    if (bucketFree.get(b) == 0) {
+                        continue;
+                    }
+                    int[] stalls = buckets.getBucket(c, r);
+                    for (int k = 0; k < stalls.length; k++) {
+                        int stall = stalls[k];
+                        double dx = stallX[stall] - x;
+                        double dy = stallY[stall] - y;
+                        double distanceSq = dx * dx + dy * dy;
+                        if (distanceSq < bestDistanceSq && !occupancy.isTaken(stall)) {
+                            best = stall;
+                            bestDistanceSq = distanceSq;
+                        }
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Finds the nearest free stall and takes it, trying again if another
+     * thread takes it first.
+     *
+     * @param x the x location to search from (px).
+     * @param y the y location to search from (px).
+     * @return the stall number taken, -1 if no stall is free.
+     */
+    public int claimNearestFree(double x, double y) {
+        while (true) {
+            int stall = nearestFree(x, y);
+            if (stall == -1 || setTaken(stall, true)) {
+                return stall;
+            }
+        }
+    }
+
+    /**
+     * Gets the occupancy the index follows.
+     *
+     * @return the occupancy.
+     */
+    public StallOccupancy getOccupancy() {
+        return occupancy;
+    }
+
+    /**
+     * Keeps a bucket number on the grid.
+     *
+     * @param i the bucket column or row.
+     * @param size the number of columns or rows.
+     * @return the nearest column or row on the grid.
+     */
+    private static int clamp(int i, int size) {
+        return Math.max(0, Math.min(size - 1, i));
+    }
+}
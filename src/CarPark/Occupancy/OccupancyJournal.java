@@ -0,0 +1,265 @@
+package CarPark.Occupancy;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * An append only record of occupancy changes kept in memory mapped segment
+ * files in one directory. Every event is a 16 byte record of the time (8
+ * bytes), the stall (4 bytes) and the state (4 bytes). Each segment starts
+ * with a 16 byte header holding a marker and how many records it has, and
+ * holds a fixed number of records; when one fills up the next is started.
+ *
+ * Writing a record is a few puts into mapped memory and replaying reads the
+ * segments straight through the same way, so a million events replay in a
+ * fraction of a second.
+ *
+ * @author Aydin + Sam
+ */
+public class OccupancyJournal {
+
+    public static final int RECORD_SIZE = 16;
+    private static final int HEADER_SIZE = 16;
+    private static final int MAGIC = 0x43504A31; //"CPJ1"
+    private static final String PREFIX = "journal-";
+    private static final String SUFFIX = ".seg";
+    private File directory;
+    private int recordsPerSegment;
+    //the segment being written.
+    private int segment;
+    private RandomAccessFile file;
+    private MappedByteBuffer buffer;
+    private int count;
+
+    /**
+     * Constructor: Opens a journal, carrying on from the end of the last
+     * segment if the directory already has one.
+     *
+     * @param directory where the segment files are kept.
+     * @param recordsPerSegment how many records each new segment holds.
+     * @throws IOException if the files can't be created or read.
+     */
+    public OccupancyJournal(File directory, int recordsPerSegment) throws IOException {
+        if (recordsPerSegment <= 0) {
+            throw new IllegalArgumentException("A segment must hold at least one record.");
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create journal directory " + directory);
+        }
+        this.directory = directory;
+        this.recordsPerSegment = recordsPerSegment;
+        File[] segments = listSegments(directory);
+        if (segments.length == 0) {
+            openSegment(0, true);
+        } else {
+            File last = segments[segments.length - 1];
+            openSegment(segmentNumber(last), false);
+        }
+    }
+
+    /**
+     * Writes an event to the end of the journal.
+     *
+     * @param stall the stall number.
+     * @param timeMillis when the event happened (ms since the epoch).
+     * @param taken true if a car went into the stall, false if it left.
+     * @throws IOException if a new segment can't be started.
+     */
+    public synchronized void append(int stall, long timeMillis, boolean taken) throws IOException {
+        if (buffer == null) {
+            throw new IOException("The journal is closed.");
+        }
+        if (count == capacity()) {
+            buffer.force();
+            file.close();
+            openSegment(segment + 1, true);
+        }
+        int at = HEADER_SIZE + count * RECORD_SIZE;
+        buffer.putLong(at, timeMillis);
+        buffer.putInt(at + 8, stall);
+        buffer.putInt(at + 12, taken ? 1 : 0);
+        //the count goes in last so a half written record is never read.
+        count++;
+        buffer.putLong(8, count);
+    }
+
+    /**
+     * Flushes the records written so far to disk.
+     */
+    public synchronized void force() {
+        if (buffer != null) {
+            buffer.force();
+        }
+    }
+
+    /**
+     * Flushes and closes the journal.
+     *
+     * @throws IOException if the file can't be closed.
+     */
+    public synchronized void close() throws IOException {
+        if (buffer != null) {
+            buffer.force();
+            buffer = null;
+            file.close();
+        }
+    }
+
+    /**
+     * Replays every event in a journal directory in the order written.
+     *
+     * @param directory where the segment files are kept.
+     * @param listener receives each event.
+     * @return how many events were replayed.
+     * @throws IOException if a segment can't be read.
+     */
+    public static long replay(File directory, JournalListener listener) throws IOException {
+        return replay(directory, Long.MIN_VALUE, Long.MAX_VALUE, listener);
+    }
+
+    /**
+     * Replays the events of a journal directory that happened in a time
+     * range. Segments that end before the range are skipped without reading
+     * their records.
+     *
+     * @param directory where the segment files are kept.
+     * @param fromMillis the start of the range, included (ms).
+     * @param toMillis the end of the range, not included (ms).
+     * @param listener receives each event.
+     * @return how many events were replayed.
+     * @throws IOException if a segment can't be read.
+     */
+    public static long replay(File directory, long fromMillis, long toMillis,
+            JournalListener listener) throws IOException {
+        long replayed = 0;
+        File[] segments = listSegments(directory);
+        for (int s = 0; s < segments.length; s++) {
+            RandomAccessFile in = new RandomAccessFile(segments[s], "r");
+            try {
+                FileChannel channel = in.getChannel();
+                MappedByteBuffer records = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                int recordCount = checkHeader(records, segments[s]);
+                if (recordCount == 0
+                        || records.getLong(HEADER_SIZE + (recordCount - 1) * RECORD_SIZE) < fromMillis) {
+                    continue;
+                }
+                for (int i = 0; i < recordCount; i++) {
+                    int at = HEADER_SIZE + i * RECORD_SIZE;
+                    long time = records.getLong(at);
+                    if (time >= fromMillis && time < toMillis) {
+                        listener.event(records.getInt(at + 8), time, records.getInt(at + 12) != 0);
+                        replayed++;
+                    }
+                }
+            } finally {
+                in.close();
+            }
+        }
+        return replayed;
+    }
+
+    /**
+     * Rebuilds the occupancy of a layout by replaying a journal into it.
+     *
+     * @param directory where the segment files are kept.
+     * @param occupancy the occupancy to update, normally empty.
+     * @return how many events were replayed.
+     * @throws IOException if a segment can't be read.
+     */
+    public static long rebuild(File directory, final StallOccupancy occupancy) throws IOException {
+        return replay(directory, new JournalListener() {
+            @Override
+            public void event(int stall, long timeMillis, boolean taken) {
+                occupancy.setTaken(stall, taken);
+            }
+        });
+    }
+
+    /**
+     * How many records the open segment can hold.
+     *
+     * @return the segment's capacity.
+     */
+    private int capacity() {
+        return (buffer.capacity() - HEADER_SIZE) / RECORD_SIZE;
+    }
+
+    /**
+     * Maps a segment for writing.
+     *
+     * @param number the segment number.
+     * @param create true to start a new segment, false to carry on an old one.
+     * @throws IOException if the file can't be created or read.
+     */
+    private void openSegment(int number, boolean create) throws IOException {
+        File path = new File(directory, String.format("%s%06d%s", PREFIX, number, SUFFIX));
+        file = new RandomAccessFile(path, "rw");
+        FileChannel channel = file.getChannel();
+        long size = create ? HEADER_SIZE + (long) recordsPerSegment * RECORD_SIZE : channel.size();
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        segment = number;
+        if (create) {
+            buffer.putInt(0, MAGIC);
+            buffer.putLong(8, 0);
+            count = 0;
+        } else {
+            count = checkHeader(buffer, path);
+        }
+    }
+
+    /**
+     * Checks a segment's header and reads how many records it holds.
+     *
+     * @param segmentBuffer the mapped segment.
+     * @param path the segment file, for error messages.
+     * @return the number of records.
+     * @throws IOException if the segment isn't a journal segment.
+     */
+    private static int checkHeader(MappedByteBuffer segmentBuffer, File path) throws IOException {
+        if (segmentBuffer.capacity() < HEADER_SIZE || segmentBuffer.getInt(0) != MAGIC) {
+            throw new IOException(path + " is not a journal segment.");
+        }
+        long records = segmentBuffer.getLong(8);
+        if (records < 0 || HEADER_SIZE + records * RECORD_SIZE > segmentBuffer.capacity()) {
+            throw new IOException(path + " has a bad record count.");
+        }
+        return (int) records;
+    }
+
+    /**
+     * Finds the segment files of a journal in order.
+     *
+     * @param directory where the segment files are kept.
+     * @return the segment files, oldest first.
+     */
+    private static File[] listSegments(File directory) {
+        File[] segments = directory.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+            }
+        });
+        if (segments == null) {
+            return new File[0];
+        }
+        //numbers are zero padded so name order is segment order.
+        Arrays.sort(segments);
+        return segments;
+    }
+
+    /**
+     * Reads the number out of a segment's file name.
+     *
+     * @param segmentFile the segment file.
+     * @return the segment number.
+     */
+    private static int segmentNumber(File segmentFile) {
+        String name = segmentFile.getName();
+        return Integer.parseInt(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+}
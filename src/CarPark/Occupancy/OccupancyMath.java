@@ -0,0 +1,28 @@
+package CarPark.Occupancy;
+
+/**
+ * Sums shared by the occupancy classes.
+ *
+ * @author Aydin + Sam
+ */
+final class OccupancyMath {
+
+    /**
+     * Nothing to make, only static methods.
+     */
+    private OccupancyMath() {
+    }
+
+    /**
+     * Divides rounding down, so times before 1970 still fall in the right
+     * bucket.
+     *
+     * @param a the number to divide.
+     * @param b the number to divide by, above 0.
+     * @return the largest whole number no more than a / b.
+     */
+    static long floorDiv(long a, long b) {
+        long q = a / b;
+        return (a % b < 0) ? q - 1 : q;
+    }
+}
@@ -0,0 +1,372 @@
+package CarPark.Occupancy;
+
+import java.util.Arrays;
+
+/**
+ * Per zone occupancy and turnover for each of the last 1440 minutes and the
+ * last 24 hours, kept in fixed rings of primitive arrays. Each event adds the
+ * time the zone spent at its old number of taken stalls to the buckets it
+ * covered and counts the arrival or departure, so nothing is allocated per
+ * event and a query reads the buckets it asks for without going back to the
+ * raw events.
+ *
+ * A bucket remembers which minute or hour it holds, so old buckets are
+ * simply overwritten when the ring comes round. Queries see time up to the
+ * latest event or advanceTo call, so call advanceTo with the current time
+ * before reading if the lot has been quiet.
+ *
+ * @author Aydin + Sam
+ */
+public class OccupancyRollups implements JournalListener {
+
+    private static final long MINUTE_MILLIS = 60 * 1000L;
+    private static final long HOUR_MILLIS = 60 * MINUTE_MILLIS;
+    private StallOccupancy occupancy;
+    private Ring minutes;
+    private Ring hours;
+    //per zone: taken stalls, time accounted up to (ms) and a lock.
+    private int[] taken;
+    private long[] accountedTo;
+    private Object[] locks;
+
+    /**
+     * Constructor: Starts rolling up a lot from its present occupancy.
+     *
+     * @param occupancy the occupancy the events are for, giving the zones.
+     * @param startMillis when the rollups start (ms since the epoch).
+     */
+    public OccupancyRollups(StallOccupancy occupancy, long startMillis) {
+        this.occupancy = occupancy;
+        int zones = occupancy.getZoneCount();
+        minutes = new Ring(zones, 24 * 60, MINUTE_MILLIS);
+        hours = new Ring(zones, 24, HOUR_MILLIS);
+        taken = new int[zones];
+        accountedTo = new long[zones];
+        locks = new Object[zones];
+        for (int z = 0; z < zones; z++) {
+            taken[z] = occupancy.getTakenCount(z);
+            accountedTo[z] = startMillis;
+            locks[z] = new Object();
+        }
+    }
+
+    /**
+     * Records an occupancy change. Events for a zone are expected in time
+     * order; one that comes in late is counted at the zone's latest time.
+     *
+     * @param stall the stall number.
+     * @param timeMillis when the event happened (ms since the epoch).
+     * @param taken true if a car went into the stall, false if it left.
+     */
+    @Override
+    public void event(int stall, long timeMillis, boolean taken) {
+        int zone = occupancy.getZone(stall);
+        synchronized (locks[zone]) {
+            advance(zone, timeMillis);
+            long at = Math.max(timeMillis, accountedTo[zone]);
+            if (taken) {
+                minutes.arrivals[minutes.touch(zone, at)]++;
+                hours.arrivals[hours.touch(zone, at)]++;
+                this.taken[zone]++;
+            } else {
+                minutes.departures[minutes.touch(zone, at)]++;
+                hours.departures[hours.touch(zone, at)]++;
+                this.taken[zone]--;
+            }
+        }
+    }
+
+    /**
+     * Accounts for the time up to now in every zone, for when the lot has
+     * been quiet.
+     *
+     * @param nowMillis the time (ms since the epoch).
+     */
+    public void advanceTo(long nowMillis) {
+        for (int z = 0; z < locks.length; z++) {
+            synchronized (locks[z]) {
+                advance(z, nowMillis);
+            }
+        }
+    }
+
+    /**
+     * Gets the mean share of a zone's stalls taken in each minute of a range.
+     *
+     * @param zone the zone number.
+     * @param fromMillis the start of the range (ms).
+     * @param toMillis the end of the range, not included (ms).
+     * @return the occupancy of each minute from 0 to 1, NaN for minutes not
+     * held in the ring.
+     */
+    public double[] getMinuteOccupancy(int zone, long fromMillis, long toMillis) {
+        return minutes.occupancy(zone, fromMillis, toMillis);
+    }
+
+    /**
+     * Gets how many cars arrived in a zone in each minute of a range.
+     *
+     * @param zone the zone number.
+     * @param fromMillis the start of the range (ms).
+     * @param toMillis the end of the range, not included (ms).
+     * @return the arrivals in each minute.
+     */
+    public int[] getMinuteArrivals(int zone, long fromMillis, long toMillis) {
+        return minutes.counts(zone, fromMillis, toMillis, true);
+    }
+
+    /**
+     * Gets how many cars left a zone in each minute of a range.
+     *
+     * @param zone the zone number.
+     * @param fromMillis the start of the range (ms).
+     * @param toMillis the end of the range, not included (ms).
+     * @return the departures in each minute.
+     */
+    public int[] getMinuteDepartures(int zone, long fromMillis, long toMillis) {
+        return minutes.counts(zone, fromMillis, toMillis, false);
+    }
+
+    /**
+     * Gets the mean share of a zone's stalls taken in each hour of a range.
+     *
+     * @param zone the zone number.
+     * @param fromMillis the start of the range (ms).
+     * @param toMillis the end of the range, not included (ms).
+     * @return the occupancy of each hour from 0 to 1, NaN for hours not held
+     * in the ring.
+     */
+    public double[] getHourOccupancy(int zone, long fromMillis, long toMillis) {
+        return hours.occupancy(zone, fromMillis, toMillis);
+    }
+
+    /**
+     * Gets how many cars arrived in a zone in each hour of a range.
+     *
+     * @param zone the zone number.
+     * @param fromMillis the start of the range (ms).
+     * @param toMillis the end of the range, not included (ms).
+     * @return the arrivals in each hour.
+     */
+    public int[] getHourArrivals(int zone, long fromMillis, long toMillis) {
+        return hours.counts(zone, fromMillis, toMillis, true);
+    }
+
+    /**
+     * Gets how many cars left a zone in each hour of a range.
+     *
+     * @param zone the zone number.
+     * @param fromMillis the start of the range (ms).
+     * @param toMillis the end of the range, not included (ms).
+     * @return the departures in each hour.
+     */
+    public int[] getHourDepartures(int zone, long fromMillis, long toMillis) {
+        return hours.counts(zone, fromMillis, toMillis, false);
+    }
+
+    /**
+     * Gets the mean share of a zone's stalls taken over a range, to the
+     * minute, using whole hours from the hour ring and the minute ring for
+     * the ends.
+     *
+     * @param zone the zone number.
+     * @param fromMillis the start of the range (ms).
+     * @param toMillis the end of the range, not included (ms).
+     * @return the occupancy from 0 to 1, NaN if none of the range is held.
+     */
+    public double getMeanOccupancy(int zone, long fromMillis, long toMillis) {
+        long[] sums = new long[2];
+        synchronized (locks[zone]) {
+            long from = OccupancyMath.floorDiv(fromMillis, MINUTE_MILLIS) * MINUTE_MILLIS;
+            while (from < toMillis) {
+                if (from % HOUR_MILLIS == 0 && from + HOUR_MILLIS <= toMillis) {
+                    hours.addTo(zone, from / HOUR_MILLIS, sums);
+                    from += HOUR_MILLIS;
+                } else {
+                    minutes.addTo(zone, from / MINUTE_MILLIS, sums);
+                    from += MINUTE_MILLIS;
+                }
+            }
+        }
+        int size = occupancy.getZoneSize(zone);
+        if (sums[1] == 0 || size == 0) {
+            return Double.NaN;
+        }
+        return (double) sums[0] / sums[1] / size;
+    }
+
+    /**
+     * Adds the time since a zone was last accounted for to the buckets it
+     * covers. Only the last day can be held, so a longer gap only fills the
+     * last day.
+     *
+     * @param zone the zone number.
+     * @param nowMillis the time to account up to (ms).
+     */
+    private void advance(int zone, long nowMillis) {
+        long from = accountedTo[zone];
+        if (nowMillis <= from) {
+            return;
+        }
+        from = Math.max(from, nowMillis - 24 * HOUR_MILLIS);
+        while (from < nowMillis) {
+            long minuteEnd = (OccupancyMath.floorDiv(from, MINUTE_MILLIS) + 1) * MINUTE_MILLIS;
+            long until = Math.min(nowMillis, minuteEnd);
+            long stallMillis = taken[zone] * (until - from);
+            int minute = minutes.touch(zone, from);
+            minutes.takenMillis[minute] += stallMillis;
+            minutes.accountedMillis[minute] += until - from;
+            int hour = hours.touch(zone, from);
+            hours.takenMillis[hour] += stallMillis;
+            hours.accountedMillis[hour] += until - from;
+            from = until;
+        }
+        accountedTo[zone] = nowMillis;
+    }
+
+    /**
+     * One ring of buckets for every zone, each bucket holding the stall time
+     * taken and the arrivals and departures of one minute or hour.
+     */
+    private class Ring {
+
+        private int slots;
+        private long lengthMillis;
+        //per zone and slot, the zone's slots being together.
+        private long[] stamps;
+        private long[] takenMillis;
+        //time accounted for in the bucket, less than its length while it is
+        //the latest or if the rollups started part way through it.
+        private long[] accountedMillis;
+        private int[] arrivals;
+        private int[] departures;
+
+        /**
+         * Constructor: Sets up empty rings.
+         *
+         * @param zones how many zones there are.
+         * @param slots how many buckets each zone's ring has.
+         * @param lengthMillis how long each bucket lasts (ms).
+         */
+        Ring(int zones, int slots, long lengthMillis) {
+            this.slots = slots;
+            this.lengthMillis = lengthMillis;
+            stamps = new long[zones * slots];
+            //no bucket is held to begin with.
+            Arrays.fill(stamps, Long.MIN_VALUE);
+            takenMillis = new long[zones * slots];
+            accountedMillis = new long[zones * slots];
+            arrivals = new int[zones * slots];
+            departures = new int[zones * slots];
+        }
+
+        /**
+         * Finds the bucket for a time, clearing it if it held an older one.
+         *
+         * @param zone the zone number.
+         * @param timeMillis the time (ms).
+         * @return the index of the bucket.
+         */
+        int touch(int zone, long timeMillis) {
+            long bucket = OccupancyMath.floorDiv(timeMillis, lengthMillis);
+            int i = index(zone, bucket);
+            if (stamps[i] != bucket) {
+                stamps[i] = bucket;
+                takenMillis[i] = 0;
+                accountedMillis[i] = 0;
+                arrivals[i] = 0;
+                departures[i] = 0;
+            }
+            return i;
+        }
+
+        /**
+         * Adds a bucket's stall time and accounted time to running sums.
+         *
+         * @param zone the zone number.
+         * @param bucket the absolute bucket number.
+         * @param sums the stall time and accounted time so far (ms).
+         */
+        void addTo(int zone, long bucket, long[] sums) {
+            int i = index(zone, bucket);
+            if (stamps[i] != bucket) {
+                return;
+            }
+            sums[0] += takenMillis[i];
+            sums[1] += accountedMillis[i];
+        }
+
+        /**
+         * Gets the mean share of stalls taken in each bucket of a range.
+         *
+         * @param zone the zone number.
+         * @param fromMillis the start of the range (ms).
+         * @param toMillis the end of the range, not included (ms).
+         * @return the occupancy of each bucket, NaN for buckets not held.
+         */
+        double[] occupancy(int zone, long fromMillis, long toMillis) {
+            long first = OccupancyMath.floorDiv(fromMillis, lengthMillis);
+            int count = bucketCount(first, toMillis);
+            double[] values = new double[count];
+            int size = occupancy.getZoneSize(zone);
+            long[] sums = new long[2];
+            synchronized (locks[zone]) {
+                for (int k = 0; k < count; k++) {
+                    sums[0] = 0;
+                    sums[1] = 0;
+                    addTo(zone, first + k, sums);
+                    values[k] = sums[1] == 0 || size == 0
+                            ? Double.NaN : (double) sums[0] / sums[1] / size;
+                }
+            }
+            return values;
+        }
+
+        /**
+         * Gets the arrivals or departures in each bucket of a range.
+         *
+         * @param zone the zone number.
+         * @param fromMillis the start of the range (ms).
+         * @param toMillis the end of the range, not included (ms).
+         * @param arriving true for arrivals, false for departures.
+         * @return the count in each bucket, 0 for buckets not held.
+         */
+        int[] counts(int zone, long fromMillis, long toMillis, boolean arriving) {
+            long first = OccupancyMath.floorDiv(fromMillis, lengthMillis);
+            int count = bucketCount(first, toMillis);
+            int[] values = new int[count];
+            synchronized (locks[zone]) {
+                for (int k = 0; k < count; k++) {
+                    int i = index(zone, first + k);
+                    if (stamps[i] == first + k) {
+                        values[k] = arriving ? arrivals[i] : departures[i];
+                    }
+                }
+            }
+            return values;
+        }
+
+        /**
+         * How many buckets a range covers.
+         *
+         * @param first the first absolute bucket number.
+         * @param toMillis the end of the range, not included (ms).
+         * @return the number of buckets.
+         */
+        private int bucketCount(long first, long toMillis) {
+            long last = OccupancyMath.floorDiv(toMillis - 1, lengthMillis);
+            return (int) Math.max(0, last - first + 1);
+        }
+
+        /**
+         * Where a bucket is kept.
+         *
+         * @param zone the zone number.
+         * @param bucket the absolute bucket number.
+         * @return the index into the arrays.
+         */
+        private int index(int zone, long bucket) {
+            return zone * slots + (int) (bucket - OccupancyMath.floorDiv(bucket, slots) * slots);
+        }
+    }
+}
@@ -0,0 +1,341 @@
+package CarPark.Occupancy;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Pre-bookings of the stalls of a layout, where each stall is its place in
+ * the layout's list of AlgGeneratedParks.
+ * <ul>
+ * <li>Each stall keeps its bookings as start to end times in a sorted map.
+ * Bookings of a stall never overlap, so the booking starting last before the
+ * end of a time range is the only one that could overlap it and one lookup
+ * answers whether the stall is free. Booking checks and adds under that
+ * stall's own lock, so two requests for the same time can't both get the
+ * stall while requests for different stalls never wait on each other.</li>
+ * <li>Every booking is also listed in each fixed length time bucket it
+ * covers. Finding the free stalls for a range only looks at the bookings in
+ * the buckets the range covers, marks their stalls busy in a bitset and
+ * returns the rest, rather than asking every stall.</li>
+ * </ul>
+ * The free stall list is a snapshot; a booking being made at the same moment
+ * may not be in it, but book never lets two overlapping bookings through.
+ *
+ * @author Aydin + Sam
+ */
+public class ReservationBook {
+
+    private static final long HOUR_MILLIS = 60 * 60 * 1000L;
+    private int stallCount;
+    //per stall, booking start to booking end (ms), and a lock for changes.
+    private ConcurrentSkipListMap<Long, Long>[] bookings;
+    private Object[] locks;
+    //bookings covering each time bucket, by bucket number.
+    private long bucketMillis;
+    private ConcurrentHashMap<Long, TimeBucket> buckets = new ConcurrentHashMap<Long, TimeBucket>();
+
+    /**
+     * Constructor: Sets up a book with no bookings and hour long buckets.
+     *
+     * @param stallCount how many stalls the layout has.
+     */
+    public ReservationBook(int stallCount) {
+        this(stallCount, HOUR_MILLIS);
+    }
+
+    /**
+     * Constructor: Sets up a book with no bookings.
+     *
+     * @param stallCount how many stalls the layout has.
+     * @param bucketMillis how long each time bucket is (ms), about as long as
+     * a typical booking works well.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public ReservationBook(int stallCount, long bucketMillis) {
+        if (bucketMillis <= 0) {
+            throw new IllegalArgumentException("Time buckets must have some length.");
+        }
+        this.stallCount = stallCount;
+        this.bucketMillis = bucketMillis;
+        bookings = new ConcurrentSkipListMap[stallCount];
+        locks = new Object[stallCount];
+        for (int i = 0; i < stallCount; i++) {
+            bookings[i] = new ConcurrentSkipListMap<Long, Long>();
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * Whether a stall has no booking overlapping a time range.
+     *
+     * @param stall the stall number.
+     * @param fromMillis the start of the range (ms).
+     * @param toMillis the end of the range, not included (ms).
+     * @return true if the stall is free for the whole range.
+     */
+    public boolean isFree(int stall, long fromMillis, long toMillis) {
+        checkRange(fromMillis, toMillis);
+        Map.Entry<Long, Long> before = bookings[stall].lowerEntry(toMillis);
+        return before == null || before.getValue() <= fromMillis;
+    }
+
+    /**
+     * Finds every stall free for a time range.
+     *
+     * @param fromMillis the start of the range (ms).
+     * @param toMillis the end of the range, not included (ms).
+     * @return the free stall numbers in increasing order.
+     */
+    public int[] freeStalls(long fromMillis, long toMillis) {
+        checkRange(fromMillis, toMillis);
+        long[] busy = new long[(stallCount + 63) >>> 6];
+        long last = OccupancyMath.floorDiv(toMillis - 1, bucketMillis);
+        for (long b = OccupancyMath.floorDiv(fromMillis, bucketMillis); b <= last; b++) {
+            TimeBucket bucket = buckets.get(b);
+            if (bucket != null) {
+                bucket.markOverlapping(fromMillis, toMillis, busy);
+            }
+        }
+        int[] free = new int[stallCount];
+        int count = 0;
+        for (int i = 0; i < stallCount; i++) {
+            if ((busy[i >>> 6] & (1L << (i & 63))) == 0) {
+                free[count++] = i;
+            }
+        }
+        return Arrays.copyOf(free, count);
+    }
+
+    /**
+     * Books a stall for a time range if it is free.
+     *
+     * @param stall the stall number.
+     * @param fromMillis the start of the booking (ms).
+     * @param toMillis the end of the booking, not included (ms).
+     * @return true if the stall was booked, false if it was already taken.
+     */
+    public boolean book(int stall, long fromMillis, long toMillis) {
+        checkRange(fromMillis, toMillis);
+        synchronized (locks[stall]) {
+            if (!isFree(stall, fromMillis, toMillis)) {
+                return false;
+            }
+            bookings[stall].put(fromMillis, toMillis);
+            long last = OccupancyMath.floorDiv(toMillis - 1, bucketMillis);
+            for (long b = OccupancyMath.floorDiv(fromMillis, bucketMillis); b <= last; b++) {
+                TimeBucket bucket = buckets.get(b);
+                if (bucket == null) {
+                    TimeBucket created = new TimeBucket();
+                    bucket = buckets.putIfAbsent(b, created);
+                    if (bucket == null) {
+                        bucket = created;
+                    }
+                }
+                bucket.add(stall, fromMillis, toMillis);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Books the first stall of a list that is free for a time range, moving
+     * on to the next if another request gets a stall first.
+     *
+     * @param stalls the stalls to try, in order of preference.
+     * @param fromMillis the start of the booking (ms).
+     * @param toMillis the end of the booking, not included (ms).
+     * @return the stall booked, -1 if none were free.
+     */
+    public int bookFirstFree(int[] stalls, long fromMillis, long toMillis) {
+        for (int i = 0; i < stalls.length; i++) {
+            if (isFree(stalls[i], fromMillis, toMillis)
+                    && book(stalls[i], fromMillis, toMillis)) {
+                return stalls[i];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Cancels a booking.
+     *
+     * @param stall the stall number.
+     * @param fromMillis the start of the booking (ms).
+     * @return true if there was a booking starting then.
+     */
+    public boolean cancel(int stall, long fromMillis) {
+        synchronized (locks[stall]) {
+            Long toMillis = bookings[stall].remove(fromMillis);
+            if (toMillis == null) {
+                return false;
+            }
+            unlist(stall, fromMillis, toMillis);
+            return true;
+        }
+    }
+
+    /**
+     * Takes a booking out of every time bucket it covers. Called under the
+     * stall's lock.
+     *
+     * @param stall the stall number.
+     * @param fromMillis the start of the booking (ms).
+     * @param toMillis the end of the booking (ms).
+     */
+    private void unlist(int stall, long fromMillis, long toMillis) {
+        long last = OccupancyMath.floorDiv(toMillis - 1, bucketMillis);
+        for (long b = OccupancyMath.floorDiv(fromMillis, bucketMillis); b <= last; b++) {
+            TimeBucket bucket = buckets.get(b);
+            if (bucket != null) {
+                bucket.remove(stall, fromMillis);
+            }
+        }
+    }
+
+    /**
+     * Forgets every booking that ended before a time, to keep the book small.
+     *
+     * Each booking is taken out of its time buckets under its stall's lock,
+     * as cancel does. The buckets before the time that are left empty are
+     * then dropped without taking any stall's lock, so no booking that
+     * starts before the time may be made while this runs, or it may be left
+     * out of freeStalls. Bookings after the time can be made at the same
+     * time as this as usual.
+     *
+     * @param beforeMillis bookings ending at or before this are removed (ms).
+     * @return how many bookings were removed.
+     */
+    public int removeEndedBefore(long beforeMillis) {
+        int removed = 0;
+        for (int i = 0; i < stallCount; i++) {
+            synchronized (locks[i]) {
+                //bookings don't overlap, so they end in the same order they
+                //start.
+                while (!bookings[i].isEmpty()
+                        && bookings[i].firstEntry().getValue() <= beforeMillis) {
+                    Map.Entry<Long, Long> booking = bookings[i].pollFirstEntry();
+                    unlist(i, booking.getKey(), booking.getValue());
+                    removed++;
+                }
+            }
+        }
+        //a bucket before the time may still list a booking running past it,
+        //so only the empty ones go.
+        long lastEnded = OccupancyMath.floorDiv(beforeMillis, bucketMillis);
+        Iterator<Map.Entry<Long, TimeBucket>> entries = buckets.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<Long, TimeBucket> entry = entries.next();
+            if (entry.getKey() < lastEnded && entry.getValue().isEmpty()) {
+                entries.remove();
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Gets how many bookings a stall has.
+     *
+     * @param stall the stall number.
+     * @return the number of bookings.
+     */
+    public int getBookingCount(int stall) {
+        return bookings[stall].size();
+    }
+
+    /**
+     * Gets how many stalls there are.
+     *
+     * @return the number of stalls.
+     */
+    public int getStallCount() {
+        return stallCount;
+    }
+
+    /**
+     * Checks a time range isn't empty or backwards.
+     *
+     * @param fromMillis the start of the range (ms).
+     * @param toMillis the end of the range (ms).
+     */
+    private static void checkRange(long fromMillis, long toMillis) {
+        if (toMillis <= fromMillis) {
+            throw new IllegalArgumentException("A booking must end after it starts.");
+        }
+    }
+
+    /**
+     * The bookings covering one time bucket, in primitive arrays.
+     */
+    private static class TimeBucket {
+
+        private int[] stalls = new int[8];
+        private long[] starts = new long[8];
+        private long[] ends = new long[8];
+        private int size = 0;
+
+        /**
+         * Lists a booking in the bucket.
+         *
+         * @param stall the stall number.
+         * @param fromMillis the start of the booking (ms).
+         * @param toMillis the end of the booking (ms).
+         */
+        synchronized void add(int stall, long fromMillis, long toMillis) {
+            if (size == stalls.length) {
+                stalls = Arrays.copyOf(stalls, size * 2);
+                starts = Arrays.copyOf(starts, size * 2);
+                ends = Arrays.copyOf(ends, size * 2);
+            }
+            stalls[size] = stall;
+            starts[size] = fromMillis;
+            ends[size] = toMillis;
+            size++;
+        }
+
+        /**
+         * Takes a booking out of the bucket, moving the last one into its
+         * place.
+         *
+         * @param stall the stall number.
+         * @param fromMillis the start of the booking (ms).
+         */
+        synchronized void remove(int stall, long fromMillis) {
+            for (int i = 0; i < size; i++) {
+                if (stalls[i] == stall && starts[i] == fromMillis) {
+                    size--;
+                    stalls[i] = stalls[size];
+                    starts[i] = starts[size];
+                    ends[i] = ends[size];
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Whether the bucket lists no bookings.
+         *
+         * @return true if it is empty.
+         */
+        synchronized boolean isEmpty() {
+            return size == 0;
+        }
+
+        /**
+         * Marks the stalls with a booking overlapping a range as busy.
+         *
+         * @param fromMillis the start of the range (ms).
+         * @param toMillis the end of the range, not included (ms).
+         * @param busy one bit per stall, set for busy stalls.
+         */
+        synchronized void markOverlapping(long fromMillis, long toMillis, long[] busy) {
+            for (int i = 0; i < size; i++) {
+                if (starts[i] < toMillis && ends[i] > fromMillis) {
+                    busy[stalls[i] >>> 6] |= 1L << (stalls[i] & 63);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package CarPark.Occupancy;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Tracks which stalls of a layout are taken, where each stall is its place
+ * in the layout's list of AlgGeneratedParks. Stalls are bits in an atomic
+ * array of longs and are flipped with compare and set, so any number of
+ * threads can report sensor events without locking. Only the thread whose
+ * compare and set actually changes a bit updates the counts, which keeps the
+ * whole lot and per zone counts exact and lets them be read in O(1).
+ *
+ * Counts read while updates are happening may be a moment behind the bits,
+ * but each settles once its updates have finished.
+ *
+ * @author Aydin + Sam
+ */
+public class StallOccupancy {
+
+    private int stallCount;
+    //one bit per stall, set when the stall is taken.
+    private AtomicLongArray bits;
+    //the zone of each stall, and how many stalls each zone has.
+    private int[] stallZones;
+    private int[] zoneSizes;
+    //how many stalls are taken in each zone and in the whole lot.
+    private AtomicIntegerArray zoneTaken;
+    private AtomicInteger totalTaken = new AtomicInteger();
+
+    /**
+     * Constructor: Sets up an empty lot with every stall in one zone.
+     *
+     * @param stallCount how many stalls the layout has.
+     */
+    public StallOccupancy(int stallCount) {
+        this(new int[stallCount]);
+    }
+
+    /**
+     * Constructor: Sets up an empty lot split into zones, e.g. one zone per
+     * level.
+     *
+     * @param stallZones the zone number of each stall, from 0.
+     */
+    public StallOccupancy(int[] stallZones) {
+        stallCount = stallZones.length;
+        bits = new AtomicLongArray((stallCount + 63) >>> 6);
+        this.stallZones = stallZones.clone();
+        int zones = 1;
+        for (int i = 0; i < stallCount; i++) {
+            if (stallZones[i] < 0) {
+                throw new IllegalArgumentException("Stall " + i + " has a negative zone.");
+            }
+            zones = Math.max(zones, stallZones[i] + 1);
+        }
+        zoneSizes = new int[zones];
+        for (int i = 0; i < stallCount; i++) {
+            zoneSizes[stallZones[i]]++;
+        }
+        zoneTaken = new AtomicIntegerArray(zones);
+    }
+
+    /**
+     * Records a sensor event for a stall.
+     *
+     * @param stall the stall number.
+     * @param taken true if a car is now in the stall.
+     * @return true if this changed the stall, false if it was already so.
+     */
+    public boolean setTaken(int stall, boolean taken) {
+        checkStall(stall);
+        int word = stall >>> 6;
+        long mask = 1L << (stall & 63);
+        while (true) {
+            long old = bits.get(word);
+            boolean was = (old & mask) != 0;
+            if (was == taken) {
+                return false;
+            }
+            long updated = taken ? old | mask : old & ~mask;
+            if (bits.compareAndSet(word, old, updated)) {
+                int change = taken ? 1 : -1;
+                zoneTaken.addAndGet(stallZones[stall], change);
+                totalTaken.addAndGet(change);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Whether a stall is taken.
+     *
+     * @param stall the stall number.
+     * @return true if a car is in the stall.
+     */
+    public boolean isTaken(int stall) {
+        checkStall(stall);
+        return (bits.get(stall >>> 6) & (1L << (stall & 63))) != 0;
+    }
+
+    /**
+     * Gets 64 stalls' bits at once, stall 64 * word + i being bit i.
+     *
+     * @param word which group of 64 stalls.
+     * @return the bits, set for taken stalls.
+     */
+    public long getWord(int word) {
+        return bits.get(word);
+    }
+
+    /**
+     * Gets how many stalls there are.
+     *
+     * @return the number of stalls.
+     */
+    public int getStallCount() {
+        return stallCount;
+    }
+
+    /**
+     * Gets how many zones there are.
+     *
+     * @return the number of zones.
+     */
+    public int getZoneCount() {
+        return zoneSizes.length;
+    }
+
+    /**
+     * Gets the zone a stall is in.
+     *
+     * @param stall the stall number.
+     * @return the zone number.
+     */
+    public int getZone(int stall) {
+        checkStall(stall);
+        return stallZones[stall];
+    }
+
+    /**
+     * Gets how many stalls are free in the whole lot.
+     *
+     * @return the number of free stalls.
+     */
+    public int getFreeCount() {
+        return stallCount - totalTaken.get();
+    }
+
+    /**
+     * Gets how many stalls are free in a zone.
+     *
+     * @param zone the zone number.
+     * @return the number of free stalls.
+     */
+    public int getFreeCount(int zone) {
+        return zoneSizes[zone] - zoneTaken.get(zone);
+    }
+
+    /**
+     * Gets how many stalls are taken in the whole lot.
+     *
+     * @return the number of taken stalls.
+     */
+    public int getTakenCount() {
+        return totalTaken.get();
+    }
+
+    /**
+     * Gets how many stalls are taken in a zone.
+     *
+     * @param zone the zone number.
+     * @return the number of taken stalls.
+     */
+    public int getTakenCount(int zone) {
+        return zoneTaken.get(zone);
+    }
+
+    /**
+     * Gets how many stalls a zone has.
+     *
+     * @param zone the zone number.
+     * @return the number of stalls.
+     */
+    public int getZoneSize(int zone) {
+        return zoneSizes[zone];
+    }
+
+    /**
+     * Checks a stall number is in range.
+     *
+     * @param stall the stall number.
+     */
+    private void checkStall(int stall) {
+        if (stall < 0 || stall >= stallCount) {
+            throw new IndexOutOfBoundsException("No stall " + stall + " in a layout of "
+                    + stallCount + " stalls.");
+        }
+    }
+}
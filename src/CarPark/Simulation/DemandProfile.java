@@ -0,0 +1,103 @@
+package CarPark.Simulation;
+
+import java.util.Arrays;
+
+/**
+ * How busy a car park is over the day, as the arrival rate in each of a run
+ * of equal time slots. The last slot's rate carries on past the end of the
+ * profile.
+ *
+ * @author Aydin + Sam
+ */
+public class DemandProfile {
+
+    private String name;
+    private double[] arrivalsPerHour;
+    private double slotSeconds;
+
+    /**
+     * Constructor: Sets up a profile with the same rate all the time.
+     *
+     * @param name what the profile is called.
+     * @param arrivalsPerHour how many cars turn up per hour on average.
+     */
+    public DemandProfile(String name, double arrivalsPerHour) {
+        this(name, new double[]{arrivalsPerHour}, 60);
+    }
+
+    /**
+     * Constructor: Sets up a profile with a rate for each time slot.
+     *
+     * @param name what the profile is called.
+     * @param arrivalsPerHour how many cars turn up per hour in each slot.
+     * @param slotMinutes how long each slot lasts in minutes.
+     */
+    public DemandProfile(String name, double[] arrivalsPerHour, double slotMinutes) {
+        if (arrivalsPerHour.length == 0 || slotMinutes <= 0) {
+            throw new IllegalArgumentException("A demand profile needs at least one slot of some length.");
+        }
+        this.name = name;
+        this.arrivalsPerHour = Arrays.copyOf(arrivalsPerHour, arrivalsPerHour.length);
+        this.slotSeconds = slotMinutes * 60;
+    }
+
+    /**
+     * Gets what the profile is called.
+     *
+     * @return the name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the arrival rate at a time.
+     *
+     * @param seconds the time since the start (s).
+     * @return the rate in cars per second.
+     */
+    public double getRate(double seconds) {
+        return arrivalsPerHour[slotAt(seconds)] / 3600;
+    }
+
+    /**
+     * Finds the next arrival after a time for a given amount of unit
+     * exponential "work", walking through the slots so the arrivals follow
+     * the changing rate exactly.
+     *
+     * @param seconds the time of the last arrival (s).
+     * @param work a random draw from an exponential distribution with mean 1.
+     * @return the time of the next arrival (s), infinity if the rate drops
+     * to 0 for good.
+     */
+    public double nextArrival(double seconds, double work) {
+        int slot = slotAt(seconds);
+        double time = seconds;
+        while (true) {
+            double rate = arrivalsPerHour[slot] / 3600;
+            boolean last = slot == arrivalsPerHour.length - 1;
+            double slotEnd = (slot + 1) * slotSeconds;
+            if (last) {
+                return rate > 0 ? time + work / rate : Double.POSITIVE_INFINITY;
+            }
+            double available = rate * (slotEnd - time);
+            if (rate > 0 && available >= work) {
+                return time + work / rate;
+            }
+            work -= available;
+            time = slotEnd;
+            slot++;
+        }
+    }
+
+    /**
+     * Which slot a time falls in.
+     *
+     * @param seconds the time since the start (s).
+     * @return the slot.
+     */
+    private int slotAt(double seconds) {
+        int slot = (int) (seconds / slotSeconds);
+        return Math.max(0, Math.min(arrivalsPerHour.length - 1, slot));
+    }
+}
@@ -0,0 +1,207 @@
+package CarPark.Simulation;
+
+import java.util.Arrays;
+
+/**
+ * A binary heap of timed events kept in parallel primitive arrays so pushing
+ * and popping events never creates objects. Events at the same time come out
+ * in the order they were pushed, which keeps runs repeatable.
+ *
+ * @author Aydin + Sam
+ */
+public class EventQueue {
+
+    //heap of events, the earliest at index 0.
+    private double[] times;
+    private long[] orders;
+    private int[] types;
+    private int[] cars;
+    private int size = 0;
+    //counts every push, breaks ties between events at the same time.
+    private long pushed = 0;
+    //the event last taken off the queue.
+    private double lastTime;
+    private int lastType;
+    private int lastCar;
+
+    /**
+     * Constructor: Sets up an empty queue.
+     *
+     * @param capacity how many events to make room for to begin with.
+     */
+    public EventQueue(int capacity) {
+        capacity = Math.max(1, capacity);
+        times = new double[capacity];
+        orders = new long[capacity];
+        types = new int[capacity];
+        cars = new int[capacity];
+    }
+
+    /**
+     * Adds an event.
+     *
+     * @param time when the event happens (s).
+     * @param type what kind of event it is.
+     * @param car the car the event is for.
+     */
+    public void push(double time, int type, int car) {
+        if (size == times.length) {
+            int capacity = size * 2;
+            times = Arrays.copyOf(times, capacity);
+            orders = Arrays.copyOf(orders, capacity);
+            types = Arrays.copyOf(types, capacity);
+            cars = Arrays.copyOf(cars, capacity);
+        }
+        long order = pushed++;
+        //sift up
+        int i = size++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!before(time, order, times[parent], orders[parent])) {
+                break;
+            }
+            move(parent, i);
+            i = parent;
+        }
+        set(i, time, order, type, car);
+    }
+
+    /**
+     * Takes the earliest event off the queue. Its details are then available
+     * from getTime, getType and getCar.
+     */
+    public void pop() {
+        lastTime = times[0];
+        lastType = types[0];
+        lastCar = cars[0];
+
+        size--;
+        if (size == 0) {
+            return;
+        }
+        double time = times[size];
+        long order = orders[size];
+        int type = types[size];
+        int car = cars[size];
+        //sift down
+        int i = 0;
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            int right = child + 1;
+            if (right < size && before(times[right], orders[right], times[child], orders[child])) {
+                child = right;
+            }
+            if (!before(times[child], orders[child], time, order)) {
+                break;
+            }
+            move(child, i);
+            i = child;
+        }
+        set(i, time, order, type, car);
+    }
+
+    /**
+     * Whether there are no events left.
+     *
+     * @return true if the queue is empty.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * How many events are waiting.
+     *
+     * @return the number of events.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * When the earliest waiting event happens.
+     *
+     * @return the time of the earliest event (s).
+     */
+    public double peekTime() {
+        return times[0];
+    }
+
+    /**
+     * Removes every event.
+     */
+    public void clear() {
+        size = 0;
+        pushed = 0;
+    }
+
+    /**
+     * When the event last popped happens.
+     *
+     * @return the time (s).
+     */
+    public double getTime() {
+        return lastTime;
+    }
+
+    /**
+     * What kind of event was last popped.
+     *
+     * @return the event type.
+     */
+    public int getType() {
+        return lastType;
+    }
+
+    /**
+     * The car the event last popped is for.
+     *
+     * @return the car number.
+     */
+    public int getCar() {
+        return lastCar;
+    }
+
+    /**
+     * Whether one event comes before another.
+     *
+     * @param time the time of the first event.
+     * @param order the push count of the first event.
+     * @param otherTime the time of the second event.
+     * @param otherOrder the push count of the second event.
+     * @return true if the first event comes first.
+     */
+    private static boolean before(double time, long order, double otherTime, long otherOrder) {
+        return time < otherTime || (time == otherTime && order < otherOrder);
+    }
+
+    /**
+     * Copies an event from one heap slot to another.
+     *
+     * @param from the slot to copy from.
+     * @param to the slot to copy to.
+     */
+    private void move(int from, int to) {
+        times[to] = times[from];
+        orders[to] = orders[from];
+        types[to] = types[from];
+        cars[to] = cars[from];
+    }
+
+    /**
+     * Stores an event in a heap slot.
+     *
+     * @param i the slot.
+     * @param time when the event happens (s).
+     * @param order the push count of the event.
+     * @param type what kind of event it is.
+     * @param car the car the event is for.
+     */
+    private void set(int i, double time, long order, int type, int car) {
+        times[i] = time;
+        orders[i] = order;
+        types[i] = type;
+        cars[i] = car;
+    }
+}
@@ -0,0 +1,170 @@
+package CarPark.Simulation;
+
+/**
+ * The combined results of a MonteCarloStudy. For each demand profile and
+ * measure it gives the mean over the replications and the half width of a
+ * 95% confidence interval for that mean, using the normal approximation.
+ *
+ * @author Aydin + Sam
+ */
+public class MonteCarloResult {
+
+    //measures taken from each replication.
+    public static final int TURNED_AWAY_SHARE = 0;
+    public static final int MEAN_OCCUPIED = 1;
+    public static final int MEDIAN_TIME_TO_PARK = 2;
+    public static final int P90_TIME_TO_PARK = 3;
+    public static final int P99_TIME_TO_PARK = 4;
+    public static final int MEAN_ENTRY_QUEUE = 5;
+    public static final int MAX_ENTRY_QUEUE = 6;
+    public static final int METRIC_COUNT = 7;
+    private static final String[] METRIC_NAMES = {
+        "Turned away share",
+        "Mean parks taken",
+        "Median time to park (s)",
+        "90% time to park (s)",
+        "99% time to park (s)",
+        "Mean entry queue",
+        "Longest entry queue"
+    };
+    //z value of a two sided 95% interval.
+    private static final double Z95 = 1.959964;
+    private String[] profileNames;
+    //[profile][measure]
+    private double[][] means;
+    private double[][] halfWidths;
+    private int replications;
+
+    /**
+     * Constructor: Combines the replications of each profile. The samples are
+     * added up in replication order, so the result doesn't depend on which
+     * replications finished first.
+     *
+     * @param profileNames the name of each profile.
+     * @param samples the value of each measure in each replication, by
+     * profile, measure and replication.
+     */
+    MonteCarloResult(String[] profileNames, double[][][] samples) {
+        this.profileNames = profileNames;
+        int profiles = samples.length;
+        means = new double[profiles][METRIC_COUNT];
+        halfWidths = new double[profiles][METRIC_COUNT];
+        replications = profiles > 0 ? samples[0][0].length : 0;
+        for (int p = 0; p < profiles; p++) {
+            for (int m = 0; m < METRIC_COUNT; m++) {
+                double[] values = samples[p][m];
+                int n = values.length;
+                if (n == 0) {
+                    continue;
+                }
+                double sum = 0;
+                for (int r = 0; r < n; r++) {
+                    sum += values[r];
+                }
+                double mean = sum / n;
+                double squares = 0;
+                for (int r = 0; r < n; r++) {
+                    squares += (values[r] - mean) * (values[r] - mean);
+                }
+                means[p][m] = mean;
+                halfWidths[p][m] = n > 1 ? Z95 * Math.sqrt(squares / (n - 1) / n) : 0;
+            }
+        }
+    }
+
+    /**
+     * Stores the measures of one replication in its slots.
+     *
+     * @param result the replication's result.
+     * @param samples the profile's samples by measure and replication.
+     * @param replication the replication number.
+     */
+    static void record(SimulationResult result, double[][] samples, int replication) {
+        double meanEntryQueue = 0;
+        int maxEntryQueue = 0;
+        int entryGates = 0;
+        for (int g = 0; g < result.getGateCount(); g++) {
+            if (result.isEntryGate(g)) {
+                meanEntryQueue += result.getMeanQueue(g);
+                maxEntryQueue = Math.max(maxEntryQueue, result.getMaxQueue(g));
+                entryGates++;
+            }
+        }
+        samples[TURNED_AWAY_SHARE][replication] = result.getArrivals() > 0
+                ? (double) result.getTurnedAway() / result.getArrivals() : 0;
+        samples[MEAN_OCCUPIED][replication] = result.getMeanOccupied();
+        samples[MEDIAN_TIME_TO_PARK][replication] = result.getTimeToParkPercentile(50);
+        samples[P90_TIME_TO_PARK][replication] = result.getTimeToParkPercentile(90);
+        samples[P99_TIME_TO_PARK][replication] = result.getTimeToParkPercentile(99);
+        samples[MEAN_ENTRY_QUEUE][replication] = entryGates > 0 ? meanEntryQueue / entryGates : 0;
+        samples[MAX_ENTRY_QUEUE][replication] = maxEntryQueue;
+    }
+
+    /**
+     * Gets how many profiles were studied.
+     *
+     * @return the number of profiles.
+     */
+    public int getProfileCount() {
+        return profileNames.length;
+    }
+
+    /**
+     * Gets the name of a profile.
+     *
+     * @param profile the profile number.
+     * @return the name.
+     */
+    public String getProfileName(int profile) {
+        return profileNames[profile];
+    }
+
+    /**
+     * Gets how many runs were done for each profile.
+     *
+     * @return the number of replications.
+     */
+    public int getReplications() {
+        return replications;
+    }
+
+    /**
+     * Gets the mean of a measure over the replications of a profile.
+     *
+     * @param profile the profile number.
+     * @param metric one of the measure constants.
+     * @return the mean.
+     */
+    public double getMean(int profile, int metric) {
+        return means[profile][metric];
+    }
+
+    /**
+     * Gets the half width of the 95% confidence interval of a mean.
+     *
+     * @param profile the profile number.
+     * @param metric one of the measure constants.
+     * @return the half width, 0 with fewer than two replications.
+     */
+    public double getHalfWidth(int profile, int metric) {
+        return halfWidths[profile][metric];
+    }
+
+    /**
+     * Writes the results out as lines of text.
+     *
+     * @return the report.
+     */
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder();
+        for (int p = 0; p < profileNames.length; p++) {
+            report.append(String.format("%s (%d runs)%n", profileNames[p], replications));
+            for (int m = 0; m < METRIC_COUNT; m++) {
+                report.append(String.format("  %s: %.3f +/- %.3f%n",
+                        METRIC_NAMES[m], means[p][m], halfWidths[p][m]));
+            }
+        }
+        return report.toString();
+    }
+}
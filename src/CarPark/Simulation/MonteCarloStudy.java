@@ -0,0 +1,115 @@
+package CarPark.Simulation;
+
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs a TrafficSimulation many times over for each of a set of demand
+ * profiles and gives the mean and a 95% confidence interval of each result.
+ *
+ * Every replication gets its own seed worked out from the master seed and its
+ * replication number with the SplitMix64 mixing function, so replications
+ * are independent of each other and of which thread runs them, and a study
+ * gives the same numbers every time for the same master seed. Each
+ * replication writes its results into its own slots of shared arrays, so no
+ * locking is needed; the arrays are only read once every replication has
+ * finished.
+ *
+ * @author Aydin + Sam
+ */
+public class MonteCarloStudy {
+
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+    private TrafficSimulation simulation;
+    private ArrayList<DemandProfile> profiles;
+    private int replications;
+    private double durationSeconds;
+    private long masterSeed;
+
+    /**
+     * Constructor: Sets up a study.
+     *
+     * @param simulation the layout and settings to simulate.
+     * @param profiles the demand profiles to try.
+     * @param replications how many runs to do for each profile.
+     * @param durationSeconds how long each run lasts (s).
+     * @param masterSeed the seed every run's seed is worked out from.
+     */
+    public MonteCarloStudy(TrafficSimulation simulation,
+            ArrayList<DemandProfile> profiles, int replications,
+            double durationSeconds, long masterSeed) {
+        this.simulation = simulation;
+        this.profiles = new ArrayList<DemandProfile>(profiles);
+        this.replications = replications;
+        this.durationSeconds = durationSeconds;
+        this.masterSeed = masterSeed;
+    }
+
+    /**
+     * Works out the seed for one replication. Replication i of every profile
+     * shares a seed so profiles are compared on the same random numbers.
+     *
+     * @param masterSeed the seed of the whole study.
+     * @param replication the replication number.
+     * @return the replication's seed.
+     */
+    public static long replicationSeed(long masterSeed, int replication) {
+        //SplitMix64: step the state by the golden gamma and mix.
+        long z = masterSeed + (replication + 1) * GOLDEN_GAMMA;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Runs every replication of every profile.
+     *
+     * @param threads how many threads to run replications on.
+     * @return the means and confidence intervals of each profile.
+     * @throws InterruptedException if interrupted while waiting.
+     * @throws ExecutionException if a replication fails.
+     */
+    public MonteCarloResult run(int threads)
+            throws InterruptedException, ExecutionException {
+        int profileCount = profiles.size();
+        final double[][][] samples =
+                new double[profileCount][MonteCarloResult.METRIC_COUNT][replications];
+
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads));
+        try {
+            ArrayList<Future<?>> runs = new ArrayList<Future<?>>(profileCount * replications);
+            for (int p = 0; p < profileCount; p++) {
+                for (int r = 0; r < replications; r++) {
+                    final int profile = p;
+                    final int replication = r;
+                    final DemandProfile demand = profiles.get(p);
+                    runs.add(pool.submit(new Callable<Void>() {
+                        @Override
+                        public Void call() {
+                            SimulationResult result = simulation.run(durationSeconds,
+                                    replicationSeed(masterSeed, replication), demand);
+                            MonteCarloResult.record(result, samples[profile], replication);
+                            return null;
+                        }
+                    }));
+                }
+            }
+            //waiting on every run also makes their writes visible here.
+            for (int i = 0; i < runs.size(); i++) {
+                runs.get(i).get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        String[] names = new String[profileCount];
+        for (int p = 0; p < profileCount; p++) {
+            names[p] = profiles.get(p).getName();
+        }
+        return new MonteCarloResult(names, samples);
+    }
+}
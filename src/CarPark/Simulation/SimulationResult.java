@@ -0,0 +1,220 @@
+package CarPark.Simulation;
+
+import java.util.Arrays;
+
+/**
+ * What happened during one run of a TrafficSimulation.
+ *
+ * @author Aydin + Sam
+ */
+public class SimulationResult {
+
+    private double durationSeconds;
+    private long eventCount;
+    private int arrivals;
+    private int parked;
+    private int turnedAway;
+    private int entryGates;
+    //time averaged and longest queue at each gate, entry gates first.
+    private double[] meanQueue;
+    private int[] maxQueue;
+    //time from arriving to being parked for each parked car, sorted (s).
+    private double[] timesToPark;
+    private double meanOccupied;
+    private int maxOccupied;
+    private int parkCount;
+
+    /**
+     * Constructor: Holds the results of a run.
+     *
+     * @param durationSeconds how long was simulated (s).
+     * @param eventCount how many events were run.
+     * @param arrivals how many cars turned up.
+     * @param parked how many cars got into a park.
+     * @param turnedAway how many cars found no free park.
+     * @param entryGates how many of the gates are entry gates.
+     * @param meanQueue the time averaged queue length at each gate.
+     * @param maxQueue the longest queue at each gate.
+     * @param timesToPark the sorted time to park of each parked car (s).
+     * @param meanOccupied the time averaged number of taken parks.
+     * @param maxOccupied the most parks taken at once.
+     * @param parkCount how many parks the layout has.
+     */
+    SimulationResult(double durationSeconds, long eventCount, int arrivals,
+            int parked, int turnedAway, int entryGates, double[] meanQueue,
+            int[] maxQueue, double[] timesToPark, double meanOccupied,
+            int maxOccupied, int parkCount) {
+        this.durationSeconds = durationSeconds;
+        this.eventCount = eventCount;
+        this.arrivals = arrivals;
+        this.parked = parked;
+        this.turnedAway = turnedAway;
+        this.entryGates = entryGates;
+        this.meanQueue = meanQueue;
+        this.maxQueue = maxQueue;
+        this.timesToPark = timesToPark;
+        this.meanOccupied = meanOccupied;
+        this.maxOccupied = maxOccupied;
+        this.parkCount = parkCount;
+    }
+
+    /**
+     * Gets how long was simulated.
+     *
+     * @return the duration (s).
+     */
+    public double getDurationSeconds() {
+        return durationSeconds;
+    }
+
+    /**
+     * Gets how many events were run.
+     *
+     * @return the number of events.
+     */
+    public long getEventCount() {
+        return eventCount;
+    }
+
+    /**
+     * Gets how many cars turned up.
+     *
+     * @return the number of arrivals.
+     */
+    public int getArrivals() {
+        return arrivals;
+    }
+
+    /**
+     * Gets how many cars got into a park.
+     *
+     * @return the number of parked cars.
+     */
+    public int getParked() {
+        return parked;
+    }
+
+    /**
+     * Gets how many cars found every park taken.
+     *
+     * @return the number of cars turned away.
+     */
+    public int getTurnedAway() {
+        return turnedAway;
+    }
+
+    /**
+     * Gets how many gates there are, entry gates first.
+     *
+     * @return the number of gates.
+     */
+    public int getGateCount() {
+        return meanQueue.length;
+    }
+
+    /**
+     * Whether a gate lets cars in rather than out.
+     *
+     * @param gate the gate number.
+     * @return true for an entry gate.
+     */
+    public boolean isEntryGate(int gate) {
+        return gate < entryGates;
+    }
+
+    /**
+     * Gets the time averaged number of cars waiting at a gate.
+     *
+     * @param gate the gate number.
+     * @return the mean queue length.
+     */
+    public double getMeanQueue(int gate) {
+        return meanQueue[gate];
+    }
+
+    /**
+     * Gets the most cars waiting at a gate at once.
+     *
+     * @param gate the gate number.
+     * @return the longest queue.
+     */
+    public int getMaxQueue(int gate) {
+        return maxQueue[gate];
+    }
+
+    /**
+     * Gets a percentile of the time from arriving to being parked, using the
+     * nearest rank.
+     *
+     * @param percent the percentile from 0 to 100.
+     * @return the time (s), 0 if no car parked.
+     */
+    public double getTimeToParkPercentile(double percent) {
+        if (timesToPark.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percent / 100 * timesToPark.length) - 1;
+        rank = Math.max(0, Math.min(timesToPark.length - 1, rank));
+        return timesToPark[rank];
+    }
+
+    /**
+     * Gets the time from arriving to being parked of every parked car.
+     *
+     * @return the times in increasing order (s).
+     */
+    public double[] getTimesToPark() {
+        return Arrays.copyOf(timesToPark, timesToPark.length);
+    }
+
+    /**
+     * Gets the time averaged number of taken parks.
+     *
+     * @return the mean occupancy.
+     */
+    public double getMeanOccupied() {
+        return meanOccupied;
+    }
+
+    /**
+     * Gets the most parks taken at once.
+     *
+     * @return the peak occupancy.
+     */
+    public int getMaxOccupied() {
+        return maxOccupied;
+    }
+
+    /**
+     * Gets how many parks the layout has.
+     *
+     * @return the number of parks.
+     */
+    public int getParkCount() {
+        return parkCount;
+    }
+
+    /**
+     * Writes the results out as lines of text.
+     *
+     * @return the report.
+     */
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("%d cars arrived over %.0f minutes, %d parked, %d turned away%n",
+                arrivals, durationSeconds / 60, parked, turnedAway));
+        report.append(String.format("Parks taken: mean %.1f, peak %d of %d%n",
+                meanOccupied, maxOccupied, parkCount));
+        report.append(String.format("Time to park: median %.0f s, 90%% %.0f s, 99%% %.0f s%n",
+                getTimeToParkPercentile(50), getTimeToParkPercentile(90),
+                getTimeToParkPercentile(99)));
+        for (int g = 0; g < meanQueue.length; g++) {
+            report.append(String.format("%s gate %d queue: mean %.2f, longest %d%n",
+                    isEntryGate(g) ? "Entry" : "Exit",
+                    isEntryGate(g) ? g + 1 : g - entryGates + 1,
+                    meanQueue[g], maxQueue[g]));
+        }
+        return report.toString();
+    }
+}
@@ -0,0 +1,641 @@
+package CarPark.Simulation;
+
+import CarPark.Algorithm.AlgGeneratedPark;
+import CarPark.UI.BoarderLine;
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Discrete event simulation of cars using a generated layout. Cars arrive at
+ * random, following a DemandProfile, at the entrances, wait their turn at
+ * the entry gate, drive to the nearest free park, stay for a random time,
+ * drive to the nearest exit and wait their turn at the exit gate. A car that
+ * gets through the entry gate when every park is taken drives straight back
+ * out and is counted as turned away.
+ *
+ * Each entrance/exit line has its own gate, a line that is both has one gate
+ * each way. Driving distances are measured along the x and y axes from the
+ * middle of the gate's line to the park at a steady speed.
+ *
+ * All state is kept in primitive arrays so a run makes no objects per event.
+ *
+ * @author Aydin + Sam
+ */
+public class TrafficSimulation {
+
+    //event types.
+    private static final int ARRIVE = 0;
+    private static final int ENTERED = 1;
+    private static final int PARKED = 2;
+    private static final int LEAVE = 3;
+    private static final int EXITED = 4;
+    //park locations (m).
+    private double[] parkX;
+    private double[] parkY;
+    //gate locations (m), the entry gates come first.
+    private int entryGates;
+    private int gates;
+    private double[] gateX;
+    private double[] gateY;
+    //parks in order of distance from each entry gate and each park's place
+    //in those orders.
+    private int[][] nearestParks;
+    private int[][] parkRanks;
+    //nearest exit gate to each park and how far it is (m).
+    private int[] parkExit;
+    private double[] parkExitDistance;
+    //settings, times in seconds and speeds in m/s.
+    private DemandProfile demand = new DemandProfile("Steady", 300);
+    private double meanStaySeconds = 2 * 60 * 60;
+    private double entrySeconds = 8;
+    private double exitSeconds = 10;
+    private double drivingSpeed = 3;
+    private double parkingSeconds = 20;
+
+    /**
+     * Constructor: Sets up a simulation of a generated layout.
+     *
+     * @param parks the parks placed by a parking algorithm.
+     * @param carParkBoarder the BoarderLines defining the edge of the carpark.
+     * @param pxPerMetre how many pixels make up a metre.
+     */
+    public TrafficSimulation(ArrayList<AlgGeneratedPark> parks,
+            ArrayList<BoarderLine> carParkBoarder, double pxPerMetre) {
+        parkX = new double[parks.size()];
+        parkY = new double[parks.size()];
+        for (int i = 0; i < parks.size(); i++) {
+            Point2D.Double position = parks.get(i).getParkPosition();
+            parkX[i] = position.getX() / pxPerMetre;
+            parkY[i] = position.getY() / pxPerMetre;
+        }
+
+        //entry gates then exit gates
+        ArrayList<Point2D.Double> gateMiddles = new ArrayList<Point2D.Double>();
+        for (int pass = 0; pass < 2; pass++) {
+            for (int i = 0; i < carParkBoarder.size(); i++) {
+                BoarderLine line = carParkBoarder.get(i);
+                int state = line.getState();
+                boolean entry = state == BoarderLine.ENT || state == BoarderLine.ENTEXIT;
+                boolean exit = state == BoarderLine.EXIT || state == BoarderLine.ENTEXIT;
+                if ((pass == 0 && entry) || (pass == 1 && exit)) {
+                    gateMiddles.add(new Point2D.Double(
+                            (line.getP1().getX() + line.getP2().getX()) / 2 / pxPerMetre,
+                            (line.getP1().getY() + line.getP2().getY()) / 2 / pxPerMetre));
+                }
+            }
+            if (pass == 0) {
+                entryGates = gateMiddles.size();
+            }
+        }
+        gates = gateMiddles.size();
+        gateX = new double[gates];
+        gateY = new double[gates];
+        for (int g = 0; g < gates; g++) {
+            gateX[g] = gateMiddles.get(g).getX();
+            gateY[g] = gateMiddles.get(g).getY();
+        }
+
+        sortParks();
+    }
+
+    /**
+     * Sets how many cars turn up per hour on average, the same all day.
+     *
+     * @param arrivalsPerHour the arrival rate.
+     */
+    public void setArrivalsPerHour(double arrivalsPerHour) {
+        this.demand = new DemandProfile("Steady", arrivalsPerHour);
+    }
+
+    /**
+     * Sets how the arrival rate changes over the day.
+     *
+     * @param demand the demand profile.
+     */
+    public void setDemandProfile(DemandProfile demand) {
+        this.demand = demand;
+    }
+
+    /**
+     * Gets how the arrival rate changes over the day.
+     *
+     * @return the demand profile.
+     */
+    public DemandProfile getDemandProfile() {
+        return demand;
+    }
+
+    /**
+     * Sets how long a car stays parked on average.
+     *
+     * @param meanStayMinutes the mean stay in minutes.
+     */
+    public void setMeanStayMinutes(double meanStayMinutes) {
+        this.meanStaySeconds = meanStayMinutes * 60;
+    }
+
+    /**
+     * Sets how long each car takes to get through a gate.
+     *
+     * @param entrySeconds time at an entry gate (s).
+     * @param exitSeconds time at an exit gate (s).
+     */
+    public void setGateSeconds(double entrySeconds, double exitSeconds) {
+        this.entrySeconds = entrySeconds;
+        this.exitSeconds = exitSeconds;
+    }
+
+    /**
+     * Sets how fast cars drive inside the car park.
+     *
+     * @param drivingSpeed the speed in metres per second.
+     */
+    public void setDrivingSpeed(double drivingSpeed) {
+        this.drivingSpeed = drivingSpeed;
+    }
+
+    /**
+     * Sets how long it takes to pull into a park once there.
+     *
+     * @param parkingSeconds the time in seconds.
+     */
+    public void setParkingSeconds(double parkingSeconds) {
+        this.parkingSeconds = parkingSeconds;
+    }
+
+    /**
+     * Gets how many entry gates the layout has.
+     *
+     * @return the number of entry gates.
+     */
+    public int getEntryGateCount() {
+        return entryGates;
+    }
+
+    /**
+     * Gets how many exit gates the layout has.
+     *
+     * @return the number of exit gates.
+     */
+    public int getExitGateCount() {
+        return gates - entryGates;
+    }
+
+    /**
+     * Runs the simulation from an empty car park.
+     *
+     * @param durationSeconds how long to simulate (s).
+     * @param seed the seed for the random arrivals and stays.
+     * @return what happened during the run.
+     */
+    public SimulationResult run(double durationSeconds, long seed) {
+        return run(durationSeconds, seed, demand);
+    }
+
+    /**
+     * Runs the simulation from an empty car park with a given demand. Runs
+     * keep their own state, so several can go at once on one simulation as
+     * long as the settings aren't changed meanwhile.
+     *
+     * @param durationSeconds how long to simulate (s).
+     * @param seed the seed for the random arrivals and stays.
+     * @param demand how the arrival rate changes over the run.
+     * @return what happened during the run.
+     */
+    public SimulationResult run(double durationSeconds, long seed, DemandProfile demand) {
+        return new Run(new Random(seed), demand).simulate(durationSeconds);
+    }
+
+    /**
+     * Works out the order of parks from each entry gate and the nearest exit
+     * gate to each park.
+     */
+    private void sortParks() {
+        int n = parkX.length;
+        nearestParks = new int[entryGates][];
+        parkRanks = new int[entryGates][];
+        long[] keyed = new long[n];
+        for (int g = 0; g < entryGates; g++) {
+            //distance in mm in the high bits and the park number in the low
+            //bits, so a plain sort orders the parks.
+            for (int p = 0; p < n; p++) {
+                long mm = Math.round(distance(g, p) * 1000);
+                keyed[p] = (mm << 24) | p;
+            }
+            Arrays.sort(keyed);
+            nearestParks[g] = new int[n];
+            parkRanks[g] = new int[n];
+            for (int rank = 0; rank < n; rank++) {
+                int p = (int) (keyed[rank] & 0xFFFFFF);
+                nearestParks[g][rank] = p;
+                parkRanks[g][p] = rank;
+            }
+        }
+
+        parkExit = new int[n];
+        parkExitDistance = new double[n];
+        for (int p = 0; p < n; p++) {
+            parkExit[p] = -1;
+            parkExitDistance[p] = Double.MAX_VALUE;
+            for (int g = entryGates; g < gates; g++) {
+                double d = distance(g, p);
+                if (d < parkExitDistance[p]) {
+                    parkExit[p] = g;
+                    parkExitDistance[p] = d;
+                }
+            }
+        }
+    }
+
+    /**
+     * The driving distance between a gate and a park.
+     *
+     * @param gate the gate number.
+     * @param park the park number.
+     * @return the distance along the x and y axes (m).
+     */
+    private double distance(int gate, int park) {
+        return Math.abs(gateX[gate] - parkX[park]) + Math.abs(gateY[gate] - parkY[park]);
+    }
+
+    /**
+     * The state of one run, kept apart from the layout so the same
+     * TrafficSimulation can be run from several threads at once.
+     */
+    private class Run {
+
+        private Random random;
+        private DemandProfile demand;
+        private EventQueue events = new EventQueue(1024);
+        //per car: when it arrived, its gate and its park.
+        private double[] carArrival = new double[256];
+        private int[] carGate = new int[256];
+        private int[] carPark = new int[256];
+        //car numbers no longer in use.
+        private int[] spareCars = new int[256];
+        private int spareCount = 0;
+        private int carCount = 0;
+        //waiting cars at each gate in a ring, not counting the one at the gate.
+        private int[][] waiting = new int[gates][16];
+        private int[] waitingHead = new int[gates];
+        private int[] waitingSize = new int[gates];
+        private boolean[] gateBusy = new boolean[gates];
+        //queue length over time at each gate.
+        private double[] waitingArea = new double[gates];
+        private double[] waitingSince = new double[gates];
+        private int[] waitingMax = new int[gates];
+        //which parks are taken and where each entry gate's search starts.
+        private boolean[] taken = new boolean[parkX.length];
+        private int[] searchFrom = new int[entryGates];
+        private int occupied = 0;
+        private int occupiedMax = 0;
+        private double occupiedArea = 0;
+        private double occupiedSince = 0;
+        //time taken from arriving to being parked for each parked car (s).
+        private double[] timesToPark = new double[256];
+        private int parkedCount = 0;
+        private long eventCount = 0;
+        private int arrivals = 0;
+        private int turnedAway = 0;
+
+        /**
+         * Constructor: Sets up an empty car park.
+         *
+         * @param random where the random arrivals and stays come from.
+         * @param demand how the arrival rate changes over the run.
+         */
+        Run(Random random, DemandProfile demand) {
+            this.random = random;
+            this.demand = demand;
+        }
+
+        /**
+         * Runs events in time order until the duration is up.
+         *
+         * @param durationSeconds how long to simulate (s).
+         * @return what happened during the run.
+         */
+        SimulationResult simulate(double durationSeconds) {
+            if (entryGates > 0) {
+                pushArrival(0);
+            }
+            while (!events.isEmpty() && events.peekTime() <= durationSeconds) {
+                events.pop();
+                eventCount++;
+                double now = events.getTime();
+                int car = events.getCar();
+                switch (events.getType()) {
+                    case ARRIVE:
+                        arrive(now);
+                        break;
+                    case ENTERED:
+                        entered(now, car);
+                        break;
+                    case PARKED:
+                        parked(now, car);
+                        break;
+                    case LEAVE:
+                        leave(now, car);
+                        break;
+                    default: //case EXITED:
+                        exited(now, car);
+                        break;
+                }
+            }
+            for (int g = 0; g < gates; g++) {
+                waitingArea[g] += waitingSize[g] * (durationSeconds - waitingSince[g]);
+            }
+            occupiedArea += occupied * (durationSeconds - occupiedSince);
+
+            double[] meanWaiting = new double[gates];
+            for (int g = 0; g < gates; g++) {
+                meanWaiting[g] = durationSeconds > 0 ? waitingArea[g] / durationSeconds : 0;
+            }
+            double[] sorted = Arrays.copyOf(timesToPark, parkedCount);
+            Arrays.sort(sorted);
+            return new SimulationResult(durationSeconds, eventCount, arrivals,
+                    parkedCount, turnedAway, entryGates, meanWaiting,
+                    Arrays.copyOf(waitingMax, gates), sorted,
+                    durationSeconds > 0 ? occupiedArea / durationSeconds : 0,
+                    occupiedMax, parkX.length);
+        }
+
+        /**
+         * A car turns up at a random entrance and the next arrival is booked.
+         *
+         * @param now the time (s).
+         */
+        private void arrive(double now) {
+            arrivals++;
+            int car = newCar();
+            carArrival[car] = now;
+            carGate[car] = random.nextInt(entryGates);
+            carPark[car] = -1;
+            joinGate(now, carGate[car], car);
+            pushArrival(now);
+        }
+
+        /**
+         * Books the next arrival after a time, if there is one.
+         *
+         * @param now the time (s).
+         */
+        private void pushArrival(double now) {
+            double next = demand.nextArrival(now, exponential(1));
+            if (next != Double.POSITIVE_INFINITY) {
+                events.push(next, ARRIVE, -1);
+            }
+        }
+
+        /**
+         * A car has got through the entry gate and picks the nearest free
+         * park, or turns round if there isn't one.
+         *
+         * @param now the time (s).
+         * @param car the car.
+         */
+        private void entered(double now, int car) {
+            int gate = carGate[car];
+            nextAtGate(now, gate);
+
+            int park = nearestFree(gate);
+            if (park == -1) {
+                turnedAway++;
+                carPark[car] = -1;
+                if (gates > entryGates) {
+                    int exit = nearestExitFrom(gate);
+                    carGate[car] = exit;
+                    double drive = (Math.abs(gateX[gate] - gateX[exit])
+                            + Math.abs(gateY[gate] - gateY[exit])) / drivingSpeed;
+                    events.push(now + drive, LEAVE, car);
+                } else {
+                    freeCar(car);
+                }
+                return;
+            }
+            taken[park] = true;
+            setOccupied(now, occupied + 1);
+            carPark[car] = park;
+            events.push(now + distance(gate, park) / drivingSpeed + parkingSeconds,
+                    PARKED, car);
+        }
+
+        /**
+         * A car has pulled into its park and will stay a random time.
+         *
+         * @param now the time (s).
+         * @param car the car.
+         */
+        private void parked(double now, int car) {
+            if (parkedCount == timesToPark.length) {
+                timesToPark = Arrays.copyOf(timesToPark, parkedCount * 2);
+            }
+            timesToPark[parkedCount++] = now - carArrival[car];
+            int park = carPark[car];
+            if (parkExit[park] == -1) {
+                //no way out, the car stays for good.
+                return;
+            }
+            carGate[car] = parkExit[park];
+            events.push(now + exponential(meanStaySeconds)
+                    + parkExitDistance[park] / drivingSpeed, LEAVE, car);
+        }
+
+        /**
+         * A car reaches its exit gate, freeing its park if it had one.
+         *
+         * @param now the time (s).
+         * @param car the car.
+         */
+        private void leave(double now, int car) {
+            int park = carPark[car];
+            if (park != -1) {
+                //the park was freed when the car pulled out, which is near
+                //enough to when it reaches the gate for the search order.
+                taken[park] = false;
+                setOccupied(now, occupied - 1);
+                for (int g = 0; g < entryGates; g++) {
+                    searchFrom[g] = Math.min(searchFrom[g], parkRanks[g][park]);
+                }
+            }
+            joinGate(now, carGate[car], car);
+        }
+
+        /**
+         * A car has got through the exit gate and is gone.
+         *
+         * @param now the time (s).
+         * @param car the car.
+         */
+        private void exited(double now, int car) {
+            nextAtGate(now, carGate[car]);
+            freeCar(car);
+        }
+
+        /**
+         * A car gets to a gate, going straight through if it is free.
+         *
+         * @param now the time (s).
+         * @param gate the gate.
+         * @param car the car.
+         */
+        private void joinGate(double now, int gate, int car) {
+            if (!gateBusy[gate]) {
+                startGate(now, gate, car);
+                return;
+            }
+            int[] ring = waiting[gate];
+            if (waitingSize[gate] == ring.length) {
+                //unroll the ring into a bigger one
+                int[] bigger = new int[ring.length * 2];
+                for (int k = 0; k < ring.length; k++) {
+                    bigger[k] = ring[(waitingHead[gate] + k) % ring.length];
+                }
+                waiting[gate] = bigger;
+                waitingHead[gate] = 0;
+                ring = bigger;
+            }
+            ring[(waitingHead[gate] + waitingSize[gate]) % ring.length] = car;
+            setWaiting(now, gate, waitingSize[gate] + 1);
+        }
+
+        /**
+         * The car at a gate has gone through, let the next one up.
+         *
+         * @param now the time (s).
+         * @param gate the gate.
+         */
+        private void nextAtGate(double now, int gate) {
+            gateBusy[gate] = false;
+            if (waitingSize[gate] > 0) {
+                int[] ring = waiting[gate];
+                int car = ring[waitingHead[gate]];
+                waitingHead[gate] = (waitingHead[gate] + 1) % ring.length;
+                setWaiting(now, gate, waitingSize[gate] - 1);
+                startGate(now, gate, car);
+            }
+        }
+
+        /**
+         * A car starts going through a gate.
+         *
+         * @param now the time (s).
+         * @param gate the gate.
+         * @param car the car.
+         */
+        private void startGate(double now, int gate, int car) {
+            gateBusy[gate] = true;
+            if (gate < entryGates) {
+                events.push(now + entrySeconds, ENTERED, car);
+            } else {
+                events.push(now + exitSeconds, EXITED, car);
+            }
+        }
+
+        /**
+         * Finds the nearest free park to an entry gate. Each gate remembers
+         * where its last search stopped and parks being freed move that back,
+         * so most searches look at only a few parks.
+         *
+         * @param gate the entry gate.
+         * @return the park number, -1 if every park is taken.
+         */
+        private int nearestFree(int gate) {
+            int[] order = nearestParks[gate];
+            int rank = searchFrom[gate];
+            while (rank < order.length && taken[order[rank]]) {
+                rank++;
+            }
+            searchFrom[gate] = rank;
+            return rank < order.length ? order[rank] : -1;
+        }
+
+        /**
+         * Finds the exit gate nearest an entry gate.
+         *
+         * @param gate the entry gate.
+         * @return the exit gate.
+         */
+        private int nearestExitFrom(int gate) {
+            int best = entryGates;
+            double bestDistance = Double.MAX_VALUE;
+            for (int g = entryGates; g < gates; g++) {
+                double d = Math.abs(gateX[gate] - gateX[g]) + Math.abs(gateY[gate] - gateY[g]);
+                if (d < bestDistance) {
+                    best = g;
+                    bestDistance = d;
+                }
+            }
+            return best;
+        }
+
+        /**
+         * Changes the queue length at a gate, adding up the time spent at the
+         * old length.
+         *
+         * @param now the time (s).
+         * @param gate the gate.
+         * @param size the new queue length.
+         */
+        private void setWaiting(double now, int gate, int size) {
+            waitingArea[gate] += waitingSize[gate] * (now - waitingSince[gate]);
+            waitingSince[gate] = now;
+            waitingSize[gate] = size;
+            waitingMax[gate] = Math.max(waitingMax[gate], size);
+        }
+
+        /**
+         * Changes the number of taken parks, adding up the time spent at the
+         * old number.
+         *
+         * @param now the time (s).
+         * @param count the new number of taken parks.
+         */
+        private void setOccupied(double now, int count) {
+            occupiedArea += occupied * (now - occupiedSince);
+            occupiedSince = now;
+            occupied = count;
+            occupiedMax = Math.max(occupiedMax, count);
+        }
+
+        /**
+         * Gets an unused car number.
+         *
+         * @return the car number.
+         */
+        private int newCar() {
+            if (spareCount > 0) {
+                return spareCars[--spareCount];
+            }
+            if (carCount == carArrival.length) {
+                int capacity = carCount * 2;
+                carArrival = Arrays.copyOf(carArrival, capacity);
+                carGate = Arrays.copyOf(carGate, capacity);
+                carPark = Arrays.copyOf(carPark, capacity);
+                spareCars = Arrays.copyOf(spareCars, capacity);
+            }
+            return carCount++;
+        }
+
+        /**
+         * Hands a car number back once the car has left.
+         *
+         * @param car the car number.
+         */
+        private void freeCar(int car) {
+            spareCars[spareCount++] = car;
+        }
+
+        /**
+         * A random time from an exponential distribution.
+         *
+         * @param mean the mean time (s).
+         * @return the random time (s).
+         */
+        private double exponential(double mean) {
+            return -Math.log(1 - random.nextDouble()) * mean;
+        }
+    }
+}
@@ -19,6 +19,8 @@ public class BoarderLine {
     public static final int COLLISION = 4;
     protected int state;
     protected Line2D.Double boarderLineLine;
+    //the grid the points snap to in pixels.
+    protected int gridDot;
 
     /**
      * Constructor: Sets up the BoarderLine with default state BOARDER.
@@ -30,6 +32,22 @@ public class BoarderLine {
      * @param finish the end of the BoarderLine.
      */
     public BoarderLine(Point2D.Double start, Point2D.Double finish) {
+        this(start, finish, Park.gridDotPx(Park.DEFAULT_PX_PER_METRE));
+    }
+
+    /**
+     * Constructor: Sets up the BoarderLine with default state BOARDER on a
+     * grid of a given size.
+     *
+     * The starting and ending points are rounded to the grid to snap
+     * automatically to it.
+     *
+     * @param start the start of the BoarderLine.
+     * @param finish the end of the BoarderLine.
+     * @param gridDot the size of a grid dot in pixels.
+     */
+    public BoarderLine(Point2D.Double start, Point2D.Double finish, int gridDot) {
+        this.gridDot = gridDot;
         start = pointRound(start);
         finish = pointRound(finish);
         boarderLineLine = new Line2D.Double(start, finish);
@@ -68,6 +86,15 @@ public class BoarderLine {
         boarderLineLine = new Line2D.Double(start, finish);
     }
 
+    /**
+     * Gets the size of the grid the points snap to.
+     *
+     * @return the size of a grid dot in pixels.
+     */
+    public int getGridDot() {
+        return gridDot;
+    }
+
     /**
      * Gets the current line defined in the BoarderLine.
      *
@@ -96,15 +123,15 @@ public class BoarderLine {
     }
 
     /**
-     * Rounds a point to the nearest 5 pixels.
+     * Rounds a point to the grid.
      *
      * @param point the point to round.
      *
-     * @return the rounded point to the nearest 5 pixels.
+     * @return the rounded point to the grid.
      */
     private Point2D.Double pointRound(Point2D.Double point) {
-        point.x = point.x - (point.x % 5);
-        point.y = point.y - (point.y % 5);
+        point.x = point.x - (point.x % gridDot);
+        point.y = point.y - (point.y % gridDot);
         return point;
     }
 
@@ -1,19 +1,31 @@
 package CarPark.UI;
 
 import CarPark.Algorithm.AlgGeneratedPark;
+import CarPark.Algorithm.BitsetParkingAlg;
+import CarPark.Algorithm.BoundarySnapshot;
+import CarPark.Algorithm.CapacityEstimator;
+import CarPark.Algorithm.ClearanceField;
+import CarPark.Algorithm.MultiResParkingAlg;
 import CarPark.Algorithm.ParkingAlg;
+import CarPark.Algorithm.RowStackAlg;
+import CarPark.Algorithm.SiteHole;
 import CarPark.IO.CarPark;
+import CarPark.IO.LayoutImageExport;
+import CarPark.IO.LayoutVectorExport;
 import java.awt.*;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
 import java.awt.event.MouseMotionListener;
+import java.awt.event.MouseWheelEvent;
+import java.awt.event.MouseWheelListener;
 import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
-import java.io.File;
-import java.io.IOException;
 import java.util.ArrayList;
-import javax.imageio.ImageIO;
+import java.util.concurrent.ExecutionException;
 import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
 
 /**
  * Handles all things to do with entering and drawing the car park on the
@@ -35,18 +47,69 @@ public final class CarParkInterfacePanel extends JPanel {
     private Boolean closed = false;
     // tells when to draw the error message
     private int drawMessage = STARTDRAWING;
-    // Stores the grid image
-    private BufferedImage image = null;
+    // A block of grid cells drawn for the current zoom, tiled to draw the grid
+    private BufferedImage gridTile = null;
+    // How many grid cells across the block is and the cell size it was drawn at
+    private int gridTileCells = 0;
+    private double gridTileCellSize = 0;
+    // Grid colours, lines every cell with darker dots every fifth of a cell
+    private static final Color GRID_LINE = new Color(195, 195, 195);
+    private static final Color GRID_DOT = new Color(127, 127, 127);
+    // Dots closer together than this (px) are left out
+    private static final int MIN_DOT_SPACING = 3;
+    // Grid cells smaller than this (px) are drawn 10 m across instead of 1 m
+    private static final int MIN_CELL_SIZE = 4;
+    // The block of grid cells is made at least this big (px), so zoomed out
+    // the grid isn't drawn a few pixels at a time
+    private static final int GRID_TILE_SIZE = 128;
     // Stores state to set the lines clicked on or drawn defaults to boarder.
     private int parkLineState = BoarderLine.BOARDER;
     // Stores the BoarderLines that determine the bounds of the car park
     private ArrayList<BoarderLine> carParkBoarder;
+    // Stores the columns, islands etc. inside the car park parks can't go on
+    private ArrayList<SiteHole> carParkHoles;
+    // Are clicks inside a closed car park drawing obstacles
+    private boolean drawObstacles = false;
+    // First corner of the obstacle being drawn
+    private Point2D.Double obstacleCorner = null;
     // Stores the locations and rotations for each park to be in the car park
     private ArrayList<AlgGeneratedPark> parkLocations;
     // Stores the BoarderLines that determine the bounds of the car park
     private CarPark carParkData;
     // Stores the polylines that determine the boarder of each park
     private Park parkLayout;
+    // Should each row of parks be allowed its own direction
+    private boolean mixedDirections = false;
+    // Keeps a rough park count up to date while the boarder is drawn
+    private CapacityEstimator capacityEstimator;
+    // Entrance/exit clearances from the last run, reused if the boarder is unchanged
+    private ClearanceField clearanceField = null;
+    // Goes up on every edit and layout run, so a layout finishing after the
+    // car park was changed is thrown away rather than drawn
+    private int layoutGeneration = 0;
+    // The layout being worked out, null when none is running
+    private SwingWorker<ArrayList<AlgGeneratedPark>, Void> layoutWorker = null;
+    // The direction and mixing the parks on screen were laid out with
+    private int laidOutDirection = Park.DEG0;
+    private boolean laidOutMixed = false;
+    // Why the last layout failed, shown with the LAYOUTFAILED message
+    private String layoutFailure = "";
+    // The parks laid out, indexed so only those on screen are drawn
+    private ParkGridIndex parkIndex = null;
+    // How far the view is zoomed in, 1 draws the car park at its own scale
+    private double viewScale = 1;
+    // The car park location (px) shown at the top left of the panel
+    private double viewX = 0;
+    private double viewY = 0;
+    // Where the mouse was on the last pan drag, null when not panning
+    private Point panFrom = null;
+    // Has the view moved since the pan button was pressed
+    private boolean panned = false;
+    // How far the view can be zoomed out and in
+    private static final double MIN_VIEW_SCALE = 0.02;
+    private static final double MAX_VIEW_SCALE = 8;
+    // How much one wheel click or zoom menu item zooms by
+    private static final double ZOOM_STEP = 1.25;
     // Used in the check collide function to return 3 possible states.
     private static final int COLLISION = 1;
     private static final int NOCOLLISION = 2;
@@ -57,6 +120,12 @@ public final class CarParkInterfacePanel extends JPanel {
     private static final int NOTCLOSED = 6;
     private static final int CARPARKCOUNT = 7;
     private static final int STARTDRAWING = 8;
+    private static final int ESTIMATE = 9;
+    private static final int OBSTACLEOUTSIDE = 10;
+    private static final int LAYINGOUT = 11;
+    private static final int LAYOUTFAILED = 12;
+    // Sites with a bounding box bigger than this (m^2) use the raster search.
+    private static final double LARGE_SITE_AREA = 10000;
     // Used to set anti-aliasing.
     RenderingHints renderHints =
             new RenderingHints(RenderingHints.KEY_ANTIALIASING,
@@ -69,26 +138,32 @@ public final class CarParkInterfacePanel extends JPanel {
      * @param carParkData the data used to setup carpark spacing and minimum
      * distances.
      */
-    public CarParkInterfacePanel(CarPark carParkData) throws IOException {
+    public CarParkInterfacePanel(CarPark carParkData) {
 
         f = new Font(Font.SANS_SERIF, Font.BOLD, 12);
-        GridSetup();
 
         LineListener listener = new LineListener();
         addMouseListener(listener);
         addMouseMotionListener(listener);
+        addMouseWheelListener(listener);
 
         parkLayout = new Park(carParkData);
 
         this.carParkData = carParkData;
         carParkBoarder = new ArrayList();
+        carParkHoles = new ArrayList<SiteHole>();
         parkLocations = new ArrayList();
+        capacityEstimator = new CapacityEstimator(carParkData,
+                parkLayout.getPxPerMetre());
     }
 
     /**
      * Draws the grid, car park boarder, rubber line, text and errors and car
      * parks for the entire frame.
      *
+     * Everything in the car park is drawn through the view, zoomed and
+     * panned, while text is drawn straight on to the panel.
+     *
      * @param g the graphics object to draw all the items on the panel.
      */
     @Override
@@ -99,43 +174,51 @@ public final class CarParkInterfacePanel extends JPanel {
         Graphics2D g2 = (Graphics2D) g;
         g2.setRenderingHints(renderHints);
 
+        Graphics2D world = (Graphics2D) g2.create();
+        world.scale(viewScale, viewScale);
+        world.translate(-viewX, -viewY);
+        //keep lines a pixel wide however far the view is zoomed.
+        world.setStroke(new BasicStroke((float) (1 / viewScale)));
+
         // draw the boarders. line color changes based upon state
         for (int i = 0; i < carParkBoarder.size(); i++) {
             if (carParkBoarder.get(i) != null) {
-                g2.setColor(colorSelect(carParkBoarder.get(i)));
-                g2.draw(carParkBoarder.get(i).getLine());
+                world.setColor(colorSelect(carParkBoarder.get(i)));
+                world.draw(carParkBoarder.get(i).getLine());
             }
         }
 
+        // draw the obstacles inside the car park.
+        LayoutRenderer.drawHoles(world, carParkHoles);
+        if (obstacleCorner != null && eventPoint != null && insideFrame) {
+            world.draw(obstacleRectangle(obstacleCorner, eventPoint));
+        }
+
         // if needed draw the rubber line.
         if (rubberLine != null && insideFrame && !closed) {
-            g2.setColor(colorSelect(rubberLine));
-            g2.draw(rubberLine.getLine());
+            world.setColor(colorSelect(rubberLine));
+            world.draw(rubberLine.getLine());
         }
 
-        g2 = drawParks(g2);
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(0, 0, getSize().width, getSize().height);
+        }
+        if (parkIndex != null) {
+            LayoutRenderer.drawParks(world, parkIndex, new Rectangle2D.Double(
+                    viewX + clip.x / viewScale, viewY + clip.y / viewScale,
+                    clip.width / viewScale, clip.height / viewScale), viewScale);
+        }
+        world.dispose();
         // text and errors here
         g2 = drawMessageText(g2);
         g2.setColor(Color.BLACK);
-        g.drawString("1 grid cell = 1 m", 2, 12);
-        g.drawString("1 grid dot = 0.2 m", 2, 24);
-
-    }
-
-    /**
-     * Draws parks provided by an algorithm.
-     *
-     * @param g2 the graphics object to parks upon.
-     *
-     * @return the edited graphics object with parks on it.
-     */
-    private Graphics2D drawParks(Graphics2D g2) {
-        g2.setColor(Color.BLUE);
-        for (int i = 0; i < parkLocations.size(); i++) {
-            g2.draw(parkLayout.getParkLine(parkLocations.get(i)));
+        g.drawString("1 grid cell = " + gridCellMetres() + " m", 2, 12);
+        if (gridCellSize() / 5 >= MIN_DOT_SPACING) {
+            g.drawString("1 grid dot = " + (gridCellMetres() == 1 ? "0.2"
+                    : String.valueOf(gridCellMetres() / 5)) + " m", 2, 24);
         }
 
-        return g2;
     }
 
     /**
@@ -164,10 +247,32 @@ public final class CarParkInterfacePanel extends JPanel {
                         + "park is not closed.", xOffset, yOffset);
                 break;
             case CARPARKCOUNT:
-                g2.drawString(parkLocations.size() + " parks were deemed to fit "
-                        + "within the defined area at "
-                        + parkLayout.getDirection()
-                        + "\u00b0.", xOffset, yOffset);
+                if (laidOutMixed) {
+                    g2.drawString(parkLocations.size() + " parks were deemed to fit "
+                            + "within the defined area at mixed angles.",
+                            xOffset, yOffset);
+                } else {
+                    g2.drawString(parkLocations.size() + " parks were deemed to fit "
+                            + "within the defined area at "
+                            + laidOutDirection
+                            + "\u00b0.", xOffset, yOffset);
+                }
+                break;
+            case ESTIMATE:
+                g2.drawString("About " + estimateCapacity() + " parks should fit "
+                        + "within the area drawn so far.", xOffset, yOffset);
+                break;
+            case OBSTACLEOUTSIDE:
+                g2.drawString("Obstacles must be drawn inside the car park.",
+                        xOffset, yOffset);
+                break;
+            case LAYINGOUT:
+                g2.drawString("Working out where the parks fit...",
+                        xOffset, yOffset);
+                break;
+            case LAYOUTFAILED:
+                g2.drawString("The parks could not be laid out: "
+                        + layoutFailure, xOffset, yOffset);
                 break;
             case STARTDRAWING:
                 g2.drawString("Click on the grid to start placing the boarders"
@@ -180,36 +285,227 @@ public final class CarParkInterfacePanel extends JPanel {
     }
 
     /**
-     * trys to grab the grid image and throws an IOException if not found.
+     * Gets the estimated number of parks for the boarder drawn so far using
+     * the current park direction, or the best direction when directions are
+     * mixed.
+     *
+     * @return the estimated number of parks.
+     */
+    private int estimateCapacity() {
+        if (mixedDirections) {
+            return Math.max(capacityEstimator.estimate(Park.DEG0),
+                    Math.max(capacityEstimator.estimate(Park.DEG60),
+                    capacityEstimator.estimate(Park.DEG90)));
+        }
+        return capacityEstimator.estimate(parkLayout.getDirection());
+    }
+
+    /**
+     * Gets how many metres across a grid cell is at the current zoom, 1 m
+     * unless that would be too small to see, then 10 m.
+     *
+     * @return the size of a grid cell in metres.
+     */
+    private int gridCellMetres() {
+        if (parkLayout.getPxPerMetre() * viewScale < MIN_CELL_SIZE) {
+            return 10;
+        }
+        return 1;
+    }
+
+    /**
+     * Gets how many pixels across a grid cell is drawn at the current zoom.
+     *
+     * @return the size of a grid cell on screen (px), not rounded.
      */
-    private void GridSetup() throws IOException {
-        //can we find the grid image?
-        image = ImageIO.read(new File("images/grid.png"));
+    private double gridCellSize() {
+        return gridCellMetres() * parkLayout.getPxPerMetre() * viewScale;
     }
 
     /**
-     * Draws the grid used in the frame by tiling the image found in GridSetup.
+     * Draws a square block of grid cells for the current zoom. Each cell has
+     * a light line along the top and left edges and a darker dot every fifth
+     * of a cell, and starts on the pixel its own position rounds down to so
+     * cells that aren't a whole number of pixels don't drift. The block is
+     * only drawn again if the cell size changes.
+     *
+     * @return the grid block image, gridTileCells cells across.
+     */
+    private BufferedImage gridTile() {
+        double cellPx = gridCellSize();
+        if (gridTile != null && gridTileCellSize == cellPx) {
+            return gridTile;
+        }
+        int cells = Math.max(1, (int) Math.ceil(GRID_TILE_SIZE / cellPx));
+        //a pixel over rather than short, the next block covers it.
+        int size = Math.max(1, (int) Math.ceil(cells * cellPx));
+        BufferedImage tile = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2 = tile.createGraphics();
+        g2.setColor(Color.WHITE);
+        g2.fillRect(0, 0, size, size);
+        g2.setColor(GRID_LINE);
+        for (int i = 0; i < cells; i++) {
+            int at = (int) Math.floor(i * cellPx);
+            g2.drawLine(0, at, size - 1, at);
+            g2.drawLine(at, 0, at, size - 1);
+        }
+        for (int row = 0; row < cells; row++) {
+            int y = (int) Math.floor(row * cellPx);
+            for (int col = 0; col < cells; col++) {
+                int x = (int) Math.floor(col * cellPx);
+                if (cellPx / 5 >= MIN_DOT_SPACING) {
+                    //a dot every fifth of a cell both ways.
+                    for (int r = 0; r < 5; r++) {
+                        for (int c = 0; c < 5; c++) {
+                            tile.setRGB(x + (int) (c * cellPx / 5),
+                                    y + (int) (r * cellPx / 5), GRID_DOT.getRGB());
+                        }
+                    }
+                } else {
+                    //too small to make out the dots, only mark each cell.
+                    tile.setRGB(x, y, GRID_DOT.getRGB());
+                }
+                tile.setRGB(x, y, Color.BLACK.getRGB());
+            }
+        }
+        g2.dispose();
+        gridTile = tile;
+        gridTileCells = cells;
+        gridTileCellSize = cellPx;
+        return tile;
+    }
+
+    /**
+     * Draws the grid used in the frame by tiling the block of grid cells
+     * over the part of the panel being painted. Each block is placed from
+     * its own position in the car park, so rounding to whole pixels never
+     * adds up across the panel.
      *
      * @param g the graphics object to draw the grid for.
      */
     public void GridPaint(Graphics g) {
-        //have we found the grid? if so tile it on the frame.
-        if (image != null) {//TODO: don't need this if we properly use exceptions
-            int x, y = 0;
-            while (y < getSize().height) {
-                x = 0;
-                while (x < getSize().width) {
-                    g.drawImage(image, x, y, this);
-                    x += image.getWidth(null);
+        BufferedImage tile = gridTile();
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(0, 0, getSize().width, getSize().height);
+        }
+        double blockWorld = gridTileCells * gridCellMetres() * parkLayout.getPxPerMetre();
+        //start on the block holding the top left of the area being painted.
+        long firstCol = (long) Math.floor((viewX + clip.x / viewScale) / blockWorld);
+        long firstRow = (long) Math.floor((viewY + clip.y / viewScale) / blockWorld);
+        for (long row = firstRow;; row++) {
+            int y = (int) Math.floor((row * blockWorld - viewY) * viewScale);
+            if (y >= clip.y + clip.height) {
+                break;
+            }
+            for (long col = firstCol;; col++) {
+                int x = (int) Math.floor((col * blockWorld - viewX) * viewScale);
+                if (x >= clip.x + clip.width) {
+                    break;
                 }
-                y += image.getHeight(null);
+                g.drawImage(tile, x, y, null);
             }
-        } else {
-            //clear the area.
-            g.clearRect(0, 0, getSize().width, getSize().height);
         }
     }
 
+    /**
+     * Converts a point on the panel to where it is in the car park.
+     *
+     * @param screen the point on the panel (px).
+     * @return the point in the car park (px at the car park's own scale).
+     */
+    public Point2D.Double toWorld(Point2D screen) {
+        return new Point2D.Double(viewX + screen.getX() / viewScale,
+                viewY + screen.getY() / viewScale);
+    }
+
+    /**
+     * Converts a point in the car park to where it is drawn on the panel.
+     *
+     * @param world the point in the car park (px at the car park's own
+     * scale).
+     * @return the point on the panel (px).
+     */
+    public Point2D.Double toScreen(Point2D world) {
+        return new Point2D.Double((world.getX() - viewX) * viewScale,
+                (world.getY() - viewY) * viewScale);
+    }
+
+    /**
+     * Zooms the view, keeping the car park under a point on the panel where
+     * it is.
+     *
+     * @param factor how much to zoom in by, less than 1 to zoom out.
+     * @param screen the point on the panel to zoom around (px).
+     */
+    public void zoomAt(double factor, Point2D screen) {
+        Point2D.Double anchor = toWorld(screen);
+        viewScale = Math.max(MIN_VIEW_SCALE, Math.min(MAX_VIEW_SCALE, viewScale * factor));
+        viewX = anchor.x - screen.getX() / viewScale;
+        viewY = anchor.y - screen.getY() / viewScale;
+        repaint();
+    }
+
+    /**
+     * Zooms in one step around the middle of the panel.
+     */
+    public void zoomIn() {
+        zoomAt(ZOOM_STEP, new Point2D.Double(getWidth() / 2.0, getHeight() / 2.0));
+    }
+
+    /**
+     * Zooms out one step around the middle of the panel.
+     */
+    public void zoomOut() {
+        zoomAt(1 / ZOOM_STEP, new Point2D.Double(getWidth() / 2.0, getHeight() / 2.0));
+    }
+
+    /**
+     * Zooms and pans so the car park boarder and parks fill the panel, or
+     * goes back to the starting view if nothing has been drawn.
+     */
+    public void zoomToFit() {
+        Rectangle2D content = null;
+        for (int i = 0; i < carParkBoarder.size(); i++) {
+            Point2D p = carParkBoarder.get(i).getP1();
+            if (content == null) {
+                content = new Rectangle2D.Double(p.getX(), p.getY(), 0, 0);
+            } else {
+                content.add(p);
+            }
+        }
+        if (parkIndex != null && parkIndex.size() > 0) {
+            if (content == null) {
+                content = parkIndex.getBounds();
+            } else {
+                content.add(parkIndex.getBounds());
+            }
+        }
+        if (content == null || content.isEmpty() || getWidth() <= 0 || getHeight() <= 0) {
+            resetView();
+            return;
+        }
+        //leave room round the edges for the text.
+        int margin = 30;
+        double fit = Math.min((getWidth() - 2 * margin) / content.getWidth(),
+                (getHeight() - 2 * margin) / content.getHeight());
+        viewScale = Math.max(MIN_VIEW_SCALE, Math.min(MAX_VIEW_SCALE, fit));
+        viewX = content.getCenterX() - getWidth() / 2.0 / viewScale;
+        viewY = content.getCenterY() - getHeight() / 2.0 / viewScale;
+        repaint();
+    }
+
+    /**
+     * Goes back to the starting view, at the car park's own scale with the
+     * top left of the car park at the top left of the panel.
+     */
+    public void resetView() {
+        viewScale = 1;
+        viewX = 0;
+        viewY = 0;
+        repaint();
+    }
+
     /**
      * Checks if the rubber line collides with the current boarder drawn.
      *
@@ -291,47 +587,47 @@ public final class CarParkInterfacePanel extends JPanel {
      * @return the color to draw the line.
      */
     private Color colorSelect(BoarderLine get) {
-        Color drawColor;
-        switch (get.getState()) {
-            case BoarderLine.BOARDER:
-                drawColor = Color.black;
-                break;
-            case BoarderLine.ENT:
-                drawColor = Color.cyan;
-                break;
-            case BoarderLine.EXIT:
-                drawColor = Color.orange;
-                break;
-            case BoarderLine.ENTEXIT:
-                drawColor = Color.green;
-                break;
-            case BoarderLine.COLLISION:
-                drawColor = Color.red;
-                break;
-            default:
-                drawColor = Color.magenta;
-                break;
-        }
-        return drawColor;
+        return LayoutRenderer.stateColor(get.getState());
     }
 
     /**
      * Handles all mouse related functions
      */
     private class LineListener implements MouseListener,
-            MouseMotionListener {
+            MouseMotionListener, MouseWheelListener {
 
         /**
-         * mouseDragged method sets the point to draw the rubber line to.
+         * mouseDragged method sets the point to draw the rubber line to, or
+         * pans the view while the right or middle button is held down.
          *
          * @param event the MouseEvent
          */
         @Override
         public void mouseDragged(MouseEvent event) {
+            if (panFrom != null) {
+                //move the car park with the mouse.
+                viewX -= (event.getX() - panFrom.x) / viewScale;
+                viewY -= (event.getY() - panFrom.y) / viewScale;
+                panned = panned || !event.getPoint().equals(panFrom);
+                panFrom = event.getPoint();
+                repaint();
+                return;
+            }
+            // show the obstacle being drawn
+            if (closed && obstacleCorner != null) {
+                eventPoint = toWorld(event.getPoint());
+                repaint();
+            }
             // if the park is closed the rubber line should not be modified
             if (!closed) {
                 //grab the current location of the mouse
-                eventPoint = new Point2D.Double(event.getPoint().x, event.getPoint().y);
+                eventPoint = toWorld(event.getPoint());
+                //zoomed out the start point is hard to land on exactly, so
+                //anywhere within 5 px on screen closes the car park.
+                if (carParkBoarder.size() > 1 && eventPoint.distance(
+                        carParkBoarder.get(0).getP1()) <= 5 / viewScale) {
+                    eventPoint.setLocation(carParkBoarder.get(0).getP1());
+                }
                 //if the mouse has been clicked before
                 if (clickPoint != null) {
                     //draw the rubber line to the location of the mouse
@@ -373,59 +669,82 @@ public final class CarParkInterfacePanel extends JPanel {
          */
         @Override
         public void mouseReleased(MouseEvent event) {
+            if (panFrom != null) {
+                boolean wasPanned = panned;
+                panFrom = null;
+                panned = false;
+                if (wasPanned) {
+                    //the button was used to pan, not to click.
+                    return;
+                }
+            }
             if (closed == false) {
                 //unflags the error message.
                 drawMessage = 0;
                 if (checkCollide() == NOCOLLISION) {
                     //sets new point to draw the rubber line from
-                    clickPoint = new Point2D.Double(event.getPoint().x, event.getPoint().y);
+                    clickPoint = toWorld(event.getPoint());
                     //case for all but the first mouse click on the frame
                     if (rubberLine != null) {
                         carParkBoarder.add(rubberLine);
+                        capacityEstimator.addLine(rubberLine);
+                        drawMessage = ESTIMATE;
                     }
                     //make a new rubber line to draw
-                    rubberLine = new BoarderLine(clickPoint, clickPoint);
+                    rubberLine = new BoarderLine(clickPoint, clickPoint,
+                            parkLayout.getGridDotPx());
                 }
                 if (checkCollide() == CLOSEABLE) {
                     //closes the car park
-                    clickPoint = new Point2D.Double(event.getPoint().x, event.getPoint().y);
+                    clickPoint = toWorld(event.getPoint());
                     carParkBoarder.add(rubberLine);
+                    capacityEstimator.addLine(rubberLine);
+                    drawMessage = ESTIMATE;
                     closed = true;
                 }
+            } else if (drawObstacles) {
+                //the car park is closed and we are drawing obstacles, the
+                //first click is one corner and the second the other.
+                Point2D.Double corner = toWorld(event.getPoint());
+                if (obstacleCorner == null) {
+                    obstacleCorner = corner;
+                    eventPoint = corner;
+                } else {
+                    addObstacle(obstacleRectangle(obstacleCorner, corner));
+                    obstacleCorner = null;
+                }
+                repaint();
             } else {
                 //the car park is closed and we are selecting which lines are
                 //to be what state e.g. ent/exit/both 
-                clickPoint = new Point2D.Double(event.getPoint().x, event.getPoint().y);
+                clickPoint = toWorld(event.getPoint());
 
-                //which line have we clicked closest to to within 5 px?
+                //which line have we clicked closest to to within 5 px on screen?
                 for (int i = 0; i < carParkBoarder.size(); i++) {
-                    if (carParkBoarder.get(i).getLine().ptSegDist(clickPoint) <= 5) {
+                    if (carParkBoarder.get(i).getLine().ptSegDist(clickPoint) <= 5 / viewScale) {
                         if ((parkLineState == BoarderLine.ENT)
                                 || (parkLineState == BoarderLine.EXIT)) {
 
                             //unflags the error message.
                             drawMessage = 0;
                             //remove all parks from the scren
-                            parkLocations = new ArrayList();
-                            //divided by 25 because there are 5 pixels
-                            //in every 0.2m and hence 25 pixels in every 1m.
+                            clearParks();
+                            //converting the line length to metres.
                             if (carParkData.getEntryWidthMin()
-                                    <= carParkBoarder.get(i).getLength() / 25) {
+                                    <= carParkBoarder.get(i).getLength() / parkLayout.getPxPerMetre()) {
                                 carParkBoarder.get(i).setState(parkLineState);
                             } else {
                                 //the line is too short display something
                                 drawMessage = SETENTEXITS;
                             }
                         } else if (parkLineState == BoarderLine.ENTEXIT) {
-                            //divided by 25 because there are 5 pixels
-                            //in every 0.2m and hence 25 pixels in every 1m.
-
                             //unflags the error message.
                             drawMessage = 0;
                             //remove all parks from the scren
-                            parkLocations = new ArrayList();
+                            clearParks();
+                            //converting the line length to metres.
                             if (carParkData.getEntryWidthMin() * 2
-                                    <= carParkBoarder.get(i).getLength() / 25) {
+                                    <= carParkBoarder.get(i).getLength() / parkLayout.getPxPerMetre()) {
                                 carParkBoarder.get(i).setState(parkLineState);
                             } else {
                                 //the line is too short display something
@@ -437,7 +756,7 @@ public final class CarParkInterfacePanel extends JPanel {
                             //unflags the error message.
                             drawMessage = 0;
                             //remove all parks from the scren
-                            parkLocations = new ArrayList();
+                            clearParks();
                         }
                         //unnecessary to go further also stops issues
                         //clicking near corners
@@ -482,27 +801,180 @@ public final class CarParkInterfacePanel extends JPanel {
         }
 
         /**
-         * Empty Definition for mousePressed event.
+         * mousePressed method starts panning the view when the right or
+         * middle button is pressed.
          *
          * @param event the MouseEvent
          */
         @Override
         public void mousePressed(MouseEvent event) {
+            if (!SwingUtilities.isLeftMouseButton(event)) {
+                panFrom = event.getPoint();
+                panned = false;
+            }
+        }
+
+        /**
+         * mouseWheelMoved method zooms the view around the mouse.
+         *
+         * @param event the MouseWheelEvent
+         */
+        @Override
+        public void mouseWheelMoved(MouseWheelEvent event) {
+            zoomAt(Math.pow(ZOOM_STEP, -event.getWheelRotation()), event.getPoint());
+        }
+    }
+
+    /**
+     * Makes a rectangle between two opposite corners snapped to the grid.
+     *
+     * @param cornerA one corner of the rectangle.
+     * @param cornerB the opposite corner.
+     * @return the rectangle as a polygon.
+     */
+    private Polygon obstacleRectangle(Point2D.Double cornerA, Point2D.Double cornerB) {
+        //snap to the grid the same as the BoarderLines.
+        int dot = parkLayout.getGridDotPx();
+        int x1 = (int) (cornerA.x - cornerA.x % dot);
+        int y1 = (int) (cornerA.y - cornerA.y % dot);
+        int x2 = (int) (cornerB.x - cornerB.x % dot);
+        int y2 = (int) (cornerB.y - cornerB.y % dot);
+        Polygon rectangle = new Polygon();
+        rectangle.addPoint(Math.min(x1, x2), Math.min(y1, y2));
+        rectangle.addPoint(Math.max(x1, x2), Math.min(y1, y2));
+        rectangle.addPoint(Math.max(x1, x2), Math.max(y1, y2));
+        rectangle.addPoint(Math.min(x1, x2), Math.max(y1, y2));
+        return rectangle;
+    }
+
+    /**
+     * Adds an obstacle to the car park if it is inside the car park boarder.
+     * Obstacles drawn on screen have no clearance of their own.
+     *
+     * @param outline the outline of the obstacle.
+     */
+    private void addObstacle(Polygon outline) {
+        Polygon boarder = new Polygon();
+        for (int i = 0; i < carParkBoarder.size(); i++) {
+            boarder.addPoint((int) carParkBoarder.get(i).getP1().getX(),
+                    (int) carParkBoarder.get(i).getP1().getY());
+        }
+        Rectangle bounds = outline.getBounds();
+        if (bounds.width == 0 || bounds.height == 0) {
+            //a line or a point isn't an obstacle.
+            return;
+        }
+        if (boarder.contains(bounds)) {
+            addHole(new SiteHole(outline, 0.0));
+        } else {
+            drawMessage = OBSTACLEOUTSIDE;
+        }
+    }
+
+    /**
+     * Adds a hole, such as a column or plant room, inside the car park that
+     * parks must avoid.
+     *
+     * @param hole the hole and its clearance.
+     */
+    public void addHole(SiteHole hole) {
+        carParkHoles.add(hole);
+        //unflags the error message.
+        drawMessage = 0;
+        //remove all parks from the screen
+        clearParks();
+        repaint();
+    }
+
+    /**
+     * Gets the scale the car park is drawn at.
+     *
+     * @return how many pixels make up a metre.
+     */
+    public double getPxPerMetre() {
+        return parkLayout.getPxPerMetre();
+    }
+
+    /**
+     * Sets up an image export of the car park as it is now: the boarder,
+     * obstacles and the parks from the last layout run.
+     *
+     * @return the export, or null if no boarder has been drawn.
+     */
+    public LayoutImageExport getImageExport() {
+        if (carParkBoarder.isEmpty()) {
+            return null;
+        }
+        ParkGridIndex parks = parkIndex;
+        if (parks == null) {
+            parks = new ParkGridIndex(new ArrayList<AlgGeneratedPark>(), parkLayout);
+        }
+        return new LayoutImageExport(new BoundarySnapshot(carParkBoarder),
+                carParkHoles, parks);
+    }
+
+    /**
+     * Sets up a vector drawing export of the car park as it is now: the
+     * boarder, obstacles and the parks from the last layout run.
+     *
+     * @return the export, or null if no boarder has been drawn.
+     */
+    public LayoutVectorExport getVectorExport() {
+        if (carParkBoarder.isEmpty()) {
+            return null;
+        }
+        //the parks list is replaced rather than changed, so it can be
+        //written out while the user carries on.
+        return new LayoutVectorExport(new BoundarySnapshot(carParkBoarder),
+                carParkHoles, parkLocations,
+                new Park(carParkData, parkLayout.getPxPerMetre()));
+    }
+
+    /**
+     * Removes all parks from the screen and throws away any layout still
+     * being worked out.
+     */
+    private void clearParks() {
+        parkLocations = new ArrayList<AlgGeneratedPark>();
+        parkIndex = null;
+        layoutGeneration++;
+        if (layoutWorker != null) {
+            //the algorithms stop at the next row once interrupted.
+            layoutWorker.cancel(true);
+            layoutWorker = null;
         }
     }
 
     /**
-     * Removes the last line drawn for the car park.
+     * sets whether clicks inside the closed car park draw obstacles.
+     *
+     * @param draw true to draw obstacles, false to go back to setting the
+     * state of boarder lines.
+     */
+    public void setDrawObstacles(boolean draw) {
+        drawObstacles = draw;
+        obstacleCorner = null;
+        repaint();
+    }
+
+    /**
+     * Removes the last obstacle drawn or, if there are none, the last line
+     * drawn for the car park.
      */
     public void removeLineLast() {
-        if (!carParkBoarder.isEmpty()) {
+        obstacleCorner = null;
+        if (!carParkHoles.isEmpty()) {
+            carParkHoles.remove(carParkHoles.size() - 1);
+        } else if (!carParkBoarder.isEmpty()) {
 
             if (carParkBoarder.size() > 1) {
                 carParkBoarder.remove(carParkBoarder.size() - 1);
+                capacityEstimator.removeLastLine();
                 //move the start of the rubber line to the end of the previous line
                 clickPoint.setLocation(carParkBoarder.get(
                         carParkBoarder.size() - 1).getP2());
-                rubberLine = new BoarderLine(clickPoint, clickPoint);
+                rubberLine = new BoarderLine(clickPoint, clickPoint,
+                        parkLayout.getGridDotPx());
 
                 // open the park if it was previously closed
                 if (closed) {
@@ -510,6 +982,7 @@ public final class CarParkInterfacePanel extends JPanel {
                 }
             } else {
                 carParkBoarder.clear();
+                capacityEstimator.clear();
                 rubberLine = null;
                 clickPoint = null;
             }
@@ -517,7 +990,7 @@ public final class CarParkInterfacePanel extends JPanel {
         //assume you have read the error and clears from the screen
         drawMessage = 0;
         //remove all parks from the screen
-        parkLocations = new ArrayList();
+        clearParks();
         repaint();
     }
 
@@ -526,16 +999,41 @@ public final class CarParkInterfacePanel extends JPanel {
      */
     public void removeLineAll() {
         carParkBoarder.clear();
+        carParkHoles.clear();
+        obstacleCorner = null;
+        capacityEstimator.clear();
         closed = false;
         rubberLine = null;
         clickPoint = null;
         //remove all parks from the screen
-        parkLocations = new ArrayList();
+        clearParks();
         //assume you have read the error and clears from the screen
         drawMessage = 0;
         repaint();
     }
 
+    /**
+     * Replaces the car park with a closed boarder read from elsewhere, such
+     * as a DXF drawing, and zooms so it fills the panel.
+     *
+     * @param boarder the BoarderLines of the boarder, each starting where the
+     * last one finished and the last finishing where the first started.
+     */
+    public void loadBoundary(ArrayList<BoarderLine> boarder) {
+        if (!new BoundarySnapshot(boarder).isClosed()) {
+            throw new IllegalArgumentException("The car park boarder must be closed.");
+        }
+        removeLineAll();
+        for (int i = 0; i < boarder.size(); i++) {
+            carParkBoarder.add(boarder.get(i));
+            capacityEstimator.addLine(boarder.get(i));
+        }
+        closed = true;
+        drawMessage = ESTIMATE;
+        zoomToFit();
+        repaint();
+    }
+
     /**
      * sets the state to change the clicked upon boarders of the car park to.
      *
@@ -546,17 +1044,64 @@ public final class CarParkInterfacePanel extends JPanel {
     }
 
     /**
-     * sets the direction to draw the car parks in the lot.
+     * sets the direction to draw the car parks in the lot. Parks laid out in
+     * another direction, or still being laid out, are thrown away.
      *
      * @param dir the direction the park will be drawn. if not set to DEG60
      * DEG90 will default to DEG0
      */
-//NOTE at the moment this isnt repainted as parks shouldnt be drawn until
-//after angles have been selected and the algorithm is drawn
     public void setParkDirection(int dir) {
+        if (dir != parkLayout.getDirection()) {
+            clearParks();
+            if (drawMessage == CARPARKCOUNT || drawMessage == LAYINGOUT) {
+                drawMessage = 0;
+            }
+            repaint();
+        }
         parkLayout.setDirection(dir);
     }
 
+    /**
+     * sets whether each row of parks may pick its own direction.
+     *
+     * Parks laid out the other way, or still being laid out, are thrown away.
+     *
+     * @param mixed true to let the algorithm mix DEG0, DEG60 and DEG90 rows,
+     * false to draw every row in the direction set by setParkDirection.
+     */
+    public void setMixedDirections(boolean mixed) {
+        if (mixed != mixedDirections) {
+            clearParks();
+            if (drawMessage == CARPARKCOUNT || drawMessage == LAYINGOUT) {
+                drawMessage = 0;
+            }
+            repaint();
+        }
+        mixedDirections = mixed;
+    }
+
+    /**
+     * Works out the area of the box bounding the car park boarder.
+     *
+     * @return the bounding box area in square metres.
+     */
+    private double boarderBoundingArea() {
+        double minX = Double.MAX_VALUE;
+        double minY = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE;
+        double maxY = -Double.MAX_VALUE;
+        for (int i = 0; i < carParkBoarder.size(); i++) {
+            Point2D p = carParkBoarder.get(i).getP1();
+            minX = Math.min(minX, p.getX());
+            minY = Math.min(minY, p.getY());
+            maxX = Math.max(maxX, p.getX());
+            maxY = Math.max(maxY, p.getY());
+        }
+        //converting to square metres from square pixels.
+        double pxPerMetre = parkLayout.getPxPerMetre();
+        return (maxX - minX) * (maxY - minY) / (pxPerMetre * pxPerMetre);
+    }
+
     /**
      * runs the car park placement algorithm if criteria are met.
      *
@@ -586,10 +1131,79 @@ public final class CarParkInterfacePanel extends JPanel {
                 }
             }
             if (isEnt && isExit) {
-                ParkingAlg alg = new ParkingAlg(carParkData, carParkBoarder, parkLayout);
-                parkLocations = alg.runAlg();
-                //The algorithm ran how many car parks were drawn?
-                drawMessage = CARPARKCOUNT;
+                //copy everything the layout reads, so the user can keep
+                //editing while it runs on a worker thread.
+                final BoundarySnapshot boundary = new BoundarySnapshot(carParkBoarder);
+                final ArrayList<SiteHole> holes = new ArrayList<SiteHole>(carParkHoles);
+                final Park layout = new Park(carParkData, parkLayout.getPxPerMetre());
+                layout.setDirection(parkLayout.getDirection());
+                final boolean mixed = mixedDirections;
+                final boolean largeSite = boarderBoundingArea() > LARGE_SITE_AREA;
+                final ClearanceField lastClearanceField = clearanceField;
+                clearParks();
+                final int generation = layoutGeneration;
+
+                layoutWorker = new SwingWorker<ArrayList<AlgGeneratedPark>, Void>() {
+                    private ParkingAlg alg;
+                    private ParkGridIndex index;
+
+                    @Override
+                    protected ArrayList<AlgGeneratedPark> doInBackground() {
+                        if (mixed) {
+                            alg = new RowStackAlg(carParkData, boundary, layout);
+                        } else if (largeSite) {
+                            //trying every pixel is too slow on large sites.
+                            alg = new BitsetParkingAlg(carParkData, boundary, layout);
+                        } else {
+                            //places the same parks as ParkingAlg, only going
+                            //to full resolution near the boarder.
+                            alg = new MultiResParkingAlg(carParkData, boundary, layout);
+                        }
+                        alg.setClearanceField(lastClearanceField);
+                        alg.setHoles(holes);
+                        ArrayList<AlgGeneratedPark> parks = alg.runAlg();
+                        //work out the outlines here rather than while painting.
+                        index = new ParkGridIndex(parks, layout);
+                        return parks;
+                    }
+
+                    @Override
+                    protected void done() {
+                        if (isCancelled()) {
+                            //a newer edit or run has already cleared the parks.
+                            return;
+                        }
+                        ArrayList<AlgGeneratedPark> parks;
+                        try {
+                            parks = get();
+                        } catch (InterruptedException ie) {
+                            return;
+                        } catch (ExecutionException ee) {
+                            if (generation == layoutGeneration) {
+                                layoutWorker = null;
+                                layoutFailure = String.valueOf(ee.getCause());
+                                drawMessage = LAYOUTFAILED;
+                                repaint();
+                            }
+                            return;
+                        }
+                        //the clearances only depend on the boarder, so they
+                        //can be kept even if the parks are out of date.
+                        clearanceField = alg.getClearanceField();
+                        if (generation == layoutGeneration) {
+                            layoutWorker = null;
+                            parkLocations = parks;
+                            parkIndex = index;
+                            laidOutDirection = layout.getDirection();
+                            laidOutMixed = mixed;
+                            //The algorithm ran how many car parks were drawn?
+                            drawMessage = CARPARKCOUNT;
+                            repaint();
+                        }
+                    }
+                };
+                layoutWorker.execute();
+                drawMessage = LAYINGOUT;
                 repaint();
             } else {
                 //Flag to draw the error that there needs to be an ent and exit
@@ -2,15 +2,22 @@ package CarPark.UI;
 
 import CarPark.IO.CarPark;
 import CarPark.IO.CarParkFile;
+import CarPark.IO.DxfBoundaryReader;
+import CarPark.IO.LayoutImageExport;
+import CarPark.IO.LayoutVectorExport;
 import java.awt.Color;
 import java.awt.Font;
+import java.awt.Graphics;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.KeyEvent;
 import java.io.File;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.text.ParseException;
+import java.util.ArrayList;
 import java.util.Enumeration;
+import java.util.concurrent.ExecutionException;
 import javax.swing.*;
 import net.miginfocom.swing.MigLayout;
 
@@ -40,7 +47,16 @@ public class DesignerGUI {
     
     //Menu Bar Items
     private JMenu editMenu;
+    private JMenu viewMenu;
     private JMenuItem openMenuItem;
+    private JMenuItem importDxfMenuItem;
+    private JMenuItem exportImageMenuItem;
+    private JMenuItem exportSvgMenuItem;
+    private JMenuItem exportDxfMenuItem;
+    
+    //When the program started (System.nanoTime), -1 once the first paint has
+    //been reported.
+    private long startNanos;
     
     //On-Screen Button for Changing Car Park Layout
     private JButton displayLayout;
@@ -51,7 +67,7 @@ public class DesignerGUI {
     //Enum used for type safety when working with layout radio option buttons.
     private enum parkOptions {
 
-        TANGENTIAL, ANGLE, PERPENDICULAR, INVALID;
+        TANGENTIAL, ANGLE, PERPENDICULAR, MIXED, INVALID;
 
         @Override
         public String toString() {
@@ -62,6 +78,8 @@ public class DesignerGUI {
                     return "60 \u00b0";
                 case PERPENDICULAR:
                     return "90 \u00b0";
+                case MIXED:
+                    return "Mixed";
                 default:
                     return "";
             }
@@ -72,6 +90,18 @@ public class DesignerGUI {
      * Sets up car park GUI.
      */
     public DesignerGUI() {
+        this(-1);
+    }
+
+    /**
+     * Sets up car park GUI and reports how long after the program started the
+     * GUI was first painted, both from main and from the start of the JVM.
+     *
+     * @param startNanos when the program started, from System.nanoTime, or -1
+     * to not report it.
+     */
+    public DesignerGUI(long startNanos) {
+        this.startNanos = startNanos;
         createGUI();
     }
 
@@ -97,8 +127,21 @@ public class DesignerGUI {
         frame = new JFrame("Car Park Design Tool");
         frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
 
-        //Create 'main' panel which is attached to the frame.
-        mainPanel = new JPanel(new MigLayout("insets 10", "[grow]", "[grow][]"));
+        //Create 'main' panel which is attached to the frame. It reports the
+        //startup time the first time it is painted, if asked to.
+        mainPanel = new JPanel(new MigLayout("insets 10", "[grow]", "[grow][]")) {
+            @Override
+            public void paint(Graphics g) {
+                super.paint(g);
+                if (startNanos != -1) {
+                    //main only starts once the JVM is up, so give both.
+                    System.out.println(String.format("First paint %d ms after main, %d ms after the JVM started (target 300 ms).",
+                            (System.nanoTime() - startNanos) / 1000000,
+                            ManagementFactory.getRuntimeMXBean().getUptime()));
+                    startNanos = -1;
+                }
+            }
+        };
 
         //Create different GUI features.
         displayMessage("Please select a file that holds car park data. Press 'Ctrl-O' or go to 'File'->'Open' to choose file.", Color.BLACK);
@@ -149,7 +192,8 @@ public class DesignerGUI {
         mainPanel.add(messagePanel, "grow, span, cell 0 0");
         
         //Update frame.
-        SwingUtilities.updateComponentTreeUI(frame);
+        mainPanel.revalidate();
+        mainPanel.repaint();
     }
 
     /**
@@ -164,19 +208,15 @@ public class DesignerGUI {
         //Removes message currently displayed in frame.
         mainPanel.remove(messagePanel);
         
-        try {
-            carParkPanel = new JPanel(new MigLayout("insets 0", "[grow]", "[grow]"));
-            parkDesignUserInterface = new CarParkInterfacePanel(carParkData);
-            
-            carParkPanel.add(parkDesignUserInterface, "grow");
-            
-            mainPanel.add(carParkPanel, "grow, span, cell 0 0");
-            SwingUtilities.updateComponentTreeUI(frame);
-            return true;
-        } catch (IOException ioex) {
-            displayMessage("Please ensure that a \"grid.png\" file exist in the image directory and restart the program.", Color.RED);
-            return false;
-        }
+        carParkPanel = new JPanel(new MigLayout("insets 0", "[grow]", "[grow]"));
+        parkDesignUserInterface = new CarParkInterfacePanel(carParkData);
+
+        carParkPanel.add(parkDesignUserInterface, "grow");
+
+        mainPanel.add(carParkPanel, "grow, span, cell 0 0");
+        mainPanel.revalidate();
+        mainPanel.repaint();
+        return true;
 
     } // close parkDesignUserInterface()
 
@@ -202,11 +242,17 @@ public class DesignerGUI {
         perpRadioButton.setMnemonic(KeyEvent.VK_9);
         perpRadioButton.setActionCommand(parkOptions.PERPENDICULAR.toString());
 
+        //Create Mixed Parking Radio Button. Each row picks its own direction.
+        JRadioButton mixedRadioButton = new JRadioButton(parkOptions.MIXED.toString());
+        mixedRadioButton.setMnemonic(KeyEvent.VK_M);
+        mixedRadioButton.setActionCommand(parkOptions.MIXED.toString());
+
         //Group the radio buttons so only one can be active at a time.
         parkLayoutOptions = new ButtonGroup();
         parkLayoutOptions.add(tangRadioButton);
         parkLayoutOptions.add(angleRadioButton);
         parkLayoutOptions.add(perpRadioButton);
+        parkLayoutOptions.add(mixedRadioButton);
         
         //Stop the user from attempting to use the radio buttons before file is chosen.
         setEnableRadioOptions(false);
@@ -218,6 +264,7 @@ public class DesignerGUI {
         radioPanel.add(tangRadioButton, "cell 0 0");
         radioPanel.add(angleRadioButton, "cell 1 0");
         radioPanel.add(perpRadioButton, "cell 2 0");
+        radioPanel.add(mixedRadioButton, "cell 3 0");
         mainPanel.add(radioPanel, "cell 0 1");
     } // close createRadioOptions()
     
@@ -298,20 +345,66 @@ public class DesignerGUI {
         openMenuItem.setAccelerator(KeyStroke.getKeyStroke("control O"));
         openMenuItem.addActionListener(new OpenMenuItemListener());
 
+        //Create "Import DXF Boundary" menu item. Used to read a site outline
+        //from a CAD drawing. Only enabled once a file has been opened.
+        importDxfMenuItem = new JMenuItem("Import DXF Boundary...");
+        importDxfMenuItem.setMnemonic('B');
+        importDxfMenuItem.addActionListener(new ImportDxfMenuItemListener());
+        importDxfMenuItem.setEnabled(false);
+
+        //Create "Export Image" menu item. Used to save a print resolution
+        //plan of the car park. Only enabled once a file has been opened.
+        exportImageMenuItem = new JMenuItem("Export Image...");
+        exportImageMenuItem.setMnemonic('I');
+        exportImageMenuItem.addActionListener(new ExportImageMenuItemListener());
+        exportImageMenuItem.setEnabled(false);
+
+        //Create "Export SVG" and "Export DXF" menu items. Used to save the
+        //car park as a drawing for CAD packages.
+        exportSvgMenuItem = new JMenuItem("Export SVG...");
+        exportSvgMenuItem.setMnemonic('S');
+        exportSvgMenuItem.addActionListener(new ExportDrawingMenuItemListener(".svg"));
+        exportSvgMenuItem.setEnabled(false);
+        exportDxfMenuItem = new JMenuItem("Export DXF...");
+        exportDxfMenuItem.setMnemonic('D');
+        exportDxfMenuItem.addActionListener(new ExportDrawingMenuItemListener(".dxf"));
+        exportDxfMenuItem.setEnabled(false);
+
         //Create "Exit" menu item. Used to terminate the program.
         JMenuItem exitMenuItem = new JMenuItem("Exit");
         exitMenuItem.addActionListener(new ExitMenuItemListener());
 
         //Adding menu items to "File" menu.
         fileMenu.add(openMenuItem);
+        fileMenu.add(importDxfMenuItem);
+        fileMenu.add(exportImageMenuItem);
+        fileMenu.add(exportSvgMenuItem);
+        fileMenu.add(exportDxfMenuItem);
         fileMenu.addSeparator();
         fileMenu.add(exitMenuItem);
 
-        //Create "Edit" menu.
+        //Create "Edit" menu. Its items are only made once a file has been
+        //opened, since they can't be used before then.
         editMenu = new JMenu("Edit");
         editMenu.setMnemonic('E');
         editMenu.setEnabled(false);
 
+        //Create "View" menu, also only filled in once a file has been opened.
+        viewMenu = new JMenu("View");
+        viewMenu.setMnemonic('V');
+        viewMenu.setEnabled(false);
+
+        //Adding "File", "Edit" and "View" menus to menu bar.
+        menuBar.add(fileMenu);
+        menuBar.add(editMenu);
+        menuBar.add(viewMenu);
+        frame.setJMenuBar(menuBar);
+    } // close createMenuBar()
+
+    /**
+     * Creates the menu items under the "Edit" menu of the menu bar.
+     */
+    private void createEditMenuItems() {
         //Create menu items under the "Edit" menu of the menu bar.
         //Create "Undo Last Line" menu item. Used to remove last user input into 
         //the car park display.
@@ -350,12 +443,20 @@ public class DesignerGUI {
         setEntranceExitMenuItem.setMnemonic('T');
         setEntranceExitMenuItem.addActionListener(new SetEntranceExitMenuItemListener());
 
+        //Create "Obstacle" menu item for submenu item "Set". Used to draw
+        //columns, islands etc. inside a closed car park.
+        JMenuItem setObstacleMenuItem = new JMenuItem("Obstacle");
+        setObstacleMenuItem.setMnemonic('O');
+        setObstacleMenuItem.addActionListener(new SetObstacleMenuItemListener());
+
         //Adding menu items to "Set" submenu.
         setMenuItem.add(setBorderMenuItem);
         setMenuItem.addSeparator();
         setMenuItem.add(setEntranceMenuItem);
         setMenuItem.add(setExitMenuItem);
         setMenuItem.add(setEntranceExitMenuItem);
+        setMenuItem.addSeparator();
+        setMenuItem.add(setObstacleMenuItem);
 
         //Add menuitems to "Edit" menu.
         editMenu.add(undoLastLineMenuItem);
@@ -363,12 +464,44 @@ public class DesignerGUI {
         editMenu.add(setMenuItem);
         editMenu.addSeparator();
         editMenu.add(clearParksMenuItem);
+    } // close createEditMenuItems()
 
-        //Adding "File" and "Edit" menus to menu bar.
-        menuBar.add(fileMenu);
-        menuBar.add(editMenu);
-        frame.setJMenuBar(menuBar);
-    } // close createMenuBar()
+    /**
+     * Creates the menu items under the "View" menu of the menu bar.
+     */
+    private void createViewMenuItems() {
+        //Create menu items under the "View" menu of the menu bar.
+        //Zoom In
+        JMenuItem zoomInMenuItem = new JMenuItem("Zoom In");
+        zoomInMenuItem.setMnemonic('I');
+        zoomInMenuItem.setAccelerator(KeyStroke.getKeyStroke("control EQUALS"));
+        zoomInMenuItem.addActionListener(new ZoomInMenuItemListener());
+
+        //Zoom Out
+        JMenuItem zoomOutMenuItem = new JMenuItem("Zoom Out");
+        zoomOutMenuItem.setMnemonic('O');
+        zoomOutMenuItem.setAccelerator(KeyStroke.getKeyStroke("control MINUS"));
+        zoomOutMenuItem.addActionListener(new ZoomOutMenuItemListener());
+
+        //Zoom To Fit
+        JMenuItem zoomToFitMenuItem = new JMenuItem("Zoom To Fit");
+        zoomToFitMenuItem.setMnemonic('F');
+        zoomToFitMenuItem.setAccelerator(KeyStroke.getKeyStroke("control F"));
+        zoomToFitMenuItem.addActionListener(new ZoomToFitMenuItemListener());
+
+        //Actual Size
+        JMenuItem actualSizeMenuItem = new JMenuItem("Actual Size");
+        actualSizeMenuItem.setMnemonic('A');
+        actualSizeMenuItem.setAccelerator(KeyStroke.getKeyStroke("control 0"));
+        actualSizeMenuItem.addActionListener(new ActualSizeMenuItemListener());
+
+        //Adding menu items to the "View" menu.
+        viewMenu.add(zoomInMenuItem);
+        viewMenu.add(zoomOutMenuItem);
+        viewMenu.addSeparator();
+        viewMenu.add(zoomToFitMenuItem);
+        viewMenu.add(actualSizeMenuItem);
+    } // close createViewMenuItems()
 
     /**
      * Appropriately enables and disables menu items and buttons when car park
@@ -376,8 +509,19 @@ public class DesignerGUI {
      */
     private void reinitUserSelectionOptions() {
         //Enable and disable appropriate menu bar items
+        if (editMenu.getItemCount() == 0) {
+            createEditMenuItems();
+        }
         editMenu.setEnabled(true);
+        if (viewMenu.getItemCount() == 0) {
+            createViewMenuItems();
+        }
+        viewMenu.setEnabled(true);
         openMenuItem.setEnabled(false);
+        importDxfMenuItem.setEnabled(true);
+        exportImageMenuItem.setEnabled(true);
+        exportSvgMenuItem.setEnabled(true);
+        exportDxfMenuItem.setEnabled(true);
         displayLayout.setEnabled(true);
         setEnableRadioOptions(true);
     }
@@ -420,6 +564,169 @@ public class DesignerGUI {
         }
     }
 
+    /**
+     * Opens file choosing window for choosing a DXF drawing and replaces the
+     * car park boarder with the one in it, read off the event thread.
+     */
+    private class ImportDxfMenuItemListener implements ActionListener {
+
+        @Override
+        public void actionPerformed(ActionEvent ev) {
+            //Create file chooser window.
+            JFileChooser fileOpen = new JFileChooser();
+            fileOpen.setDialogTitle("Please select a DXF drawing of the site boundary.");
+            int dialogButtonClicked = fileOpen.showOpenDialog(frame);
+
+            //Don't run this code if cancel button is pressed. Do nothing....
+            if (dialogButtonClicked == JFileChooser.APPROVE_OPTION) {
+                final File file = fileOpen.getSelectedFile();
+                final DxfBoundaryReader reader = new DxfBoundaryReader(
+                        parkDesignUserInterface.getPxPerMetre());
+                importDxfMenuItem.setEnabled(false);
+                new SwingWorker<ArrayList<BoarderLine>, Void>() {
+                    @Override
+                    protected ArrayList<BoarderLine> doInBackground()
+                            throws ParseException, IOException {
+                        return reader.read(file);
+                    }
+
+                    @Override
+                    protected void done() {
+                        importDxfMenuItem.setEnabled(true);
+                        try {
+                            parkDesignUserInterface.loadBoundary(get());
+                        } catch (InterruptedException ie) {
+                            //nothing was read, nothing to say.
+                        } catch (ExecutionException ee) {
+                            JOptionPane.showMessageDialog(frame, "The boundary could not be read: "
+                                    + ee.getCause().getMessage(),
+                                    "Import DXF Boundary", JOptionPane.ERROR_MESSAGE);
+                        }
+                    }
+                }.execute();
+            }
+        }
+    }
+
+    /**
+     * Opens a file saving window and writes the car park out as a print
+     * resolution PNG image, off the event thread.
+     */
+    private class ExportImageMenuItemListener implements ActionListener {
+
+        @Override
+        public void actionPerformed(ActionEvent ev) {
+            final LayoutImageExport export = parkDesignUserInterface.getImageExport();
+            if (export == null) {
+                JOptionPane.showMessageDialog(frame, "Draw a car park before exporting it.",
+                        "Export Image", JOptionPane.INFORMATION_MESSAGE);
+                return;
+            }
+            //Create file chooser window.
+            JFileChooser fileSave = new JFileChooser();
+            fileSave.setDialogTitle("Please choose where to save the plan image.");
+            int dialogButtonClicked = fileSave.showSaveDialog(frame);
+
+            //Don't run this code if cancel button is pressed. Do nothing....
+            if (dialogButtonClicked == JFileChooser.APPROVE_OPTION) {
+                File chosen = fileSave.getSelectedFile();
+                if (!chosen.getName().toLowerCase().endsWith(".png")) {
+                    chosen = new File(chosen.getParentFile(), chosen.getName() + ".png");
+                }
+                final File file = chosen;
+                exportImageMenuItem.setEnabled(false);
+                new SwingWorker<Void, Void>() {
+                    @Override
+                    protected Void doInBackground() throws IOException {
+                        export.write(file,
+                                Runtime.getRuntime().availableProcessors());
+                        return null;
+                    }
+
+                    @Override
+                    protected void done() {
+                        exportImageMenuItem.setEnabled(true);
+                        try {
+                            get();
+                            JOptionPane.showMessageDialog(frame, "Wrote the "
+                                    + export.getWidth() + " x " + export.getHeight()
+                                    + " px plan to " + file.getName() + ".",
+                                    "Export Image", JOptionPane.INFORMATION_MESSAGE);
+                        } catch (InterruptedException ie) {
+                            //nothing was written, nothing to say.
+                        } catch (ExecutionException ee) {
+                            JOptionPane.showMessageDialog(frame, "The plan could not be written: "
+                                    + ee.getCause().getMessage(),
+                                    "Export Image", JOptionPane.ERROR_MESSAGE);
+                        }
+                    }
+                }.execute();
+            }
+        }
+    }
+
+    /**
+     * Opens a file saving window and writes the car park out as an SVG or
+     * DXF drawing, off the event thread.
+     */
+    private class ExportDrawingMenuItemListener implements ActionListener {
+
+        //File name ending, which picks the format.
+        private String extension;
+
+        /**
+         * Sets up the listener for one format.
+         *
+         * @param extension ".svg" or ".dxf".
+         */
+        ExportDrawingMenuItemListener(String extension) {
+            this.extension = extension;
+        }
+
+        @Override
+        public void actionPerformed(ActionEvent ev) {
+            final LayoutVectorExport export = parkDesignUserInterface.getVectorExport();
+            if (export == null) {
+                JOptionPane.showMessageDialog(frame, "Draw a car park before exporting it.",
+                        "Export Drawing", JOptionPane.INFORMATION_MESSAGE);
+                return;
+            }
+            //Create file chooser window.
+            JFileChooser fileSave = new JFileChooser();
+            fileSave.setDialogTitle("Please choose where to save the drawing.");
+            int dialogButtonClicked = fileSave.showSaveDialog(frame);
+
+            //Don't run this code if cancel button is pressed. Do nothing....
+            if (dialogButtonClicked == JFileChooser.APPROVE_OPTION) {
+                File chosen = fileSave.getSelectedFile();
+                if (!chosen.getName().toLowerCase().endsWith(extension)) {
+                    chosen = new File(chosen.getParentFile(), chosen.getName() + extension);
+                }
+                final File file = chosen;
+                new SwingWorker<Void, Void>() {
+                    @Override
+                    protected Void doInBackground() throws IOException {
+                        export.write(file);
+                        return null;
+                    }
+
+                    @Override
+                    protected void done() {
+                        try {
+                            get();
+                        } catch (InterruptedException ie) {
+                            //nothing was written, nothing to say.
+                        } catch (ExecutionException ee) {
+                            JOptionPane.showMessageDialog(frame, "The drawing could not be written: "
+                                    + ee.getCause().getMessage(),
+                                    "Export Drawing", JOptionPane.ERROR_MESSAGE);
+                        }
+                    }
+                }.execute();
+            }
+        }
+    }
+
     /**
      * Terminates the program.
      */
@@ -461,6 +768,7 @@ public class DesignerGUI {
 
         @Override
         public void actionPerformed(ActionEvent ev) {
+            parkDesignUserInterface.setDrawObstacles(false);
             parkDesignUserInterface.setParkLineState(BoarderLine.BOARDER);
         }
     }
@@ -472,6 +780,7 @@ public class DesignerGUI {
 
         @Override
         public void actionPerformed(ActionEvent ev) {
+            parkDesignUserInterface.setDrawObstacles(false);
             parkDesignUserInterface.setParkLineState(BoarderLine.ENT);
         }
     }
@@ -483,6 +792,7 @@ public class DesignerGUI {
 
         @Override
         public void actionPerformed(ActionEvent ev) {
+            parkDesignUserInterface.setDrawObstacles(false);
             parkDesignUserInterface.setParkLineState(BoarderLine.EXIT);
         }
     }
@@ -494,10 +804,66 @@ public class DesignerGUI {
 
         @Override
         public void actionPerformed(ActionEvent ev) {
+            parkDesignUserInterface.setDrawObstacles(false);
             parkDesignUserInterface.setParkLineState(BoarderLine.ENTEXIT);
         }
     }
 
+    /**
+     * User wants to draw obstacles inside the car park polygon.
+     */
+    private class SetObstacleMenuItemListener implements ActionListener {
+
+        @Override
+        public void actionPerformed(ActionEvent ev) {
+            parkDesignUserInterface.setDrawObstacles(true);
+        }
+    }
+
+    /**
+     * Zoom the car park design user interface in around its middle.
+     */
+    private class ZoomInMenuItemListener implements ActionListener {
+
+        @Override
+        public void actionPerformed(ActionEvent ev) {
+            parkDesignUserInterface.zoomIn();
+        }
+    }
+
+    /**
+     * Zoom the car park design user interface out around its middle.
+     */
+    private class ZoomOutMenuItemListener implements ActionListener {
+
+        @Override
+        public void actionPerformed(ActionEvent ev) {
+            parkDesignUserInterface.zoomOut();
+        }
+    }
+
+    /**
+     * Zoom and pan so the whole car park fills the design user interface.
+     */
+    private class ZoomToFitMenuItemListener implements ActionListener {
+
+        @Override
+        public void actionPerformed(ActionEvent ev) {
+            parkDesignUserInterface.zoomToFit();
+        }
+    }
+
+    /**
+     * Go back to drawing the car park at its own scale.
+     */
+    private class ActualSizeMenuItemListener implements ActionListener {
+
+        @Override
+        public void actionPerformed(ActionEvent ev) {
+            parkDesignUserInterface.resetView();
+        }
+    }
+
     /**
      * When on-screen layout button is clicked, park layout options are checked
      * and this information is sent to the car park design user interface. Following 
@@ -512,6 +878,8 @@ public class DesignerGUI {
 
             String selectedButtonText = whichRadioOptionSelected();
 
+            parkDesignUserInterface.setMixedDirections(
+                    selectedButtonText.equals(parkOptions.MIXED.toString()));
             if (selectedButtonText.equals(parkOptions.TANGENTIAL.toString())) {
                 parkDesignUserInterface.setParkDirection(Park.DEG0);
             } else if (selectedButtonText.equals(parkOptions.ANGLE.toString())) {
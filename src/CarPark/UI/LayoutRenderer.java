@@ -0,0 +1,113 @@
+package CarPark.UI;
+
+import CarPark.Algorithm.BoundarySnapshot;
+import CarPark.Algorithm.SiteHole;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+
+/**
+ * Draws the parts of a car park layout, the boarder coloured by state, the
+ * holes and the parks, so the design panel and the image export draw them
+ * the same way. Each method only reads what it is given, so tiles of an
+ * export can be drawn on different threads at once.
+ *
+ * @author Aydin + Sam
+ */
+public final class LayoutRenderer {
+
+    // Parks narrower than this on screen (px) are drawn as row blocks
+    private static final double MIN_PARK_SIZE = 8;
+    // Row blocks are filled see through so the boarder stays visible
+    private static final Color ROW_BLOCK = new Color(0, 0, 255, 96);
+
+    /**
+     * Nothing to set up, every method is static.
+     */
+    private LayoutRenderer() {
+    }
+
+    /**
+     * returns what color to draw a boarder line based upon its state.
+     *
+     * @param state one of the BoarderLine states.
+     * @return the color to draw the line.
+     */
+    public static Color stateColor(int state) {
+        Color drawColor;
+        switch (state) {
+            case BoarderLine.BOARDER:
+                drawColor = Color.black;
+                break;
+            case BoarderLine.ENT:
+                drawColor = Color.cyan;
+                break;
+            case BoarderLine.EXIT:
+                drawColor = Color.orange;
+                break;
+            case BoarderLine.ENTEXIT:
+                drawColor = Color.green;
+                break;
+            case BoarderLine.COLLISION:
+                drawColor = Color.red;
+                break;
+            default:
+                drawColor = Color.magenta;
+                break;
+        }
+        return drawColor;
+    }
+
+    /**
+     * Draws each line of a boarder in the color of its state.
+     *
+     * @param g2 the graphics object to draw the boarder upon.
+     * @param boundary the boarder to draw.
+     */
+    public static void drawBoundary(Graphics2D g2, BoundarySnapshot boundary) {
+        for (int i = 0; i < boundary.size(); i++) {
+            g2.setColor(stateColor(boundary.get(i).getState()));
+            g2.draw(boundary.get(i).getLine());
+        }
+    }
+
+    /**
+     * Fills the holes inside the car park.
+     *
+     * @param g2 the graphics object to draw the holes upon.
+     * @param holes the holes to draw.
+     */
+    public static void drawHoles(Graphics2D g2, ArrayList<SiteHole> holes) {
+        g2.setColor(Color.GRAY);
+        for (int i = 0; i < holes.size(); i++) {
+            g2.fill(holes.get(i).getOutline());
+        }
+    }
+
+    /**
+     * Draws the parks inside an area. When a park is too small to make out,
+     * each row of parks is drawn as a single filled block instead.
+     *
+     * @param g2 the graphics object to draw the parks upon, already scaled.
+     * @param parks the parks to draw.
+     * @param visible the part of the car park being drawn (px).
+     * @param scale how many pixels each car park pixel is drawn as.
+     */
+    public static void drawParks(Graphics2D g2, ParkGridIndex parks,
+            Rectangle2D visible, double scale) {
+        if (parks.getParkSize() * scale < MIN_PARK_SIZE) {
+            g2.setColor(ROW_BLOCK);
+            int[] rows = parks.rowsIn(visible);
+            for (int k = 0; k < rows.length; k++) {
+                g2.fill(parks.getRow(rows[k]));
+            }
+            return;
+        }
+        g2.setColor(Color.BLUE);
+        int[] inside = parks.parksIn(visible);
+        for (int k = 0; k < inside.length; k++) {
+            g2.draw(parks.getOutline(inside[k]));
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package CarPark.UI;
 
+import javax.swing.SwingUtilities;
+
 /**
  * Starting Point for the Car Park Design Tool Program.
  * 
@@ -13,7 +15,16 @@ public class MainEntryPoint {
      * @param args 
      */
     public static void main (String[] args) {
-       DesignerGUI gui = new DesignerGUI();
-       gui.show();
+       //-Dcarpark.startupTiming=true reports how long the GUI takes to show.
+       final long startNanos = Boolean.getBoolean("carpark.startupTiming")
+               ? System.nanoTime() : -1;
+       //Swing components must be made on the event dispatch thread.
+       SwingUtilities.invokeLater(new Runnable() {
+           @Override
+           public void run() {
+               DesignerGUI gui = new DesignerGUI(startNanos);
+               gui.show();
+           }
+       });
     }
 }
\ No newline at end of file
@@ -23,6 +23,12 @@ public class Park {
     private GeneralPath parkLine0, parkLine60, parkLine90;
     // Stores the integer that defines what direction to draw the parks
     private int parkDir = Park.DEG0;
+    // There are 5 pixels in every 0.2m grid dot and hence 25 pixels in every 1m.
+    public static final double DEFAULT_PX_PER_METRE = 25;
+    // The size of a grid dot, which boarders snap to and layouts are searched on.
+    public static final double GRID_DOT_METRES = 0.2;
+    // Stores how many pixels make up a metre
+    private double pxPerMetre;
 
     /**
      * Constructor: Sets up the Park GeneralPaths with data retrieved from the
@@ -33,6 +39,20 @@ public class Park {
      * @param CPData the data storing the car park metrics.
      */
     public Park(CarPark CPData) {
+        this(CPData, DEFAULT_PX_PER_METRE);
+    }
+
+    /**
+     * Constructor: Sets up the Park GeneralPaths with data retrieved from the
+     * CarPark object drawn at a given scale.
+     *
+     * All car parks are created with the bottom left corner at (0,0)
+     *
+     * @param CPData the data storing the car park metrics.
+     * @param pxPerMetre how many pixels make up a metre.
+     */
+    public Park(CarPark CPData, double pxPerMetre) {
+        this.pxPerMetre = pxPerMetre;
 
         //park lines to be drawn when the algorithm is run.
         parkLine0 = new GeneralPath(GeneralPath.WIND_EVEN_ODD, 3);
@@ -41,26 +61,26 @@ public class Park {
 
         //draw the 0deg park
         // |__| bottom left hand corner is (0,0)
-        parkLine0.moveTo(0, CPData.getAngle0Width() * 25);
+        parkLine0.moveTo(0, CPData.getAngle0Width() * pxPerMetre);
         parkLine0.lineTo(0, 0);
-        parkLine0.lineTo(CPData.getAngle0Length() * 25, 0);
-        parkLine0.lineTo(CPData.getAngle0Length() * 25, CPData.getAngle0Width() * 25);
+        parkLine0.lineTo(CPData.getAngle0Length() * pxPerMetre, 0);
+        parkLine0.lineTo(CPData.getAngle0Length() * pxPerMetre, CPData.getAngle0Width() * pxPerMetre);
 
         //draw the 60deg park
         // /_/ bottom left hand corner is (0,0)
         //doing a bit of extra math to calculate the x displacement from the angle
         double moveOver = CPData.getAngle60Depth() / Math.tan(60.0 * Math.PI / 180.0);
-        parkLine60.moveTo(moveOver * 25, CPData.getAngle60Depth() * 25);
+        parkLine60.moveTo(moveOver * pxPerMetre, CPData.getAngle60Depth() * pxPerMetre);
         parkLine60.lineTo(0, 0);
-        parkLine60.lineTo(CPData.getAngle60Width() * 25, 0);
-        parkLine60.lineTo(CPData.getAngle60Width() * 25 + moveOver * 25, CPData.getAngle60Depth() * 25);
+        parkLine60.lineTo(CPData.getAngle60Width() * pxPerMetre, 0);
+        parkLine60.lineTo(CPData.getAngle60Width() * pxPerMetre + moveOver * pxPerMetre, CPData.getAngle60Depth() * pxPerMetre);
 
         //draw the 90deg park
         // |_| bottom left hand corner is (0,0)
-        parkLine90.moveTo(0, CPData.getAngle90Depth() * 25);
+        parkLine90.moveTo(0, CPData.getAngle90Depth() * pxPerMetre);
         parkLine90.lineTo(0, 0);
-        parkLine90.lineTo(CPData.getAngle90Width() * 25, 0);
-        parkLine90.lineTo(CPData.getAngle90Width() * 25, CPData.getAngle90Depth() * 25);
+        parkLine90.lineTo(CPData.getAngle90Width() * pxPerMetre, 0);
+        parkLine90.lineTo(CPData.getAngle90Width() * pxPerMetre, CPData.getAngle90Depth() * pxPerMetre);
     }
 
     /**
@@ -82,9 +102,40 @@ public class Park {
         return parkDir;
     }
 
+    /**
+     * gets the scale the parks are drawn at.
+     *
+     * @return how many pixels make up a metre.
+     */
+    public double getPxPerMetre() {
+        return pxPerMetre;
+    }
+
+    /**
+     * gets the size of a grid dot at the scale the parks are drawn at.
+     *
+     * @return the nearest whole number of pixels to 0.2m, at least 1.
+     */
+    public int getGridDotPx() {
+        return gridDotPx(pxPerMetre);
+    }
+
+    /**
+     * gets the size of a grid dot at a scale.
+     *
+     * @param pxPerMetre how many pixels make up a metre.
+     * @return the nearest whole number of pixels to 0.2m, at least 1.
+     */
+    public static int gridDotPx(double pxPerMetre) {
+        return Math.max(1, (int) Math.round(pxPerMetre * GRID_DOT_METRES));
+    }
+
     /**
      * Gets the shape representing the park moved to a point and rotated.
      *
+     * The shape drawn is the one the algorithm chose for the park, which is
+     * not necessarily the current direction of this Park.
+     *
      * @param parkPos parks positions and rotation generated by algorithm.
      */
     public Shape getParkLine(AlgGeneratedPark parkPos) {
@@ -93,7 +144,7 @@ public class Park {
         Transform.setToTranslation(parkPos.getParkPosition().getX(), parkPos.getParkPosition().getY());
         Transform.rotate(parkPos.getParkAngle());
 
-        switch (parkDir) {
+        switch (parkPos.getParkDirection()) {
             case Park.DEG60:
                 parkLinenew = parkLine60.createTransformedShape(Transform);
                 break;
@@ -0,0 +1,187 @@
+package CarPark.UI;
+
+import CarPark.Algorithm.AlgGeneratedPark;
+import CarPark.Algorithm.BucketGrid;
+import java.awt.Shape;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+
+/**
+ * The outline of every park in a layout worked out once, along with a grid of
+ * which parks fall in each part of the car park, so drawing only has to look
+ * at the parks inside the area on screen.
+ *
+ * Parks laid out next to each other in a row are also joined into row blocks,
+ * a single rectangle per row, which are drawn instead of the parks when the
+ * view is zoomed out too far to make out a single park.
+ *
+ * @author Aydin + Sam
+ */
+public final class ParkGridIndex {
+
+    //size of a bucket, 10 m at the default scale.
+    private static final double BUCKET_SIZE = 250;
+    //gap allowed between two parks in the same row block (px).
+    private static final double ROW_GAP = 1;
+    private final Shape[] outlines;
+    private final BucketGrid parks;
+    private final Rectangle2D[] rows;
+    private final BucketGrid rowBuckets;
+    private final Rectangle2D bounds;
+    //the narrowest side of an average park (px).
+    private final double parkSize;
+
+    /**
+     * Constructor: Works out the outline of each park and the buckets and row
+     * blocks they fall in.
+     *
+     * @param parkLocations the locations and rotations of each park.
+     * @param parkLayout the object defining the shape of each park.
+     */
+    public ParkGridIndex(ArrayList<AlgGeneratedPark> parkLocations, Park parkLayout) {
+        int n = parkLocations.size();
+        outlines = new Shape[n];
+        double[] boxes = new double[4 * n];
+        ArrayList<Rectangle2D> blocks = new ArrayList<Rectangle2D>();
+        Rectangle2D block = null;
+        AlgGeneratedPark last = null;
+        double sizes = 0;
+        for (int i = 0; i < n; i++) {
+            AlgGeneratedPark park = parkLocations.get(i);
+            outlines[i] = parkLayout.getParkLine(park);
+            Rectangle2D box = outlines[i].getBounds2D();
+            boxes[4 * i] = box.getMinX();
+            boxes[4 * i + 1] = box.getMinY();
+            boxes[4 * i + 2] = box.getMaxX();
+            boxes[4 * i + 3] = box.getMaxY();
+            sizes += Math.min(box.getWidth(), box.getHeight());
+
+            //parks are placed a row at a time, so a row is a run of parks the
+            //same way round, level with and touching the one before.
+            if (block != null && sameRow(last, park, block, box)) {
+                block.add(box);
+            } else {
+                block = (Rectangle2D) box.clone();
+                blocks.add(block);
+            }
+            last = park;
+        }
+        parks = new BucketGrid(boxes, n, BUCKET_SIZE);
+        parkSize = n == 0 ? 0 : sizes / n;
+
+        rows = blocks.toArray(new Rectangle2D[blocks.size()]);
+        double[] rowBoxes = new double[4 * rows.length];
+        for (int r = 0; r < rows.length; r++) {
+            rowBoxes[4 * r] = rows[r].getMinX();
+            rowBoxes[4 * r + 1] = rows[r].getMinY();
+            rowBoxes[4 * r + 2] = rows[r].getMaxX();
+            rowBoxes[4 * r + 3] = rows[r].getMaxY();
+        }
+        rowBuckets = new BucketGrid(rowBoxes, rows.length, BUCKET_SIZE);
+
+        bounds = new Rectangle2D.Double();
+        for (int r = 0; r < rows.length; r++) {
+            if (r == 0) {
+                bounds.setRect(rows[r]);
+            } else {
+                bounds.add(rows[r]);
+            }
+        }
+    }
+
+    /**
+     * Checks whether a park carries on the row block of the park before it.
+     *
+     * @param last the park before.
+     * @param park the park to check.
+     * @param block the row block so far.
+     * @param box the box bounding the park.
+     * @return true if the park is in the same row.
+     */
+    private static boolean sameRow(AlgGeneratedPark last, AlgGeneratedPark park,
+            Rectangle2D block, Rectangle2D box) {
+        return last.getParkDirection() == park.getParkDirection()
+                && last.getParkAngle() == park.getParkAngle()
+                && Math.abs(block.getMinY() - box.getMinY()) < ROW_GAP
+                && Math.abs(block.getMaxY() - box.getMaxY()) < ROW_GAP
+                && box.getMinX() <= block.getMaxX() + ROW_GAP
+                && box.getMaxX() >= block.getMinX() - ROW_GAP;
+    }
+
+    /**
+     * Gets how many parks are in the layout.
+     *
+     * @return the number of parks.
+     */
+    public int size() {
+        return outlines.length;
+    }
+
+    /**
+     * Gets the outline of a park.
+     *
+     * @param i the park number, in the order the parks were given.
+     * @return the outline, shared and not to be changed.
+     */
+    public Shape getOutline(int i) {
+        return outlines[i];
+    }
+
+    /**
+     * Gets a row block.
+     *
+     * @param r the row block number.
+     * @return a copy of the rectangle covering the row (px).
+     */
+    public Rectangle2D getRow(int r) {
+        return (Rectangle2D) rows[r].clone();
+    }
+
+    /**
+     * Gets how many row blocks the parks were joined into.
+     *
+     * @return the number of row blocks.
+     */
+    public int getRowCount() {
+        return rows.length;
+    }
+
+    /**
+     * Gets the narrowest side of an average park, used to decide whether
+     * single parks can be made out.
+     *
+     * @return the size (px), 0 if there are no parks.
+     */
+    public double getParkSize() {
+        return parkSize;
+    }
+
+    /**
+     * Gets the box bounding every park.
+     *
+     * @return a copy of the bounds (px), empty if there are no parks.
+     */
+    public Rectangle2D getBounds() {
+        return (Rectangle2D) bounds.clone();
+    }
+
+    /**
+     * Finds the parks whose bounding boxes touch an area.
+     *
+     * @param area the area to look in (px).
+     * @return the park numbers, each once.
+     */
+    public int[] parksIn(Rectangle2D area) {
+        return parks.query(area);
+    }
+
+    /**
+     * Finds the row blocks that touch an area.
+     *
+     * @param area the area to look in (px).
+     * @return the row block numbers, each once.
+     */
+    public int[] rowsIn(Rectangle2D area) {
+        return rowBuckets.query(area);
+    }
+}